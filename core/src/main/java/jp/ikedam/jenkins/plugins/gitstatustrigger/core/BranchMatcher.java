@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Tests branch names against a configured branch, which may contain wild cards ("*").
+ *
+ * The pattern is parsed once when created,
+ * and testing branches doesn't allocate any objects.
+ */
+public class BranchMatcher {
+    private static final BranchMatcher[] EMPTY = new BranchMatcher[0];
+
+    @Nonnull
+    private final String pattern;
+    /**
+     * Fragments separated with "*". {@code null} if no wild cards.
+     */
+    @CheckForNull
+    private final String[] fragments;
+
+    /**
+     * @param pattern configured branch
+     */
+    public BranchMatcher(@Nonnull String pattern) {
+        this.pattern = pattern;
+        this.fragments = pattern.contains("*") ? pattern.split("\\*", -1) : null;
+    }
+
+    /**
+     * Parse comma-separated list of branches
+     *
+     * @param branches comma-separated list of branches
+     * @return matchers for each branch
+     */
+    @Nonnull
+    public static BranchMatcher[] parseList(@CheckForNull String branches) {
+        if (branches == null) {
+            return EMPTY;
+        }
+        List<BranchMatcher> matchers = new ArrayList<BranchMatcher>();
+        int start = 0;
+        while (start <= branches.length()) {
+            int end = branches.indexOf(',', start);
+            if (end < 0) {
+                end = branches.length();
+            }
+            // Skip empty ones like "a,,b" as commons-lang StringUtils#split does.
+            if (end > start) {
+                matchers.add(new BranchMatcher(branches.substring(start, end).trim()));
+            }
+            start = end + 1;
+        }
+        return matchers.toArray(EMPTY);
+    }
+
+    /**
+     * @return configured branch
+     */
+    @Nonnull
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @param branch actual branch
+     * @return {@code true} if the configured branch contains {@code branch}
+     */
+    public boolean matches(@Nonnull String branch) {
+        String[] fragments = this.fragments;
+        if (fragments == null) {
+            return pattern.equals(branch);
+        }
+        String head = fragments[0];
+        String tail = fragments[fragments.length - 1];
+        if (branch.length() < head.length() + tail.length()) {
+            return false;
+        }
+        if (!branch.startsWith(head) || !branch.endsWith(tail)) {
+            return false;
+        }
+        // fragments between wild cards must appear in order.
+        int pos = head.length();
+        int end = branch.length() - tail.length();
+        for (int i = 1; i < fragments.length - 1; ++i) {
+            String fragment = fragments[i];
+            int found = branch.indexOf(fragment, pos);
+            if (found < 0 || found + fragment.length() > end) {
+                return false;
+            }
+            pos = found + fragment.length();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Reads notifications from a capture written with {@link CaptureWriter}.
+ */
+public class CaptureReader implements Closeable {
+    @Nonnull
+    private final BufferedReader reader;
+    private int lineNumber = 0;
+
+    /**
+     * @param reader where to read
+     */
+    public CaptureReader(@Nonnull Reader reader) {
+        this.reader = (reader instanceof BufferedReader) ? (BufferedReader)reader : new BufferedReader(reader);
+    }
+
+    /**
+     * Read all notifications in a capture.
+     *
+     * @param reader where to read. Closed when returned.
+     * @return notifications in the capture
+     * @throws IOException failed to read or the capture is malformed
+     */
+    @Nonnull
+    public static List<CapturedNotification> readAll(@Nonnull Reader reader) throws IOException {
+        CaptureReader r = new CaptureReader(reader);
+        try {
+            List<CapturedNotification> ret = new ArrayList<CapturedNotification>();
+            CapturedNotification n;
+            while ((n = r.read()) != null) {
+                ret.add(n);
+            }
+            return ret;
+        } finally {
+            r.close();
+        }
+    }
+
+    /**
+     * @return the next notification. {@code null} at the end.
+     * @throws IOException failed to read or the capture is malformed
+     */
+    @CheckForNull
+    public CapturedNotification read() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            ++lineNumber;
+        } while (line.length() == 0 || line.charAt(0) == '#');
+
+        List<String> fields = new ArrayList<String>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < line.length(); ++i) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else if (c == '\\') {
+                if (++i >= line.length()) {
+                    throw malformed("trailing backslash");
+                }
+                switch (line.charAt(i)) {
+                case '\\':
+                    sb.append('\\');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                default:
+                    throw malformed("unknown escape");
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        fields.add(sb.toString());
+        if (fields.size() < 2) {
+            throw malformed("no URI");
+        }
+        long timestamp;
+        try {
+            timestamp = Long.parseLong(fields.get(0));
+        } catch (NumberFormatException e) {
+            throw malformed("invalid time");
+        }
+        String[] branches = fields.subList(2, fields.size()).toArray(new String[fields.size() - 2]);
+        return new CapturedNotification(timestamp, new Notification(fields.get(1), branches));
+    }
+
+    @Nonnull
+    private IOException malformed(@Nonnull String reason) {
+        return new IOException(String.format("Malformed capture at line %d: %s", lineNumber, reason));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException {
+        reader.close();
+    }
+}
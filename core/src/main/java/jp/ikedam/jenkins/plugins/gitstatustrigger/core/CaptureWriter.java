@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Writes notifications to a capture.
+ *
+ * A capture is a text file with a notification in each line:
+ * the time in milliseconds since the epoch, the URI and branches, separated with tabs.
+ * Backslashes, tabs and line breaks in values are escaped with backslashes.
+ * Lines starting with {@code #} are comments.
+ *
+ * Not thread-safe.
+ */
+public class CaptureWriter implements Closeable {
+    /**
+     * The first line of captures.
+     */
+    public static final String HEADER = "# git-status-trigger capture v1";
+
+    @Nonnull
+    private final Writer writer;
+    private boolean headerWritten;
+
+    /**
+     * @param writer where to write
+     * @param append whether {@code writer} appends to an existing capture, which already has the header
+     */
+    public CaptureWriter(@Nonnull Writer writer, boolean append) {
+        this.writer = writer;
+        this.headerWritten = append;
+    }
+
+    /**
+     * Write a notification.
+     *
+     * @param timestamp when the notification was received, in milliseconds since the epoch
+     * @param n the notification
+     * @throws IOException failed to write
+     */
+    public void write(long timestamp, @Nonnull Notification n) throws IOException {
+        if (!headerWritten) {
+            writer.write(HEADER);
+            writer.write('\n');
+            headerWritten = true;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(timestamp);
+        sb.append('\t');
+        escape(sb, n.getUri());
+        for (String branch: n.getBranches()) {
+            sb.append('\t');
+            escape(sb, branch);
+        }
+        sb.append('\n');
+        writer.write(sb.toString());
+    }
+
+    private static void escape(@Nonnull StringBuilder sb, @Nonnull String s) {
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            default:
+                sb.append(c);
+                break;
+            }
+        }
+    }
+
+    /**
+     * @throws IOException failed to flush
+     */
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException {
+        writer.close();
+    }
+}
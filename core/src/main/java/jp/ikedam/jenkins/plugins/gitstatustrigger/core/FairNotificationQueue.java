@@ -0,0 +1,258 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Queues notifications fairly among repositories.
+ *
+ * Notifications are taken from repositories in round-robin,
+ * so that a burst of notifications for a repository doesn't delay ones for others.
+ * When a repository has as many notifications as the backlog limit,
+ * a new notification is merged into the last one for the repository,
+ * which triggers the same subscribers as both of them
+ * (see {@link NotificationCoalescer}).
+ *
+ * A repository is busy from when a notification for it is taken
+ * until {@link #done(Entry)} is called for the notification,
+ * and no more notifications are taken for the repository meanwhile,
+ * so that notifications for a repository are never processed concurrently.
+ *
+ * Each notification can have tags (e.g. IDs in a journal) to acknowledge after processed.
+ * Tags of merged notifications are kept together.
+ *
+ * Thread-safe.
+ */
+public class FairNotificationQueue {
+    private static final long[] NO_TAGS = new long[0];
+
+    @Nonnull
+    private final Map<String, LinkedList<Entry>> backlogs = new HashMap<String, LinkedList<Entry>>();
+    /**
+     * Repositories with notifications and not busy, in the order to take next.
+     */
+    @Nonnull
+    private final LinkedList<String> ring = new LinkedList<String>();
+    /**
+     * Repositories whose notifications are being processed.
+     */
+    @Nonnull
+    private final Set<String> busy = new HashSet<String>();
+    private int backlogLimit;
+    private int size = 0;
+    private long mergedCount = 0;
+
+    /**
+     * @param backlogLimit maximum number of notifications queued for a repository
+     */
+    public FairNotificationQueue(int backlogLimit) {
+        setBacklogLimit(backlogLimit);
+    }
+
+    /**
+     * @param backlogLimit maximum number of notifications queued for a repository
+     */
+    public synchronized void setBacklogLimit(int backlogLimit) {
+        this.backlogLimit = Math.max(1, backlogLimit);
+    }
+
+    /**
+     * @return maximum number of notifications queued for a repository
+     */
+    public synchronized int getBacklogLimit() {
+        return backlogLimit;
+    }
+
+    /**
+     * Add a notification.
+     *
+     * @param n notification to add
+     * @param tag a tag to acknowledge after processed. Negative for none.
+     * @return {@code false} if merged into a queued notification
+     */
+    public synchronized boolean offer(@Nonnull Notification n, long tag) {
+        long[] tags = (tag >= 0) ? new long[] {tag} : NO_TAGS;
+        LinkedList<Entry> backlog = backlogs.get(n.getUri());
+        if (backlog == null) {
+            backlog = new LinkedList<Entry>();
+            backlogs.put(n.getUri(), backlog);
+            if (!busy.contains(n.getUri())) {
+                ring.addLast(n.getUri());
+            }
+        } else if (backlog.size() >= backlogLimit) {
+            Entry last = backlog.removeLast();
+            backlog.addLast(last.merge(n, tags));
+            ++mergedCount;
+            return false;
+        }
+        backlog.addLast(new Entry(n, tags));
+        ++size;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Take the next notification without waiting.
+     *
+     * The repository of the notification is busy until {@link #done(Entry)} is called.
+     *
+     * @return the next notification. {@code null} if empty or all repositories are busy.
+     */
+    @CheckForNull
+    public synchronized Entry poll() {
+        String uri = ring.poll();
+        if (uri == null) {
+            return null;
+        }
+        LinkedList<Entry> backlog = backlogs.get(uri);
+        Entry e = backlog.removeFirst();
+        if (backlog.isEmpty()) {
+            backlogs.remove(uri);
+        }
+        busy.add(uri);
+        --size;
+        return e;
+    }
+
+    /**
+     * Mark a notification taken from this queue processed,
+     * and let notifications for the repository taken again.
+     *
+     * @param e the notification returned from {@link #poll()}
+     */
+    public synchronized void done(@Nonnull Entry e) {
+        String uri = e.getNotification().getUri();
+        if (!busy.remove(uri)) {
+            return;
+        }
+        if (backlogs.containsKey(uri)) {
+            // take from other repositories before this one again.
+            ring.addLast(uri);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Take the next notification, waiting for one if empty.
+     *
+     * @param timeout how long to wait
+     * @param unit unit of {@code timeout}
+     * @return the next notification. {@code null} if timed out.
+     * @throws InterruptedException interrupted while waiting
+     * @see #poll()
+     */
+    @CheckForNull
+    public synchronized Entry poll(long timeout, @Nonnull TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (ring.isEmpty()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return poll();
+    }
+
+    /**
+     * @return the number of queued notifications, not including ones being processed
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of repositories with queued notifications
+     */
+    public synchronized int getRepositoryCount() {
+        return backlogs.size();
+    }
+
+    /**
+     * @return the number of notifications merged as backlogs were full
+     */
+    public synchronized long getMergedCount() {
+        return mergedCount;
+    }
+
+    /**
+     * A queued notification.
+     */
+    public static class Entry {
+        @Nonnull
+        private final Notification notification;
+        @Nonnull
+        private final long[] tags;
+
+        private Entry(@Nonnull Notification notification, @Nonnull long[] tags) {
+            this.notification = notification;
+            this.tags = tags;
+        }
+
+        @Nonnull
+        private Entry merge(@Nonnull Notification n, @Nonnull long[] moreTags) {
+            Set<String> branches = new LinkedHashSet<String>();
+            for (String branch: notification.getBranches()) {
+                branches.add(branch);
+            }
+            for (String branch: n.getBranches()) {
+                branches.add(branch);
+            }
+            long[] mergedTags = new long[tags.length + moreTags.length];
+            System.arraycopy(tags, 0, mergedTags, 0, tags.length);
+            System.arraycopy(moreTags, 0, mergedTags, tags.length, moreTags.length);
+            return new Entry(
+                new Notification(notification.getUri(), branches.toArray(new String[branches.size()])),
+                mergedTags
+            );
+        }
+
+        /**
+         * @return the notification
+         */
+        @Nonnull
+        public Notification getNotification() {
+            return notification;
+        }
+
+        /**
+         * @return tags to acknowledge after processed
+         */
+        @Nonnull
+        public long[] getTags() {
+            return tags.clone();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Writes spans as JSON lines, one span per line.
+ *
+ * Each line is a span in the OTLP/JSON encoding of OpenTelemetry:
+ * <pre>
+ * {"traceId":"...","spanId":"...","parentSpanId":"...","name":"match",
+ *  "startTimeUnixNano":"...","endTimeUnixNano":"...",
+ *  "attributes":[{"key":"uri","value":{"stringValue":"..."}}],
+ *  "status":{"code":2,"message":"..."}}
+ * </pre>
+ * {@code parentSpanId} and {@code status} are written only when available.
+ * Output is flushed when a root span ends.
+ *
+ * Thread-safe.
+ */
+public class JsonLinesSpanExporter implements SpanExporter {
+    private static final int STATUS_ERROR = 2;
+
+    @Nonnull
+    private final Writer writer;
+
+    /**
+     * @param writer where to write spans
+     */
+    public JsonLinesSpanExporter(@Nonnull Writer writer) {
+        this.writer = new BufferedWriter(writer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void export(@Nonnull Span span) throws IOException {
+        String line = toJson(span);
+        synchronized (writer) {
+            writer.write(line);
+            writer.write('\n');
+            if (span.getParentSpanId() == null) {
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException {
+        synchronized (writer) {
+            writer.close();
+        }
+    }
+
+    /**
+     * @param span the span to encode
+     * @return the span in a line of JSON
+     */
+    @Nonnull
+    static String toJson(@Nonnull Span span) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"traceId\":");
+        JsonStrings.append(sb, span.getTraceId());
+        sb.append(",\"spanId\":");
+        JsonStrings.append(sb, span.getSpanId());
+        if (span.getParentSpanId() != null) {
+            sb.append(",\"parentSpanId\":");
+            JsonStrings.append(sb, span.getParentSpanId());
+        }
+        sb.append(",\"name\":");
+        JsonStrings.append(sb, span.getName());
+        // 64-bit integers are strings in OTLP/JSON.
+        sb.append(",\"startTimeUnixNano\":\"").append(span.getStartEpochNanos()).append('"');
+        sb.append(",\"endTimeUnixNano\":\"").append(span.getEndEpochNanos()).append('"');
+        sb.append(",\"attributes\":[");
+        boolean first = true;
+        for (Map.Entry<String, Object> e: span.getAttributes().entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append("{\"key\":");
+            JsonStrings.append(sb, e.getKey());
+            sb.append(",\"value\":{");
+            Object v = e.getValue();
+            if (v instanceof Boolean) {
+                sb.append("\"boolValue\":").append(v);
+            } else if (v instanceof Long) {
+                sb.append("\"intValue\":\"").append(v).append('"');
+            } else {
+                sb.append("\"stringValue\":");
+                JsonStrings.append(sb, v.toString());
+            }
+            sb.append("}}");
+        }
+        sb.append(']');
+        if (span.getError() != null) {
+            sb.append(",\"status\":{\"code\":").append(STATUS_ERROR).append(",\"message\":");
+            JsonStrings.append(sb, span.getError());
+            sb.append('}');
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Remembers which subscribers matched a notification.
+ *
+ * Results are keyed by the URI and the set of branches,
+ * as whether a subscriber matches doesn't depend on the order of branches.
+ * Results are tied to a generation of subscriptions,
+ * and all of them are discarded when a newer generation is seen.
+ * Least recently used results are discarded when the cache is full.
+ *
+ * Looking up doesn't allocate objects.
+ * Notifications with many branches are not cached,
+ * as they are rarely repeated and expensive to compare.
+ *
+ * Thread-safe.
+ *
+ * @param <T> type of subscribers
+ */
+public class MatchCache<T> {
+    /**
+     * Notifications with more branches than this are not cached.
+     */
+    public static final int MAX_BRANCHES = 16;
+
+    private final int capacity;
+    @Nonnull
+    private final Map<Key, List<T>> results;
+    @Nonnull
+    private final Key probe = new Key();
+    private long generation = Long.MIN_VALUE;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * @param capacity maximum number of results to keep
+     */
+    public MatchCache(final int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.results = new LinkedHashMap<Key, List<T>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<T>> eldest) {
+                return size() > MatchCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @param branches notified branches
+     * @return whether results for the notification can be cached
+     */
+    public static boolean isCacheable(@Nonnull String[] branches) {
+        if (branches.length > MAX_BRANCHES) {
+            return false;
+        }
+        for (String branch: branches) {
+            if (branch == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param generation the current generation of subscriptions
+     * @param uri URI of the repository
+     * @param branches notified branches
+     * @return matched subscribers. {@code null} if not cached.
+     */
+    @CheckForNull
+    public synchronized List<T> get(long generation, @Nonnull String uri, @Nonnull String[] branches) {
+        if (!updateGeneration(generation) || !isCacheable(branches)) {
+            ++missCount;
+            return null;
+        }
+        probe.set(uri, branches);
+        List<T> matched = results.get(probe);
+        probe.clear();
+        if (matched == null) {
+            ++missCount;
+            return null;
+        }
+        ++hitCount;
+        return matched;
+    }
+
+    /**
+     * Test whether results are cached, without affecting the order of eviction nor counts.
+     *
+     * @param generation the current generation of subscriptions
+     * @param uri URI of the repository
+     * @param branches notified branches
+     * @return whether {@link #get(long, String, String[])} would return cached results
+     */
+    public synchronized boolean contains(long generation, @Nonnull String uri, @Nonnull String[] branches) {
+        if (generation != this.generation || !isCacheable(branches)) {
+            return false;
+        }
+        probe.set(uri, branches);
+        boolean found = results.containsKey(probe);
+        probe.clear();
+        return found;
+    }
+
+    /**
+     * Store matched subscribers.
+     *
+     * Ignored if the generation is older than the one already seen.
+     *
+     * @param generation the generation of subscriptions the result is for
+     * @param uri URI of the repository
+     * @param branches notified branches
+     * @param matched matched subscribers
+     */
+    public synchronized void put(
+        long generation,
+        @Nonnull String uri,
+        @Nonnull String[] branches,
+        @Nonnull List<T> matched
+    ) {
+        if (!updateGeneration(generation) || !isCacheable(branches)) {
+            return;
+        }
+        results.put(
+            Key.canonical(uri, branches),
+            matched.isEmpty()
+                ? Collections.<T>emptyList()
+                : Collections.unmodifiableList(new ArrayList<T>(matched))
+        );
+    }
+
+    /**
+     * @param generation the generation of subscriptions
+     * @return {@code false} if the generation is older than the one already seen
+     */
+    private boolean updateGeneration(long generation) {
+        if (generation < this.generation) {
+            return false;
+        }
+        if (generation > this.generation) {
+            results.clear();
+            this.generation = generation;
+        }
+        return true;
+    }
+
+    /**
+     * Discard all results.
+     */
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    /**
+     * @return maximum number of results to keep
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of results kept
+     */
+    public synchronized int size() {
+        return results.size();
+    }
+
+    /**
+     * @return number of lookups found results
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of lookups not found results
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * A URI and a set of branches.
+     *
+     * Keys stored in the cache hold sorted distinct branches.
+     * The key to look up holds branches as notified,
+     * not to allocate objects.
+     */
+    private static class Key {
+        @CheckForNull
+        private String uri;
+        @CheckForNull
+        private String[] branches;
+        private int distinctCount;
+        private boolean sorted;
+        private int hash;
+
+        /**
+         * @param uri URI of the repository
+         * @param branches notified branches
+         * @return a key to store
+         */
+        @Nonnull
+        static Key canonical(@Nonnull String uri, @Nonnull String[] branches) {
+            String[] sorted = branches.clone();
+            Arrays.sort(sorted);
+            int n = 0;
+            for (int i = 0; i < sorted.length; ++i) {
+                if (n == 0 || !sorted[n - 1].equals(sorted[i])) {
+                    sorted[n++] = sorted[i];
+                }
+            }
+            if (n < sorted.length) {
+                String[] distinct = new String[n];
+                System.arraycopy(sorted, 0, distinct, 0, n);
+                sorted = distinct;
+            }
+            Key key = new Key();
+            key.set(uri, sorted);
+            key.sorted = true;
+            return key;
+        }
+
+        void set(@Nonnull String uri, @Nonnull String[] branches) {
+            this.uri = uri;
+            this.branches = branches;
+            this.sorted = false;
+            int h = 0;
+            int n = 0;
+            for (int i = 0; i < branches.length; ++i) {
+                if (indexOf(branches, i, branches[i]) < 0) {
+                    h += branches[i].hashCode();
+                    ++n;
+                }
+            }
+            this.distinctCount = n;
+            this.hash = uri.hashCode() * 31 + h;
+        }
+
+        void clear() {
+            this.uri = null;
+            this.branches = null;
+        }
+
+        private static int indexOf(@Nonnull String[] branches, int to, @Nonnull String branch) {
+            for (int i = 0; i < to; ++i) {
+                if (branches[i].equals(branch)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean contains(@Nonnull String branch) {
+            if (sorted) {
+                return Arrays.binarySearch(branches, branch) >= 0;
+            }
+            return indexOf(branches, branches.length, branch) >= 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)o;
+            if (hash != other.hash || distinctCount != other.distinctCount || !uri.equals(other.uri)) {
+                return false;
+            }
+            for (String branch: branches) {
+                if (!other.contains(branch)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A push notification from a repository.
+ */
+public class Notification {
+    private static final String[] NO_BRANCHES = new String[0];
+
+    @Nonnull
+    private final String uri;
+    @Nonnull
+    private final String[] branches;
+
+    /**
+     * @param uri URI of the repository
+     * @param branches branches update occurred. May be empty.
+     */
+    public Notification(@Nonnull String uri, @Nonnull String... branches) {
+        this.uri = uri;
+        this.branches = (branches.length > 0) ? branches : NO_BRANCHES;
+    }
+
+    /**
+     * @return URI of the repository
+     */
+    @Nonnull
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * Returns the array held in this object, not to allocate one for each call.
+     * Callers must not modify it.
+     *
+     * @return branches update occurred. May be empty.
+     */
+    @Nonnull
+    public String[] getBranches() {
+        return branches;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Notification)) {
+            return false;
+        }
+        Notification other = (Notification)obj;
+        return uri.equals(other.uri) && Arrays.equals(branches, other.branches);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return uri.hashCode() * 31 + Arrays.hashCode(branches);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return String.format("%s (branches=%s)", uri, Arrays.toString(branches));
+    }
+}
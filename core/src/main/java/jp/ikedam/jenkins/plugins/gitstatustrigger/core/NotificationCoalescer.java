@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Merges notifications for the same repository.
+ *
+ * Notifications for a repository are merged into one with all their branches.
+ * That triggers the same subscribers as the original ones:
+ * subscribers without branches accept any notifications,
+ * and subscribers with branches accept a notification if any of branches matches.
+ *
+ * Thread-safe.
+ */
+public class NotificationCoalescer {
+    @Nonnull
+    private final Map<String, Set<String>> pending = new LinkedHashMap<String, Set<String>>();
+    private int added = 0;
+
+    /**
+     * @param n notification to add
+     */
+    public synchronized void add(@Nonnull Notification n) {
+        Set<String> branches = pending.get(n.getUri());
+        if (branches == null) {
+            branches = new LinkedHashSet<String>();
+            pending.put(n.getUri(), branches);
+        }
+        for (String branch: n.getBranches()) {
+            branches.add(branch);
+        }
+        ++added;
+    }
+
+    /**
+     * @return the number of notifications added since the last {@link #drain()}
+     */
+    public synchronized int getAddedCount() {
+        return added;
+    }
+
+    /**
+     * @return the number of repositories pending
+     */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Take merged notifications and clear them.
+     *
+     * @return merged notifications, in the order repositories are first added
+     */
+    @Nonnull
+    public synchronized List<Notification> drain() {
+        List<Notification> drained = new ArrayList<Notification>(pending.size());
+        for (Map.Entry<String, Set<String>> e: pending.entrySet()) {
+            drained.add(new Notification(
+                e.getKey(),
+                e.getValue().toArray(new String[e.getValue().size()])
+            ));
+        }
+        pending.clear();
+        added = 0;
+        return drained;
+    }
+}
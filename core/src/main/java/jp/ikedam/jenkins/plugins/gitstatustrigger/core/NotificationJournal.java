@@ -0,0 +1,503 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Append-only journal of accepted notifications, in a memory-mapped file.
+ *
+ * Each notification is appended before dispatched, and completed after dispatched.
+ * The checkpoint in the file points the oldest notification not completed,
+ * and notifications after the checkpoint not marked completed
+ * are recovered when the journal is opened next time.
+ * Recovered notifications may have been dispatched already,
+ * as completions are not flushed for each notification.
+ *
+ * Appended notifications are flushed to the storage by a background thread,
+ * so that notifications appended at the same time share a flush
+ * and threads appending notifications don't wait for the storage.
+ *
+ * The file has a fixed capacity. Completed notifications are discarded when the file is full,
+ * by writing notifications not completed into a new file and replacing the file with it.
+ * Notifications are rejected if the file is full of notifications not completed.
+ */
+public class NotificationJournal implements Closeable {
+    private static final int MAGIC = 0x47535452; // "GSTR"
+    private static final int VERSION = 1;
+    private static final int MAGIC_POS = 0;
+    private static final int VERSION_POS = 4;
+    private static final int CHECKPOINT_POS = 8;
+    private static final int WRITE_POS = 12;
+    private static final int DATA_START = 16;
+    private static final byte PENDING = 0;
+    private static final byte COMPLETED = 1;
+    /** length and state */
+    private static final int RECORD_HEADER = 5;
+    private static final String CHARSET = "UTF-8";
+
+    /**
+     * The minimum capacity.
+     */
+    public static final int MIN_CAPACITY = 4096;
+
+    /**
+     * Milliseconds to wait after a flush, to flush notifications appended in the meantime at once.
+     */
+    private static final long FLUSH_INTERVAL = 50;
+
+    @Nonnull
+    private final File path;
+    @Nonnull
+    private RandomAccessFile file;
+    @Nonnull
+    private MappedByteBuffer buffer;
+    /**
+     * Set when notifications are appended and not flushed yet.
+     */
+    private boolean dirty = false;
+    @CheckForNull
+    private Thread flusher;
+    private int checkpoint;
+    private int write;
+    /**
+     * Ids are unique among journals,
+     * so that ids for a closed journal never complete entries in another one.
+     */
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+    /**
+     * Entries not completed: the id of the entry to the offset and the size of the entry.
+     */
+    @Nonnull
+    private final SortedMap<Long, int[]> incomplete = new TreeMap<Long, int[]>();
+    @CheckForNull
+    private List<Entry> recovered;
+
+    private NotificationJournal(@Nonnull File path, @Nonnull RandomAccessFile file, @Nonnull MappedByteBuffer buffer) {
+        this.path = path;
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Open a journal, creating it if not exists.
+     *
+     * @param path the file of the journal
+     * @param capacity the size of the file in bytes. Existing files are not shrunk.
+     * @param sync whether to flush notifications to the storage shortly after appended.
+     *     Otherwise they are flushed only when the journal is closed.
+     * @return the journal
+     * @throws IOException failed to open the file or the file is not a journal.
+     */
+    @Nonnull
+    public static NotificationJournal open(@Nonnull File path, int capacity, boolean sync) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            long size = Math.max(Math.max(capacity, MIN_CAPACITY), file.length());
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("%s is too large", path));
+            }
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            NotificationJournal journal = new NotificationJournal(path, file, buffer);
+            journal.load(path);
+            if (sync) {
+                journal.startFlusher();
+            }
+            return journal;
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        } catch (RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private void load(@Nonnull File path) throws IOException {
+        int magic = buffer.getInt(MAGIC_POS);
+        if (magic == 0) {
+            // new file
+            buffer.putInt(MAGIC_POS, MAGIC);
+            buffer.putInt(VERSION_POS, VERSION);
+            checkpoint = DATA_START;
+            write = DATA_START;
+            writeHeader();
+            buffer.force();
+            recovered = Collections.emptyList();
+            return;
+        }
+        if (magic != MAGIC || buffer.getInt(VERSION_POS) != VERSION) {
+            throw new IOException(String.format("%s is not a journal of notifications", path));
+        }
+        checkpoint = buffer.getInt(CHECKPOINT_POS);
+        write = buffer.getInt(WRITE_POS);
+        if (checkpoint < DATA_START || write < checkpoint || write > buffer.capacity()) {
+            throw new IOException(String.format("%s is broken", path));
+        }
+        List<Entry> entries = new ArrayList<Entry>();
+        int pos = checkpoint;
+        while (pos < write) {
+            int size = readSize(pos);
+            Entry e = (size > 0) ? readEntry(NEXT_ID.getAndIncrement(), pos, size) : null;
+            if (e == null) {
+                // Discard broken entries.
+                write = pos;
+                writeHeader();
+                break;
+            }
+            if (buffer.get(pos + 4) == PENDING) {
+                entries.add(e);
+                incomplete.put(e.getId(), new int[]{pos, size});
+            }
+            pos += size;
+        }
+        recovered = entries;
+    }
+
+    private void writeHeader() {
+        buffer.putInt(CHECKPOINT_POS, checkpoint);
+        buffer.putInt(WRITE_POS, write);
+    }
+
+    private synchronized void startFlusher() {
+        Thread t = new Thread(String.format("Git status trigger journal flusher for %s", path)) {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+        t.setDaemon(true);
+        flusher = t;
+        t.start();
+    }
+
+    /**
+     * Flush appended notifications until the journal is closed.
+     */
+    private void flush() {
+        Thread current = Thread.currentThread();
+        while (true) {
+            MappedByteBuffer b;
+            synchronized (this) {
+                try {
+                    while (!dirty && flusher == current) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (flusher != current) {
+                    return;
+                }
+                dirty = false;
+                b = buffer;
+            }
+            // outside the lock not to block appending.
+            b.force();
+            try {
+                Thread.sleep(FLUSH_INTERVAL);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Append a notification.
+     *
+     * @param n the notification
+     * @return the id of the entry. {@code -1} if the journal is full.
+     * @throws IOException failed to write
+     */
+    public synchronized long append(@Nonnull Notification n) throws IOException {
+        byte[] record = encode(n, System.currentTimeMillis());
+        int size = RECORD_HEADER + record.length;
+        if (size > buffer.capacity() - write) {
+            compact();
+            if (size > buffer.capacity() - write) {
+                return -1;
+            }
+        }
+        long id = NEXT_ID.getAndIncrement();
+        buffer.position(write);
+        buffer.putInt(record.length);
+        buffer.put(PENDING);
+        buffer.put(record);
+        incomplete.put(id, new int[]{write, size});
+        write += size;
+        buffer.putInt(WRITE_POS, write);
+        if (flusher != null && !dirty) {
+            dirty = true;
+            notifyAll();
+        }
+        return id;
+    }
+
+    /**
+     * Mark an entry dispatched.
+     *
+     * @param id the id of the entry
+     */
+    public synchronized void complete(long id) {
+        int[] entry = incomplete.remove(id);
+        if (entry == null) {
+            return;
+        }
+        buffer.put(entry[0] + 4, COMPLETED);
+        if (incomplete.isEmpty()) {
+            // Nothing to keep: restart from the beginning of the data area.
+            checkpoint = DATA_START;
+            write = DATA_START;
+        } else {
+            checkpoint = incomplete.get(incomplete.firstKey())[0];
+        }
+        writeHeader();
+    }
+
+    /**
+     * Write entries not completed to a new file and replace the journal with it,
+     * discarding completed entries between them.
+     *
+     * The journal is left as is if failed,
+     * so that a crash while compacting never breaks entries.
+     *
+     * @throws IOException failed to write or replace the file
+     */
+    private void compact() throws IOException {
+        File tmp = new File(path.getPath() + ".tmp");
+        RandomAccessFile newFile = new RandomAccessFile(tmp, "rw");
+        MappedByteBuffer newBuffer;
+        int[] offsets = new int[incomplete.size()];
+        int dest = DATA_START;
+        try {
+            newFile.setLength(0);
+            newBuffer = newFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, buffer.capacity());
+            newBuffer.putInt(MAGIC_POS, MAGIC);
+            newBuffer.putInt(VERSION_POS, VERSION);
+            int i = 0;
+            for (int[] entry: incomplete.values()) {
+                byte[] data = new byte[entry[1]];
+                buffer.position(entry[0]);
+                buffer.get(data);
+                newBuffer.position(dest);
+                newBuffer.put(data);
+                offsets[i++] = dest;
+                dest += entry[1];
+            }
+            newBuffer.putInt(CHECKPOINT_POS, DATA_START);
+            newBuffer.putInt(WRITE_POS, dest);
+            newBuffer.force();
+            if (!tmp.renameTo(path)) {
+                throw new IOException(String.format("Failed to replace %s with %s", path, tmp));
+            }
+        } catch (IOException e) {
+            newFile.close();
+            tmp.delete();
+            throw e;
+        }
+        file.close();
+        file = newFile;
+        buffer = newBuffer;
+        int i = 0;
+        for (int[] entry: incomplete.values()) {
+            entry[0] = offsets[i++];
+        }
+        checkpoint = DATA_START;
+        write = dest;
+    }
+
+    /**
+     * Entries not completed when the journal was opened.
+     *
+     * They are still counted as not completed,
+     * and must be passed to {@link #complete(long)} after dispatched.
+     * Returns an empty list after the first call.
+     *
+     * @return entries to dispatch again
+     */
+    @Nonnull
+    public synchronized List<Entry> recover() {
+        List<Entry> ret = recovered;
+        recovered = Collections.emptyList();
+        return (ret != null) ? ret : Collections.<Entry>emptyList();
+    }
+
+    /**
+     * @return the number of entries not completed
+     */
+    public synchronized int getPendingCount() {
+        return incomplete.size();
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    public synchronized int getCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Flush and close the journal.
+     *
+     * @throws IOException failed to close the file
+     */
+    public synchronized void close() throws IOException {
+        flusher = null;
+        notifyAll();
+        buffer.force();
+        file.close();
+    }
+
+    @Nonnull
+    private static byte[] encode(@Nonnull Notification n, long timestamp) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(timestamp);
+        writeString(out, n.getUri());
+        out.writeInt(n.getBranches().length);
+        for (String branch: n.getBranches()) {
+            writeString(out, branch);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(@Nonnull DataOutputStream out, @Nonnull String s) throws IOException {
+        byte[] b = s.getBytes(CHARSET);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    /**
+     * @param pos offset of the entry
+     * @return the size of the entry. {@code 0} if broken.
+     */
+    private int readSize(int pos) {
+        if (write - pos < RECORD_HEADER) {
+            return 0;
+        }
+        int len = buffer.getInt(pos);
+        return (len >= 16 && len <= write - pos - RECORD_HEADER) ? len + RECORD_HEADER : 0;
+    }
+
+    /**
+     * @param id the id for the entry
+     * @param pos offset of the entry
+     * @param size the size of the entry
+     * @return the entry. {@code null} if broken.
+     */
+    @CheckForNull
+    private Entry readEntry(long id, int pos, int size) {
+        try {
+            buffer.position(pos + RECORD_HEADER);
+            buffer.limit(pos + size);
+            long timestamp = buffer.getLong();
+            String uri = readString();
+            int count = buffer.getInt();
+            if (count < 0 || count > size) {
+                return null;
+            }
+            String[] branches = new String[count];
+            for (int i = 0; i < count; ++i) {
+                branches[i] = readString();
+            }
+            return new Entry(id, timestamp, new Notification(uri, branches));
+        } catch (BufferUnderflowException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            buffer.limit(buffer.capacity());
+        }
+    }
+
+    @Nonnull
+    private String readString() throws IOException {
+        int len = buffer.getInt();
+        if (len < 0 || len > buffer.remaining()) {
+            throw new IOException("Broken string");
+        }
+        byte[] b = new byte[len];
+        buffer.get(b);
+        return new String(b, CHARSET);
+    }
+
+    /**
+     * A notification in the journal.
+     */
+    public static class Entry {
+        private final long id;
+        private final long timestamp;
+        @Nonnull
+        private final Notification notification;
+
+        private Entry(long id, long timestamp, @Nonnull Notification notification) {
+            this.id = id;
+            this.timestamp = timestamp;
+            this.notification = notification;
+        }
+
+        /**
+         * @return the id to pass to {@link NotificationJournal#complete(long)}
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * @return when the notification was appended
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return the notification
+         */
+        @Nonnull
+        public Notification getNotification() {
+            return notification;
+        }
+    }
+}
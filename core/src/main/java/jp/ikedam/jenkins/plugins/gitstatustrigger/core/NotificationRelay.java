@@ -0,0 +1,514 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Forwards notifications to peer controllers in batches.
+ *
+ * Each peer publishes URIs of repositories it subscribes to in {@link #SUBSCRIPTIONS_PATH},
+ * and only notifications for them are forwarded to the peer.
+ * Subscriptions are fetched periodically, and notifications are forwarded
+ * to peers whose subscriptions are not known.
+ *
+ * Notifications for a peer are merged with {@link NotificationCoalescer},
+ * and posted to {@link #NOTIFY_PATH} in one request
+ * when the batch size is reached or the flush interval passes.
+ * Failed requests are retried with exponential backoff,
+ * and given up after the maximum number of retries.
+ */
+public class NotificationRelay {
+    private static final Logger LOG = Logger.getLogger(NotificationRelay.class.getName());
+    private static final String CHARSET = "UTF-8";
+
+    /**
+     * Path of peers listing subscribed URIs, one per line.
+     */
+    public static final String SUBSCRIPTIONS_PATH = "git-status-trigger/subscriptions";
+
+    /**
+     * Path of peers accepting notifications.
+     */
+    public static final String NOTIFY_PATH = "git-status-trigger/notifyCommits";
+
+    /**
+     * Header holding the shared secret.
+     */
+    public static final String SECRET_HEADER = "X-Git-Status-Trigger-Relay-Secret";
+
+    /**
+     * Header to tell peers not to relay notifications again.
+     */
+    public static final String RELAYED_HEADER = "X-Git-Status-Trigger-Relayed";
+
+    @Nonnull
+    private final List<Peer> peers;
+    @CheckForNull
+    private final String secret;
+
+    private volatile int batchSize = 100;
+    private volatile long flushInterval = 1000;
+    private volatile int maxRetries = 5;
+    private volatile long retryInterval = 1000;
+    private volatile long refreshInterval = 5 * 60 * 1000;
+    private volatile int timeout = 10 * 1000;
+
+    @Nonnull
+    private final Object lock = new Object();
+    private boolean running = false;
+    @CheckForNull
+    private Thread thread = null;
+
+    /**
+     * @param peerUrls root URLs of peers
+     * @param secret the secret shared with peers. {@code null} not to send.
+     */
+    public NotificationRelay(@Nonnull List<String> peerUrls, @CheckForNull String secret) {
+        List<Peer> peers = new ArrayList<Peer>(peerUrls.size());
+        for (String url: peerUrls) {
+            peers.add(new Peer(url.endsWith("/") ? url : url + "/"));
+        }
+        this.peers = Collections.unmodifiableList(peers);
+        this.secret = secret;
+    }
+
+    /**
+     * @param batchSize number of repositories to post without waiting for the flush interval
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @param flushInterval milliseconds to wait for notifications to post together
+     */
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = Math.max(1, flushInterval);
+    }
+
+    /**
+     * @param maxRetries number of retries before giving up a batch
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = Math.max(0, maxRetries);
+    }
+
+    /**
+     * @param retryInterval milliseconds to wait before the first retry. Doubled for each retry.
+     */
+    public void setRetryInterval(long retryInterval) {
+        this.retryInterval = Math.max(1, retryInterval);
+    }
+
+    /**
+     * @param refreshInterval milliseconds to fetch subscriptions of peers again
+     */
+    public void setRefreshInterval(long refreshInterval) {
+        this.refreshInterval = Math.max(1, refreshInterval);
+    }
+
+    /**
+     * @param timeout milliseconds to wait for connecting and reading responses
+     */
+    public void setTimeout(int timeout) {
+        this.timeout = Math.max(0, timeout);
+    }
+
+    /**
+     * @return peers
+     */
+    @Nonnull
+    public List<Peer> getPeers() {
+        return peers;
+    }
+
+    /**
+     * Queue a notification for peers subscribing the repository.
+     *
+     * @param n the notification
+     */
+    public void offer(@Nonnull Notification n) {
+        String uri = RepositoryUris.normalize(n.getUri());
+        boolean full = false;
+        for (Peer p: peers) {
+            if (p.accepts(uri)) {
+                p.pending.add(n);
+                if (p.pending.size() >= batchSize) {
+                    full = true;
+                }
+            }
+        }
+        if (full) {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Start the thread forwarding notifications.
+     */
+    public void start() {
+        synchronized (lock) {
+            if (thread != null) {
+                return;
+            }
+            running = true;
+            Thread t = new Thread("Git status trigger relay") {
+                @Override
+                public void run() {
+                    NotificationRelay.this.run();
+                }
+            };
+            t.setDaemon(true);
+            thread = t;
+            t.start();
+        }
+    }
+
+    /**
+     * Stop the thread forwarding notifications. Notifications not forwarded yet are discarded.
+     *
+     * @throws InterruptedException interrupted while waiting for the thread to stop
+     */
+    public void stop() throws InterruptedException {
+        Thread t;
+        synchronized (lock) {
+            running = false;
+            t = thread;
+            thread = null;
+            lock.notifyAll();
+        }
+        if (t != null) {
+            t.join(timeout * 2L + 1000);
+        }
+    }
+
+    private boolean isRunning() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    private void run() {
+        long nextRefresh = 0;
+        long nextFlush = 0;
+        while (isRunning()) {
+            long now = System.currentTimeMillis();
+            if (now >= nextRefresh) {
+                refreshSubscriptions();
+                nextRefresh = now + refreshInterval;
+            }
+            boolean due = (now >= nextFlush);
+            if (due) {
+                nextFlush = now + flushInterval;
+            }
+            for (Peer p: peers) {
+                flush(p, due, now);
+            }
+            synchronized (lock) {
+                if (!running) {
+                    break;
+                }
+                long wait = Math.max(1, Math.min(nextFlush, nextRefresh) - System.currentTimeMillis());
+                try {
+                    lock.wait(wait);
+                } catch (InterruptedException e) {
+                    LOG.log(Level.WARNING, "Interrupted, relay stops", e);
+                    running = false;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetch subscriptions of all peers.
+     *
+     * Peers failed to fetch keep previous subscriptions.
+     */
+    public void refreshSubscriptions() {
+        for (Peer p: peers) {
+            try {
+                p.subscriptions = fetchSubscriptions(p);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, String.format("Failed to fetch subscriptions of %s", p.getUrl()), e);
+                p.lastError = e.toString();
+            }
+        }
+    }
+
+    /**
+     * @param p the peer
+     * @return URIs the peer subscribes to, including wildcards.
+     *     {@code null} if the peer doesn't publish subscriptions.
+     * @throws IOException failed to fetch
+     */
+    @CheckForNull
+    private SubscriptionIndex<String> fetchSubscriptions(@Nonnull Peer p) throws IOException {
+        HttpURLConnection conn = open(p.getUrl() + SUBSCRIPTIONS_PATH);
+        try {
+            int code = conn.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_FOUND) {
+                return null;
+            }
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException(String.format("Unexpected response: HTTP %d", code));
+            }
+            SubscriptionIndex.Builder<String> uris = new SubscriptionIndex.Builder<String>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), CHARSET));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.length() > 0) {
+                        uris.add(line, line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            return uris.build();
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private void flush(@Nonnull Peer p, boolean due, long now) {
+        if (p.batch == null) {
+            int pending = p.pending.size();
+            if (pending <= 0 || (!due && pending < batchSize)) {
+                return;
+            }
+            p.batch = p.pending.drain();
+        }
+        if (now < p.nextAttempt) {
+            return;
+        }
+        List<Notification> batch = p.batch;
+        try {
+            post(p, batch);
+            p.sentCount.addAndGet(batch.size());
+            p.batch = null;
+            p.failures = 0;
+            p.nextAttempt = 0;
+        } catch (IOException e) {
+            p.lastError = e.toString();
+            ++p.failures;
+            if (p.failures > maxRetries) {
+                LOG.log(
+                    Level.WARNING,
+                    String.format(
+                        "Gave up forwarding %d notifications to %s after %d retries",
+                        batch.size(),
+                        p.getUrl(),
+                        maxRetries
+                    ),
+                    e
+                );
+                p.droppedCount.addAndGet(batch.size());
+                p.batch = null;
+                p.failures = 0;
+                p.nextAttempt = 0;
+            } else {
+                LOG.log(
+                    Level.FINE,
+                    String.format("Failed to forward notifications to %s. Will retry.", p.getUrl()),
+                    e
+                );
+                // no more than 2^16 times of the interval
+                p.nextAttempt = now + (retryInterval << Math.min(p.failures - 1, 16));
+            }
+        }
+    }
+
+    private void post(@Nonnull Peer p, @Nonnull List<Notification> batch) throws IOException {
+        byte[] body = toJson(batch).getBytes(CHARSET);
+        HttpURLConnection conn = open(p.getUrl() + NOTIFY_PATH);
+        try {
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            conn.setFixedLengthStreamingMode(body.length);
+            conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+            conn.setRequestProperty(RELAYED_HEADER, "true");
+            OutputStream out = conn.getOutputStream();
+            try {
+                out.write(body);
+            } finally {
+                out.close();
+            }
+            int code = conn.getResponseCode();
+            if (code / 100 != 2) {
+                throw new IOException(String.format("Unexpected response: HTTP %d", code));
+            }
+            InputStream in = conn.getInputStream();
+            try {
+                byte[] buf = new byte[4096];
+                while (in.read(buf) >= 0) {
+                    // discard
+                }
+            } finally {
+                in.close();
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    @Nonnull
+    private HttpURLConnection open(@Nonnull String url) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection)new URL(url).openConnection();
+        conn.setConnectTimeout(timeout);
+        conn.setReadTimeout(timeout);
+        conn.setUseCaches(false);
+        if (secret != null) {
+            conn.setRequestProperty(SECRET_HEADER, secret);
+        }
+        return conn;
+    }
+
+    /**
+     * @param batch notifications
+     * @return JSON accepted by {@link #NOTIFY_PATH}
+     */
+    @Nonnull
+    static String toJson(@Nonnull List<Notification> batch) {
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = 0; i < batch.size(); ++i) {
+            Notification n = batch.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"url\":");
+            JsonStrings.append(sb, n.getUri());
+            sb.append(",\"branches\":[");
+            String[] branches = n.getBranches();
+            for (int j = 0; j < branches.length; ++j) {
+                if (j > 0) {
+                    sb.append(',');
+                }
+                JsonStrings.append(sb, branches[j]);
+            }
+            sb.append("]}");
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    /**
+     * A controller to forward notifications to.
+     */
+    public static class Peer {
+        @Nonnull
+        private final String url;
+        @Nonnull
+        private final NotificationCoalescer pending = new NotificationCoalescer();
+        @CheckForNull
+        private volatile SubscriptionIndex<String> subscriptions = null;
+        @Nonnull
+        private final AtomicLong sentCount = new AtomicLong();
+        @Nonnull
+        private final AtomicLong droppedCount = new AtomicLong();
+        @CheckForNull
+        private volatile String lastError = null;
+
+        // accessed only from the relay thread
+        @CheckForNull
+        private List<Notification> batch = null;
+        private int failures = 0;
+        private long nextAttempt = 0;
+
+        private Peer(@Nonnull String url) {
+            this.url = url;
+        }
+
+        private boolean accepts(@Nonnull String normalizedUri) {
+            SubscriptionIndex<String> s = subscriptions;
+            return s == null || !s.lookup(normalizedUri).isEmpty();
+        }
+
+        /**
+         * @return the root URL, ending with a slash
+         */
+        @Nonnull
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * @return the number of URIs the peer subscribes to. {@code -1} if not known.
+         */
+        public int getSubscriptionCount() {
+            SubscriptionIndex<String> s = subscriptions;
+            return (s != null) ? s.getUris().size() : -1;
+        }
+
+        /**
+         * @return the number of repositories waiting to be forwarded, not including those being retried
+         */
+        public int getPendingCount() {
+            return pending.size();
+        }
+
+        /**
+         * @return the number of merged notifications forwarded
+         */
+        public long getSentCount() {
+            return sentCount.get();
+        }
+
+        /**
+         * @return the number of merged notifications given up
+         */
+        public long getDroppedCount() {
+            return droppedCount.get();
+        }
+
+        /**
+         * @return the last error in communicating with the peer. {@code null} if none.
+         */
+        @CheckForNull
+        public String getLastError() {
+            return lastError;
+        }
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Parses push webhook payloads of GitHub, GitLab and Gitea (and Gogs).
+ *
+ * Reads the payload as a stream and keeps only the pushed ref and URLs of the repository.
+ * Other values, like the list of commits, are skipped without building objects.
+ *
+ * Only pushes to branches are reported.
+ * Pushes of tags and deletions of branches don't have commits to build.
+ * Only URLs to clone the repository are reported,
+ * as Git SCM configurations never have URLs of web pages of the repository.
+ */
+public class PushPayloadParser {
+    private static final String BRANCH_PREFIX = "refs/heads/";
+
+    /**
+     * Properties holding URLs to clone the repository.
+     */
+    private static final Set<String> URL_PATHS = new HashSet<String>(Arrays.asList(
+        // GitHub, Gitea
+        "repository.clone_url",
+        "repository.ssh_url",
+        "repository.git_url",
+        // GitLab
+        "repository.git_http_url",
+        "repository.git_ssh_url",
+        "project.git_http_url",
+        "project.git_ssh_url"
+    ));
+    private static final String REF_PATH = "ref";
+    /**
+     * Set to true when the branch is deleted (GitHub)
+     */
+    private static final String DELETED_PATH = "deleted";
+    /**
+     * The commit the ref points to after the push, all zeros when the branch is deleted (GitLab).
+     * Used only when there's no {@link #DELETED_PATH}.
+     */
+    private static final String AFTER_PATH = "after";
+    private static final Set<String> CONTAINER_PATHS = new HashSet<String>(Arrays.asList(
+        "repository",
+        "project"
+    ));
+
+    @Nonnull
+    private final Reader in;
+    private int peeked = -2;
+    @CheckForNull
+    private String ref;
+    @CheckForNull
+    private Boolean deleted;
+    @CheckForNull
+    private String after;
+    @Nonnull
+    private final Set<String> urls = new LinkedHashSet<String>();
+
+    private PushPayloadParser(@Nonnull Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Parse a push payload.
+     *
+     * @param in payload in JSON
+     * @return notifications for each URL of the pushed repository.
+     *     Empty if the payload is not for a push to a branch (e.g. ping events, tags, deletions).
+     * @throws IOException failed to read the payload or the payload is malformed.
+     */
+    @Nonnull
+    public static List<Notification> parse(@Nonnull Reader in) throws IOException {
+        PushPayloadParser parser = new PushPayloadParser(
+            (in instanceof BufferedReader) ? in : new BufferedReader(in)
+        );
+        parser.parsePayload();
+        return parser.toNotifications();
+    }
+
+    @Nonnull
+    private List<Notification> toNotifications() {
+        List<Notification> notifications = new ArrayList<Notification>();
+        if (ref == null || !ref.startsWith(BRANCH_PREFIX) || isDeleted()) {
+            return notifications;
+        }
+        String branch = ref.substring(BRANCH_PREFIX.length());
+        for (String url: urls) {
+            notifications.add(new Notification(url, branch));
+        }
+        return notifications;
+    }
+
+    private boolean isDeleted() {
+        if (deleted != null) {
+            return deleted.booleanValue();
+        }
+        if (after == null || after.length() == 0) {
+            return false;
+        }
+        for (int i = 0; i < after.length(); ++i) {
+            if (after.charAt(i) != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void parsePayload() throws IOException {
+        if (skipWhitespaces() != '{') {
+            throw error("Expected an object");
+        }
+        parseObject("");
+        if (skipWhitespaces() != -1) {
+            throw error("Unexpected content after the payload");
+        }
+    }
+
+    /**
+     * Parse an object, picking values in interest.
+     *
+     * @param prefix path of this object followed by ".", or "" for the top-level object.
+     */
+    private void parseObject(@Nonnull String prefix) throws IOException {
+        expect('{');
+        if (skipWhitespaces() == '}') {
+            read();
+            return;
+        }
+        while (true) {
+            if (skipWhitespaces() != '"') {
+                throw error("Expected a property name");
+            }
+            String path = prefix + readString();
+            if (skipWhitespaces() != ':') {
+                throw error("Expected ':'");
+            }
+            read();
+            int c = skipWhitespaces();
+            if (c == '"' && (REF_PATH.equals(path) || AFTER_PATH.equals(path) || URL_PATHS.contains(path))) {
+                String value = readString();
+                if (REF_PATH.equals(path)) {
+                    ref = value;
+                } else if (AFTER_PATH.equals(path)) {
+                    after = value;
+                } else if (value.length() > 0) {
+                    urls.add(value);
+                }
+            } else if (c != '"' && c != '{' && c != '[' && DELETED_PATH.equals(path)) {
+                deleted = Boolean.valueOf("true".equals(readLiteral()));
+            } else if (c == '{' && CONTAINER_PATHS.contains(path)) {
+                parseObject(path + ".");
+            } else {
+                skipValue();
+            }
+            c = skipWhitespaces();
+            read();
+            if (c == '}') {
+                return;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    /**
+     * Skip a value. Nested values are skipped without recursion.
+     */
+    private void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            int c = skipWhitespaces();
+            switch (c) {
+            case -1:
+                throw error("Unexpected end of the payload");
+            case '{':
+            case '[':
+                read();
+                ++depth;
+                break;
+            case '}':
+            case ']':
+                if (depth == 0) {
+                    throw error("Unexpected '" + (char)c + "'");
+                }
+                read();
+                --depth;
+                break;
+            case '"':
+                skipString();
+                break;
+            case ',':
+            case ':':
+                if (depth == 0) {
+                    throw error("Unexpected '" + (char)c + "'");
+                }
+                read();
+                break;
+            default:
+                skipLiteral();
+                break;
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Skip numbers, true, false and null.
+     */
+    private void skipLiteral() throws IOException {
+        readLiteral();
+    }
+
+    /**
+     * Read numbers, true, false and null.
+     */
+    @Nonnull
+    private String readLiteral() throws IOException {
+        int c = peek();
+        if (!isLiteralChar(c)) {
+            throw error("Unexpected character '" + (char)c + "'");
+        }
+        StringBuilder sb = new StringBuilder();
+        while (isLiteralChar(peek())) {
+            sb.append((char)read());
+        }
+        return sb.toString();
+    }
+
+    private static boolean isLiteralChar(int c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || c == '-' || c == '+' || c == '.' || c == 'E';
+    }
+
+    private void skipString() throws IOException {
+        expect('"');
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw error("Unterminated string");
+            }
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                if (read() == -1) {
+                    throw error("Unterminated string");
+                }
+            }
+        }
+    }
+
+    @Nonnull
+    private String readString() throws IOException {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = read();
+            switch (c) {
+            case -1:
+                throw error("Unterminated string");
+            case '"':
+                return sb.toString();
+            case '\\':
+                sb.append(readEscaped());
+                break;
+            default:
+                sb.append((char)c);
+                break;
+            }
+        }
+    }
+
+    private char readEscaped() throws IOException {
+        int c = read();
+        switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+            return (char)c;
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            int code = 0;
+            for (int i = 0; i < 4; ++i) {
+                int digit = Character.digit(read(), 16);
+                if (digit < 0) {
+                    throw error("Invalid unicode escape");
+                }
+                code = code * 16 + digit;
+            }
+            return (char)code;
+        default:
+            throw error("Invalid escape");
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        if (read() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    private int skipWhitespaces() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+            read();
+        }
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = in.read();
+        }
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        peeked = -2;
+        return c;
+    }
+
+    @Nonnull
+    private static IOException error(@Nonnull String message) {
+        return new IOException(String.format("Malformed push payload: %s", message));
+    }
+}
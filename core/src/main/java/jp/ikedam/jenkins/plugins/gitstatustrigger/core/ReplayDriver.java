@@ -0,0 +1,199 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Replays captured notifications at the original or accelerated speed,
+ * and measures throughput and latencies.
+ *
+ * The latency of a notification is the time from when it should be dispatched
+ * according to the capture to when the dispatch finishes.
+ * It includes the time waiting for a free thread, so that overloads show up in latencies
+ * instead of slowing down the replay.
+ */
+public class ReplayDriver {
+    /**
+     * Dispatches a replayed notification.
+     */
+    public interface Dispatcher {
+        /**
+         * @param n the notification
+         * @throws Exception failed to dispatch. Counted as a failure.
+         */
+        void dispatch(@Nonnull Notification n) throws Exception;
+    }
+
+    @Nonnull
+    private final Dispatcher dispatcher;
+    private final int threads;
+    private final double speed;
+
+    /**
+     * @param dispatcher where to dispatch notifications
+     * @param threads number of threads to dispatch notifications
+     * @param speed how fast to replay. 1 for the original speed, 10 for 10 times faster.
+     *     0 to replay as fast as possible.
+     */
+    public ReplayDriver(@Nonnull Dispatcher dispatcher, int threads, double speed) {
+        this.dispatcher = dispatcher;
+        this.threads = Math.max(1, threads);
+        this.speed = Math.max(0, speed);
+    }
+
+    /**
+     * Replay notifications and wait for all of them to finish.
+     *
+     * @param captured notifications in the order of time
+     * @return the result
+     * @throws InterruptedException interrupted while replaying
+     */
+    @Nonnull
+    public Report replay(@Nonnull List<CapturedNotification> captured) throws InterruptedException {
+        final long[] latencies = new long[captured.size()];
+        final AtomicInteger failures = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            long firstTimestamp = captured.isEmpty() ? 0 : captured.get(0).getTimestamp();
+            for (int i = 0; i < captured.size(); ++i) {
+                final int index = i;
+                final Notification n = captured.get(i).getNotification();
+                long due = System.nanoTime();
+                if (speed > 0) {
+                    long offset = (long)(TimeUnit.MILLISECONDS.toNanos(
+                        captured.get(i).getTimestamp() - firstTimestamp
+                    ) / speed);
+                    due = start + Math.max(0, offset);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                }
+                final long scheduled = due;
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            dispatcher.dispatch(n);
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                        }
+                        latencies[index] = System.nanoTime() - scheduled;
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+            // wait
+        }
+        return new Report(latencies, failures.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * The result of a replay.
+     */
+    public static class Report {
+        @Nonnull
+        private final long[] latencies;
+        private final int failures;
+        private final long elapsedNanos;
+
+        Report(@Nonnull long[] latencies, int failures, long elapsedNanos) {
+            this.latencies = latencies.clone();
+            Arrays.sort(this.latencies);
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return the number of replayed notifications
+         */
+        public int getCount() {
+            return latencies.length;
+        }
+
+        /**
+         * @return the number of notifications failed to dispatch
+         */
+        public int getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return nanoseconds to replay all notifications
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return notifications per second
+         */
+        public double getThroughput() {
+            return (elapsedNanos > 0) ? latencies.length * 1e9 / elapsedNanos : 0;
+        }
+
+        /**
+         * @param percentile 0 to 100
+         * @return the latency at the percentile in nanoseconds. 0 if no notifications.
+         */
+        public long getLatencyNanos(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int)Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.min(Math.max(index, 0), latencies.length - 1)];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return String.format(
+                "%d notifications (%d failed) in %.1f ms: %.1f notifications/s,"
+                + " latency p50=%.3f ms p90=%.3f ms p99=%.3f ms max=%.3f ms",
+                getCount(),
+                getFailures(),
+                elapsedNanos / 1e6,
+                getThroughput(),
+                getLatencyNanos(50) / 1e6,
+                getLatencyNanos(90) / 1e6,
+                getLatencyNanos(99) / 1e6,
+                getLatencyNanos(100) / 1e6
+            );
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Utilities for URIs of repositories.
+ */
+public class RepositoryUris {
+    /**
+     * Suffix of URIs matching all repositories under them,
+     * e.g. {@code https://git.example.com/platform/*}.
+     */
+    public static final String WILDCARD_SUFFIX = "/*";
+
+    private RepositoryUris() {
+    }
+
+    /**
+     * @param uri URI of repositories
+     * @return whether {@code uri} matches all repositories under it
+     */
+    public static boolean isWildcard(@Nonnull String uri) {
+        return uri.length() > WILDCARD_SUFFIX.length() && uri.endsWith(WILDCARD_SUFFIX);
+    }
+
+    /**
+     * @param wildcard URI matching all repositories under it
+     * @return the URI repositories are under, with a trailing slash.
+     *     e.g. {@code https://git.example.com/platform/} for {@code https://git.example.com/platform/*}.
+     */
+    @Nonnull
+    public static String getWildcardPrefix(@Nonnull String wildcard) {
+        return wildcard.substring(0, wildcard.length() - WILDCARD_SUFFIX.length() + 1);
+    }
+
+    /**
+     * Test whether a repository is under a wildcard URI.
+     *
+     * Compares exactly, like URIs of repositories.
+     * The repository must be a child or a descendant, not the prefix itself.
+     *
+     * @param prefix the prefix returned from {@link #getWildcardPrefix(String)}
+     * @param uri URI of the repository
+     * @return whether matches
+     */
+    public static boolean isUnder(@Nonnull String prefix, @Nonnull String uri) {
+        return uri.length() > prefix.length() && uri.startsWith(prefix);
+    }
+
+    /**
+     * Normalize the URI of a repository to look up subscriptions.
+     *
+     * Scheme and host are lower-cased and trailing slashes are removed,
+     * so that equivalent URIs are looked up with the same key.
+     * Normalized URIs are used only to find candidates:
+     * targets still compare URIs exactly.
+     *
+     * Returns {@code uri} itself if it is already normalized.
+     *
+     * @param uri URI of the repository
+     * @return normalized URI
+     */
+    @Nonnull
+    public static String normalize(@Nonnull String uri) {
+        int end = uri.length();
+        while (end > 1 && uri.charAt(end - 1) == '/') {
+            --end;
+        }
+        int hostStart;
+        int hostEnd;
+        int schemeEnd = uri.indexOf("://");
+        if (schemeEnd >= 0) {
+            // scheme://[user@]host[:port]/path
+            hostStart = schemeEnd + 3;
+            hostEnd = indexOf(uri, '/', hostStart, end);
+        } else {
+            // [user@]host:path (scp-like)
+            hostStart = 0;
+            hostEnd = indexOf(uri, ':', 0, end);
+            if (indexOf(uri, '/', 0, hostEnd) < hostEnd) {
+                // a local path
+                hostEnd = 0;
+            }
+        }
+        int at = uri.lastIndexOf('@', hostEnd - 1);
+        if (at >= hostStart) {
+            hostStart = at + 1;
+        }
+        if (end == uri.length()
+            && !hasUpperCase(uri, 0, Math.max(schemeEnd, 0))
+            && !hasUpperCase(uri, hostStart, hostEnd)
+        ) {
+            return uri;
+        }
+        StringBuilder sb = new StringBuilder(end);
+        if (schemeEnd >= 0) {
+            sb.append(uri.substring(0, schemeEnd).toLowerCase(Locale.ENGLISH));
+            sb.append(uri, schemeEnd, hostStart);
+        } else {
+            sb.append(uri, 0, hostStart);
+        }
+        sb.append(uri.substring(hostStart, hostEnd).toLowerCase(Locale.ENGLISH));
+        sb.append(uri, hostEnd, end);
+        return sb.toString();
+    }
+
+    private static int indexOf(@Nonnull String s, char c, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static boolean hasUpperCase(@Nonnull String s, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            if (Character.isUpperCase(s.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * A timed operation in handling notifications, started with {@link Tracer#start(String)}.
+ *
+ * Not thread-safe: a span should be used only in the thread started it.
+ */
+public class Span {
+    @Nonnull
+    private final Tracer tracer;
+    @CheckForNull
+    private final Span parent;
+    @Nonnull
+    private final String name;
+    @Nonnull
+    private final String traceId;
+    @Nonnull
+    private final String spanId;
+    private final long startNanos;
+    private long endNanos = -1;
+    @Nonnull
+    private final Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+    @CheckForNull
+    private String error = null;
+    /**
+     * The current span of the thread when this span started.
+     */
+    @CheckForNull
+    Span previous = null;
+
+    Span(
+        @Nonnull Tracer tracer,
+        @CheckForNull Span parent,
+        @Nonnull String name,
+        @Nonnull String traceId,
+        @Nonnull String spanId,
+        long startNanos
+    ) {
+        this.tracer = tracer;
+        this.parent = parent;
+        this.name = name;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * @param key name of the attribute
+     * @param value string value. {@code null} is ignored.
+     * @return this span
+     */
+    @Nonnull
+    public Span setAttribute(@Nonnull String key, @CheckForNull String value) {
+        if (value != null) {
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * @param key name of the attribute
+     * @param value integer value
+     * @return this span
+     */
+    @Nonnull
+    public Span setAttribute(@Nonnull String key, long value) {
+        attributes.put(key, value);
+        return this;
+    }
+
+    /**
+     * @param key name of the attribute
+     * @param value boolean value
+     * @return this span
+     */
+    @Nonnull
+    public Span setAttribute(@Nonnull String key, boolean value) {
+        attributes.put(key, value);
+        return this;
+    }
+
+    /**
+     * Mark this span failed.
+     *
+     * @param t the cause of the failure
+     * @return this span
+     */
+    @Nonnull
+    public Span setError(@Nonnull Throwable t) {
+        this.error = t.toString();
+        return this;
+    }
+
+    /**
+     * Finish this span and export it.
+     *
+     * Does nothing if already finished.
+     */
+    public void end() {
+        if (endNanos >= 0) {
+            return;
+        }
+        endNanos = tracer.nowNanos();
+        tracer.end(this);
+    }
+
+    @CheckForNull
+    Span getParent() {
+        return parent;
+    }
+
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    @Nonnull
+    public String getTraceId() {
+        return traceId;
+    }
+
+    @Nonnull
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * @return ID of the parent span. {@code null} for a root span.
+     */
+    @CheckForNull
+    public String getParentSpanId() {
+        return (parent != null) ? parent.getSpanId() : null;
+    }
+
+    /**
+     * @return when started, in nanoseconds since the epoch
+     */
+    public long getStartEpochNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return when finished, in nanoseconds since the epoch. -1 if not finished.
+     */
+    public long getEndEpochNanos() {
+        return endNanos;
+    }
+
+    /**
+     * @return attributes, of {@link String}, {@link Long} or {@link Boolean}
+     */
+    @Nonnull
+    public Map<String, Object> getAttributes() {
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    /**
+     * @return the description of the failure. {@code null} if not failed.
+     */
+    @CheckForNull
+    public String getError() {
+        return error;
+    }
+}
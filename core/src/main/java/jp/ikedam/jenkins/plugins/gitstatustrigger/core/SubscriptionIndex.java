@@ -0,0 +1,185 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Finds subscribers of a repository.
+ *
+ * Subscribers are grouped by normalized URIs of repositories they subscribe,
+ * so a lookup costs the same regardless of the number of subscribers.
+ * Subscribers of all repositories under a URI (e.g. {@code https://git.example.com/platform/*})
+ * are looked up with {@link UriPrefixTrie}, costing the depth of the URI.
+ * Subscribers still have to test notifications themselves,
+ * as normalized URIs are only for finding candidates.
+ *
+ * Instances are immutable: create a new one with {@link Builder} when subscriptions change.
+ *
+ * @param <S> type of subscribers
+ */
+public class SubscriptionIndex<S> {
+    @Nonnull
+    private final Map<String, List<S>> subscribers;
+    @Nonnull
+    private final UriPrefixTrie<S> wildcards;
+    @Nonnull
+    private final Set<String> uris;
+    private final int subscriberCount;
+
+    private SubscriptionIndex(
+        @Nonnull Map<String, List<S>> subscribers,
+        @Nonnull UriPrefixTrie<S> wildcards,
+        @Nonnull Set<String> uris,
+        int subscriberCount
+    ) {
+        this.subscribers = subscribers;
+        this.wildcards = wildcards;
+        this.uris = uris;
+        this.subscriberCount = subscriberCount;
+    }
+
+    /**
+     * @param <S> type of subscribers
+     * @return an index without subscribers
+     */
+    @Nonnull
+    public static <S> SubscriptionIndex<S> empty() {
+        return new Builder<S>().build();
+    }
+
+    /**
+     * Look up subscribers of a repository.
+     *
+     * @param uri URI of the repository
+     * @return subscribers of the exact URI in the order they were added,
+     *     followed by subscribers of URIs the repository is under. Never modify the list.
+     */
+    @Nonnull
+    public List<S> lookup(@Nonnull String uri) {
+        String key = RepositoryUris.normalize(uri);
+        List<S> found = subscribers.get(key);
+        if (found == null) {
+            found = Collections.emptyList();
+        }
+        if (wildcards.isEmpty()) {
+            return found;
+        }
+        return wildcards.lookup(key, found);
+    }
+
+    /**
+     * @return normalized URIs of subscribed repositories, including wildcards
+     */
+    @Nonnull
+    public Set<String> getUris() {
+        return uris;
+    }
+
+    /**
+     * @return the number of distinct subscribers
+     */
+    public int getSubscriberCount() {
+        return subscriberCount;
+    }
+
+    /**
+     * Builds {@link SubscriptionIndex}
+     *
+     * @param <S> type of subscribers
+     */
+    public static class Builder<S> {
+        @Nonnull
+        private final Map<String, List<S>> subscribers = new LinkedHashMap<String, List<S>>();
+        @Nonnull
+        private final Map<String, List<S>> wildcards = new LinkedHashMap<String, List<S>>();
+        @Nonnull
+        private final Map<S, Boolean> distinct = new IdentityHashMap<S, Boolean>();
+
+        /**
+         * Add a subscription.
+         *
+         * Adding the same subscriber to the same repository more than once has no effect.
+         *
+         * @param uri URI of the subscribed repository,
+         *     or a wildcard to subscribe all repositories under it (see {@link RepositoryUris#isWildcard(String)})
+         * @param subscriber the subscriber
+         * @return this builder
+         */
+        @Nonnull
+        public Builder<S> add(@Nonnull String uri, @Nonnull S subscriber) {
+            Map<String, List<S>> map = subscribers;
+            String key;
+            if (RepositoryUris.isWildcard(uri)) {
+                map = wildcards;
+                key = RepositoryUris.normalize(uri.substring(0, uri.length() - RepositoryUris.WILDCARD_SUFFIX.length()));
+            } else {
+                key = RepositoryUris.normalize(uri);
+            }
+            List<S> list = map.get(key);
+            if (list == null) {
+                list = new ArrayList<S>();
+                map.put(key, list);
+            }
+            for (S s: list) {
+                if (s == subscriber) {
+                    return this;
+                }
+            }
+            list.add(subscriber);
+            distinct.put(subscriber, Boolean.TRUE);
+            return this;
+        }
+
+        /**
+         * @return the index
+         */
+        @Nonnull
+        public SubscriptionIndex<S> build() {
+            Map<String, List<S>> built = new LinkedHashMap<String, List<S>>();
+            Set<String> uris = new LinkedHashSet<String>(subscribers.keySet());
+            for (Map.Entry<String, List<S>> e: subscribers.entrySet()) {
+                built.put(e.getKey(), Collections.unmodifiableList(new ArrayList<S>(e.getValue())));
+            }
+            UriPrefixTrie<S> trie = new UriPrefixTrie<S>();
+            for (Map.Entry<String, List<S>> e: wildcards.entrySet()) {
+                for (S s: e.getValue()) {
+                    trie.add(e.getKey(), s);
+                }
+                uris.add(e.getKey() + RepositoryUris.WILDCARD_SUFFIX);
+            }
+            return new SubscriptionIndex<S>(built, trie, Collections.unmodifiableSet(uris), distinct.size());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Starts {@link Span}s and passes finished ones to a {@link SpanExporter}.
+ *
+ * A span started in a thread becomes the parent of spans started later in the same thread
+ * until it ends. Spans in other threads can be linked with {@link #start(String, Span)}.
+ *
+ * Thread-safe.
+ */
+public class Tracer {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(Tracer.class.getName());
+
+    @Nonnull
+    private final SpanExporter exporter;
+    @Nonnull
+    private final ThreadLocal<Span> current = new ThreadLocal<Span>();
+    @Nonnull
+    private final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+    private final long baseEpochNanos;
+    private final long baseNanoTime;
+
+    /**
+     * @param exporter where to write finished spans
+     */
+    public Tracer(@Nonnull SpanExporter exporter) {
+        this.exporter = exporter;
+        this.baseEpochNanos = System.currentTimeMillis() * 1000000L;
+        this.baseNanoTime = System.nanoTime();
+    }
+
+    /**
+     * Start a span, as a child of the current span of this thread.
+     *
+     * @param name name of the operation
+     * @return the started span. Must be ended with {@link Span#end()}.
+     */
+    @Nonnull
+    public Span start(@Nonnull String name) {
+        return start(name, current.get());
+    }
+
+    /**
+     * Start a span with the specified parent.
+     *
+     * @param name name of the operation
+     * @param parent the parent span, possibly in another thread. {@code null} to start a new trace.
+     * @return the started span. Must be ended with {@link Span#end()}.
+     */
+    @Nonnull
+    public Span start(@Nonnull String name, @CheckForNull Span parent) {
+        Random r = random.get();
+        String traceId = (parent != null) ? parent.getTraceId() : toHex(r.nextLong()) + toHex(r.nextLong());
+        Span span = new Span(this, parent, name, traceId, toHex(r.nextLong()), nowNanos());
+        span.previous = current.get();
+        current.set(span);
+        return span;
+    }
+
+    /**
+     * @return the current span of this thread. {@code null} if none.
+     */
+    @CheckForNull
+    public Span current() {
+        return current.get();
+    }
+
+    long nowNanos() {
+        return baseEpochNanos + (System.nanoTime() - baseNanoTime);
+    }
+
+    void end(@Nonnull Span span) {
+        if (current.get() == span) {
+            if (span.previous != null) {
+                current.set(span.previous);
+            } else {
+                current.remove();
+            }
+        }
+        span.previous = null;
+        try {
+            exporter.export(span);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to export a span", e);
+        }
+    }
+
+    /**
+     * Close the exporter.
+     *
+     * @throws IOException failed to flush spans
+     */
+    public void close() throws IOException {
+        exporter.close();
+    }
+
+    @Nonnull
+    private static String toHex(long v) {
+        String s = Long.toHexString(v);
+        return "0000000000000000".substring(s.length()) + s;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Receives events of handling notifications, to record them in a profiler.
+ *
+ * Implementations should do nothing but checking whether recording
+ * when not recording: arguments are passed as they are,
+ * and durations are measured with objects returned from {@code begin*} methods.
+ */
+public interface TriggerEvents {
+    /**
+     * @param uri URI of the repository. Converted to a string only when recording.
+     * @param branches branches update occurred
+     * @param relayed whether forwarded from another controller
+     */
+    void notificationReceived(@Nonnull Object uri, @Nonnull String[] branches, boolean relayed);
+
+    /**
+     * @return an object to pass to {@link #endIndexRebuild(Object, int)}. {@code null} if not recording.
+     */
+    @CheckForNull
+    Object beginIndexRebuild();
+
+    /**
+     * @param event the object returned from {@link #beginIndexRebuild()}
+     * @param triggers number of triggers indexed
+     */
+    void endIndexRebuild(@CheckForNull Object event, int triggers);
+
+    /**
+     * @return an object to pass to {@link #endMatch(Object, String, int, int, boolean)}.
+     *     {@code null} if not recording.
+     */
+    @CheckForNull
+    Object beginMatch();
+
+    /**
+     * @param event the object returned from {@link #beginMatch()}
+     * @param uri URI of the repository, in the string representation
+     * @param candidates number of triggers tested
+     * @param matched number of triggers matched
+     * @param cacheHit whether matched triggers were found in the match cache
+     */
+    void endMatch(@CheckForNull Object event, @Nonnull String uri, int candidates, int matched, boolean cacheHit);
+
+    /**
+     * @return an object to pass to {@link #endBuildScheduled(Object, String, String, boolean)}.
+     *     {@code null} if not recording.
+     */
+    @CheckForNull
+    Object beginBuildScheduled();
+
+    /**
+     * @param event the object returned from {@link #beginBuildScheduled()}
+     * @param job full name of the job
+     * @param branch the branch matched
+     * @param held whether held until the queue gets less loaded
+     */
+    void endBuildScheduled(@CheckForNull Object event, @Nonnull String job, @CheckForNull String branch, boolean held);
+}
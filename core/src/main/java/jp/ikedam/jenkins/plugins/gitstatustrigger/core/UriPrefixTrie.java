@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Finds subscribers of all repositories under URIs,
+ * keyed by segments of normalized URIs separated with slashes
+ * (the scheme, the host and each directory of the path).
+ *
+ * A lookup walks the segments of the URI of a repository,
+ * so costs the depth of the URI regardless of the number of subscriptions.
+ *
+ * Not thread-safe while adding: publish after all subscriptions are added.
+ *
+ * @param <S> type of subscribers
+ */
+class UriPrefixTrie<S> {
+    private static class Node<S> {
+        @CheckForNull
+        private Map<String, Node<S>> children = null;
+        @Nonnull
+        private List<S> subscribers = Collections.emptyList();
+
+        @Nonnull
+        private Node<S> getOrCreateChild(@Nonnull String segment) {
+            if (children == null) {
+                children = new HashMap<String, Node<S>>();
+            }
+            Node<S> child = children.get(segment);
+            if (child == null) {
+                child = new Node<S>();
+                children.put(segment, child);
+            }
+            return child;
+        }
+
+        @CheckForNull
+        private Node<S> getChild(@Nonnull String segment) {
+            return (children != null) ? children.get(segment) : null;
+        }
+    }
+
+    @Nonnull
+    private final Node<S> root = new Node<S>();
+    private boolean empty = true;
+
+    /**
+     * Add a subscriber of repositories under a URI.
+     *
+     * Adding the same subscriber to the same URI more than once has no effect.
+     *
+     * @param prefix normalized URI repositories are under, without the trailing slash
+     * @param subscriber the subscriber
+     */
+    void add(@Nonnull String prefix, @Nonnull S subscriber) {
+        Node<S> node = root;
+        int start = 0;
+        while (true) {
+            int end = prefix.indexOf('/', start);
+            if (end < 0) {
+                node = node.getOrCreateChild(prefix.substring(start));
+                break;
+            }
+            node = node.getOrCreateChild(prefix.substring(start, end));
+            start = end + 1;
+        }
+        for (S s: node.subscribers) {
+            if (s == subscriber) {
+                return;
+            }
+        }
+        if (node.subscribers.isEmpty()) {
+            node.subscribers = new ArrayList<S>();
+        }
+        node.subscribers.add(subscriber);
+        empty = false;
+    }
+
+    /**
+     * @return whether no subscribers are added
+     */
+    boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Look up subscribers of a repository.
+     *
+     * @param uri normalized URI of the repository
+     * @param exact subscribers of the exact URI, to merge with
+     * @return {@code exact} followed by subscribers of URIs the repository is under,
+     *     each subscriber only once. {@code exact} itself if none found.
+     */
+    @Nonnull
+    List<S> lookup(@Nonnull String uri, @Nonnull List<S> exact) {
+        List<S> found = null;
+        Map<S, Boolean> distinct = null;
+        Node<S> node = root;
+        int start = 0;
+        // The last segment is the repository itself, not a URI it is under.
+        for (int end = uri.indexOf('/'); end >= 0; end = uri.indexOf('/', start)) {
+            node = node.getChild(uri.substring(start, end));
+            if (node == null) {
+                break;
+            }
+            start = end + 1;
+            if (node.subscribers.isEmpty()) {
+                continue;
+            }
+            if (found == null) {
+                found = new ArrayList<S>(exact.size() + node.subscribers.size());
+                distinct = new IdentityHashMap<S, Boolean>();
+                for (S s: exact) {
+                    found.add(s);
+                    distinct.put(s, Boolean.TRUE);
+                }
+            }
+            for (S s: node.subscribers) {
+                if (distinct.put(s, Boolean.TRUE) == null) {
+                    found.add(s);
+                }
+            }
+        }
+        return (found != null) ? Collections.unmodifiableList(found) : exact;
+    }
+}
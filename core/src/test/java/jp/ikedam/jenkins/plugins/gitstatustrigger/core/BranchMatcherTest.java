@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link BranchMatcher}
+ */
+public class BranchMatcherTest {
+    @Test
+    public void testExact() throws Exception {
+        BranchMatcher m = new BranchMatcher("master");
+        assertTrue(m.matches("master"));
+        assertFalse(m.matches("master2"));
+        assertFalse(m.matches("maste"));
+        assertFalse(m.matches(""));
+    }
+
+    @Test
+    public void testWildcard() throws Exception {
+        assertTrue(new BranchMatcher("*").matches("develop"));
+        assertTrue(new BranchMatcher("*").matches(""));
+        assertTrue(new BranchMatcher("feature/*").matches("feature/newfeature/test"));
+        assertFalse(new BranchMatcher("feature/*").matches("some/feature/newfeature"));
+        assertTrue(new BranchMatcher("*/test").matches("feature/newfeature/test"));
+        assertFalse(new BranchMatcher("*/test").matches("feature/test/newfeature"));
+        assertTrue(new BranchMatcher("feature/*/test").matches("feature/newfeature/test"));
+        assertFalse(new BranchMatcher("feature/*/test").matches("feature/newfeature"));
+        assertTrue(new BranchMatcher("feature/*/test").matches("feature//test"));
+        assertFalse(new BranchMatcher("feature/*/test").matches("feature/test"));
+    }
+
+    @Test
+    public void testMultipleWildcards() throws Exception {
+        BranchMatcher m = new BranchMatcher("bug*fix*");
+        assertTrue(m.matches("bugfix"));
+        assertTrue(m.matches("bug-1234-fix-later"));
+        assertFalse(m.matches("fixbug"));
+        assertTrue(new BranchMatcher("a*b*a").matches("aba"));
+        assertFalse(new BranchMatcher("a*b*a").matches("ab"));
+        assertFalse(new BranchMatcher("ab*ba").matches("aba"));
+        assertTrue(new BranchMatcher("**").matches("anything"));
+    }
+
+    @Test
+    public void testRegexCharacters() throws Exception {
+        assertTrue(new BranchMatcher("release-1.0.*").matches("release-1.0.3"));
+        assertFalse(new BranchMatcher("release-1.0.*").matches("release-1x0.3"));
+        assertTrue(new BranchMatcher("[a]+*").matches("[a]+b"));
+    }
+
+    @Test
+    public void testParseList() throws Exception {
+        BranchMatcher[] matchers = BranchMatcher.parseList(" master , feature/* ,,develop");
+        assertEquals(3, matchers.length);
+        assertEquals("master", matchers[0].getPattern());
+        assertEquals("feature/*", matchers[1].getPattern());
+        assertEquals("develop", matchers[2].getPattern());
+        assertEquals(0, BranchMatcher.parseList("").length);
+        assertEquals(0, BranchMatcher.parseList(null).length);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CaptureReader} and {@link CaptureWriter}
+ */
+public class CaptureReaderTest {
+    @Test
+    public void testRoundTrip() throws Exception {
+        StringWriter out = new StringWriter();
+        CaptureWriter w = new CaptureWriter(out, false);
+        w.write(1000L, new Notification("https://git.example.com/repo1.git", "master", "feature/a"));
+        w.write(1500L, new Notification("https://git.example.com/repo2.git"));
+        w.write(2000L, new Notification("weird\turi\\", "line\nbreak", "cr\r", ""));
+        w.close();
+
+        String capture = out.toString();
+        assertTrue(capture, capture.startsWith(CaptureWriter.HEADER + "\n"));
+        assertEquals(4, capture.split("\n").length);
+
+        List<CapturedNotification> read = CaptureReader.readAll(new StringReader(capture));
+        assertEquals(3, read.size());
+        assertEquals(1000L, read.get(0).getTimestamp());
+        assertEquals(
+            new Notification("https://git.example.com/repo1.git", "master", "feature/a"),
+            read.get(0).getNotification()
+        );
+        assertEquals(1500L, read.get(1).getTimestamp());
+        assertEquals(new Notification("https://git.example.com/repo2.git"), read.get(1).getNotification());
+        assertEquals(
+            new Notification("weird\turi\\", "line\nbreak", "cr\r", ""),
+            read.get(2).getNotification()
+        );
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        StringWriter out = new StringWriter();
+        CaptureWriter w = new CaptureWriter(out, true);
+        w.write(1000L, new Notification("uri"));
+        w.close();
+        assertEquals("1000\turi\n", out.toString());
+    }
+
+    @Test
+    public void testSkipComments() throws Exception {
+        CaptureReader r = new CaptureReader(new StringReader("# comment\n\n1\turi\tmaster\n"));
+        assertEquals(new Notification("uri", "master"), r.read().getNotification());
+        assertNull(r.read());
+        r.close();
+    }
+
+    private void assertMalformed(String capture) throws Exception {
+        try {
+            CaptureReader.readAll(new StringReader(capture));
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Malformed capture at line"));
+        }
+    }
+
+    @Test
+    public void testMalformed() throws Exception {
+        assertMalformed("1000\n");
+        assertMalformed("now\turi\n");
+        assertMalformed("1000\turi\\\n");
+        assertMalformed("1000\turi\\x\n");
+    }
+}
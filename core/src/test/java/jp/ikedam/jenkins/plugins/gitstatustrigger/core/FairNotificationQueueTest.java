@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link FairNotificationQueue}
+ */
+public class FairNotificationQueueTest {
+    private List<String> drainUris(FairNotificationQueue q) {
+        List<String> uris = new ArrayList<String>();
+        FairNotificationQueue.Entry e;
+        while ((e = q.poll()) != null) {
+            uris.add(e.getNotification().getUri());
+            q.done(e);
+        }
+        return uris;
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        FairNotificationQueue q = new FairNotificationQueue(100);
+        for (int i = 0; i < 5; ++i) {
+            q.offer(new Notification("monorepo", "branch" + i), -1);
+        }
+        q.offer(new Notification("repo1", "master"), -1);
+        q.offer(new Notification("repo2", "master"), -1);
+        q.offer(new Notification("repo1", "develop"), -1);
+        assertEquals(8, q.size());
+        assertEquals(3, q.getRepositoryCount());
+
+        assertEquals(
+            Arrays.asList("monorepo", "repo1", "repo2", "monorepo", "repo1", "monorepo", "monorepo", "monorepo"),
+            drainUris(q)
+        );
+        assertEquals(0, q.size());
+        assertEquals(0, q.getRepositoryCount());
+    }
+
+    @Test
+    public void testOrderInRepository() throws Exception {
+        FairNotificationQueue q = new FairNotificationQueue(100);
+        q.offer(new Notification("repo1", "master"), -1);
+        q.offer(new Notification("repo1", "develop"), -1);
+        FairNotificationQueue.Entry e = q.poll();
+        assertEquals(new Notification("repo1", "master"), e.getNotification());
+        q.done(e);
+        e = q.poll();
+        assertEquals(new Notification("repo1", "develop"), e.getNotification());
+        q.done(e);
+        assertNull(q.poll());
+    }
+
+    @Test
+    public void testBusyRepository() throws Exception {
+        FairNotificationQueue q = new FairNotificationQueue(100);
+        q.offer(new Notification("repo1", "master"), -1);
+        q.offer(new Notification("repo1", "develop"), -1);
+        q.offer(new Notification("repo2", "master"), -1);
+
+        FairNotificationQueue.Entry e1 = q.poll();
+        assertEquals(new Notification("repo1", "master"), e1.getNotification());
+        FairNotificationQueue.Entry e2 = q.poll();
+        assertEquals("repo2", e2.getNotification().getUri());
+        // repo1 is busy.
+        assertNull(q.poll());
+        assertNull(q.poll(10, TimeUnit.MILLISECONDS));
+        assertEquals(1, q.size());
+
+        q.done(e2);
+        assertNull(q.poll());
+        q.done(e1);
+        assertEquals(new Notification("repo1", "develop"), q.poll().getNotification());
+
+        // a repository emptied while busy is not taken until done.
+        FairNotificationQueue.Entry e3 = q.poll(10, TimeUnit.MILLISECONDS);
+        assertNull(e3);
+        q.offer(new Notification("repo1", "feature"), -1);
+        assertNull(q.poll());
+    }
+
+    @Test
+    public void testBacklogLimit() throws Exception {
+        FairNotificationQueue q = new FairNotificationQueue(2);
+        assertTrue(q.offer(new Notification("repo1", "b1"), 1));
+        assertTrue(q.offer(new Notification("repo1", "b2"), 2));
+        assertFalse(q.offer(new Notification("repo1", "b3", "b2"), 3));
+        assertFalse(q.offer(new Notification("repo1"), -1));
+        assertTrue(q.offer(new Notification("repo2", "b1"), 4));
+        assertEquals(3, q.size());
+        assertEquals(2, q.getMergedCount());
+
+        FairNotificationQueue.Entry e = q.poll();
+        assertEquals(new Notification("repo1", "b1"), e.getNotification());
+        assertTrue(Arrays.equals(new long[] {1}, e.getTags()));
+        q.done(e);
+        assertEquals("repo2", q.poll().getNotification().getUri());
+        e = q.poll();
+        assertEquals(new Notification("repo1", "b2", "b3"), e.getNotification());
+        assertTrue(Arrays.equals(new long[] {2, 3}, e.getTags()));
+    }
+
+    @Test
+    public void testPollWait() throws Exception {
+        final FairNotificationQueue q = new FairNotificationQueue(10);
+        assertNull(q.poll(10, TimeUnit.MILLISECONDS));
+
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                q.offer(new Notification("repo1"), -1);
+            }
+        };
+        t.start();
+        FairNotificationQueue.Entry e = q.poll(10, TimeUnit.SECONDS);
+        t.join();
+        assertEquals(new Notification("repo1"), e.getNotification());
+    }
+}
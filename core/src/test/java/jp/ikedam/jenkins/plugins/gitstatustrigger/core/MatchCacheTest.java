@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link MatchCache}
+ */
+public class MatchCacheTest {
+    @Test
+    public void testBranchSet() throws Exception {
+        MatchCache<String> cache = new MatchCache<String>(10);
+        assertNull(cache.get(1, "uri1", new String[] {"master", "develop"}));
+        cache.put(1, "uri1", new String[] {"master", "develop", "master"}, Arrays.asList("job1", "job2"));
+
+        assertEquals(Arrays.asList("job1", "job2"), cache.get(1, "uri1", new String[] {"develop", "master"}));
+        assertEquals(Arrays.asList("job1", "job2"), cache.get(1, "uri1", new String[] {"master", "develop"}));
+        assertEquals(
+            Arrays.asList("job1", "job2"),
+            cache.get(1, "uri1", new String[] {"develop", "develop", "master"})
+        );
+        assertNull(cache.get(1, "uri1", new String[] {"master"}));
+        assertNull(cache.get(1, "uri1", new String[] {"master", "develop", "feature"}));
+        assertNull(cache.get(1, "uri2", new String[] {"master", "develop"}));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void testNoBranches() throws Exception {
+        MatchCache<String> cache = new MatchCache<String>(10);
+        cache.put(1, "uri1", new String[0], Collections.<String>emptyList());
+        assertEquals(Collections.emptyList(), cache.get(1, "uri1", new String[0]));
+        assertNull(cache.get(1, "uri1", new String[] {""}));
+    }
+
+    @Test
+    public void testGeneration() throws Exception {
+        MatchCache<String> cache = new MatchCache<String>(10);
+        cache.put(1, "uri1", new String[] {"master"}, Arrays.asList("job1"));
+        assertEquals(Arrays.asList("job1"), cache.get(1, "uri1", new String[] {"master"}));
+
+        // a newer generation discards all results.
+        assertNull(cache.get(2, "uri1", new String[] {"master"}));
+        assertEquals(0, cache.size());
+
+        // results for older generations are ignored.
+        cache.put(1, "uri1", new String[] {"master"}, Arrays.asList("job1"));
+        assertEquals(0, cache.size());
+        assertNull(cache.get(1, "uri1", new String[] {"master"}));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        MatchCache<String> cache = new MatchCache<String>(2);
+        cache.put(1, "uri1", new String[0], Arrays.asList("job1"));
+        cache.put(1, "uri2", new String[0], Arrays.asList("job2"));
+        // uri1 is used more recently than uri2.
+        cache.get(1, "uri1", new String[0]);
+        cache.put(1, "uri3", new String[0], Arrays.asList("job3"));
+
+        assertEquals(2, cache.size());
+        assertEquals(Arrays.asList("job1"), cache.get(1, "uri1", new String[0]));
+        assertNull(cache.get(1, "uri2", new String[0]));
+        assertEquals(Arrays.asList("job3"), cache.get(1, "uri3", new String[0]));
+    }
+
+    @Test
+    public void testContains() throws Exception {
+        MatchCache<String> cache = new MatchCache<String>(2);
+        cache.put(1, "uri1", new String[] {"master", "develop"}, Arrays.asList("job1"));
+        cache.put(1, "uri2", new String[0], Arrays.asList("job2"));
+
+        assertTrue(cache.contains(1, "uri1", new String[] {"develop", "master"}));
+        assertFalse(cache.contains(1, "uri1", new String[] {"master"}));
+        assertFalse(cache.contains(2, "uri1", new String[] {"master", "develop"}));
+        // neither counted nor discarded.
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(2, cache.size());
+
+        // not used for the order of eviction.
+        cache.put(1, "uri3", new String[0], Arrays.asList("job3"));
+        assertFalse(cache.contains(1, "uri1", new String[] {"master", "develop"}));
+        assertTrue(cache.contains(1, "uri2", new String[0]));
+    }
+
+    @Test
+    public void testManyBranches() throws Exception {
+        String[] branches = new String[MatchCache.MAX_BRANCHES + 1];
+        for (int i = 0; i < branches.length; ++i) {
+            branches[i] = "branch" + i;
+        }
+        assertFalse(MatchCache.isCacheable(branches));
+        assertTrue(MatchCache.isCacheable(new String[] {"master"}));
+
+        MatchCache<String> cache = new MatchCache<String>(10);
+        cache.put(1, "uri1", branches, Arrays.asList("job1"));
+        assertEquals(0, cache.size());
+        assertNull(cache.get(1, "uri1", branches));
+    }
+}
@@ -22,51 +22,39 @@
  * THE SOFTWARE.
  */
 
-package jp.ikedam.jenkins.plugins.gitstatustrigger;
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
 
 import static org.junit.Assert.assertEquals;
 
-import org.junit.ClassRule;
-import org.junit.Test;
+import java.util.Arrays;
+import java.util.List;
 
-import hudson.util.FormValidation;
+import org.junit.Test;
 
 /**
- * Tests for {@link GitStatusTarget}
+ * Tests for {@link NotificationCoalescer}
  */
-public class GitStatusTargetTest {
-    @ClassRule
-    public static GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
-
-    private GitStatusTarget.DescriptorImpl getDescriptor() {
-        return (GitStatusTarget.DescriptorImpl)j.jenkins.getDescriptor(GitStatusTarget.class);
-    }
-
-    @Test
-    public void testDescriptorDoCheckUriOk() throws Exception {
-        GitStatusTarget.DescriptorImpl d = getDescriptor();
-
-        assertEquals(
-            FormValidation.Kind.OK,
-            d.doCheckUri("https://github.com/ikedam/git-status-trigger-plugin").kind
-        );
-        assertEquals(
-            FormValidation.Kind.OK,
-            d.doCheckUri("git@github.com:ikedam/git-status-trigger-plugin.git").kind
-        );
-    }
-
+public class NotificationCoalescerTest {
     @Test
-    public void testDescriptorDoCheckUriNg() throws Exception {
-        GitStatusTarget.DescriptorImpl d = getDescriptor();
-
-        assertEquals(
-            FormValidation.Kind.ERROR,
-            d.doCheckUri("").kind
-        );
+    public void testMerge() throws Exception {
+        NotificationCoalescer c = new NotificationCoalescer();
+        c.add(new Notification("uri1", "master"));
+        c.add(new Notification("uri2"));
+        c.add(new Notification("uri1", "develop", "master"));
+        c.add(new Notification("uri1"));
+        assertEquals(4, c.getAddedCount());
+        assertEquals(2, c.size());
+
+        List<Notification> drained = c.drain();
         assertEquals(
-            FormValidation.Kind.ERROR,
-            d.doCheckUri("   ").kind
+            Arrays.asList(
+                new Notification("uri1", "master", "develop"),
+                new Notification("uri2")
+            ),
+            drained
         );
+        assertEquals(0, c.size());
+        assertEquals(0, c.getAddedCount());
+        assertEquals(0, c.drain().size());
     }
 }
@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link NotificationJournal}
+ */
+public class NotificationJournalTest {
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("journal", ".bin");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void testRecover() throws Exception {
+        NotificationJournal j = NotificationJournal.open(file, 0, true);
+        assertEquals(0, j.recover().size());
+        long id1 = j.append(new Notification("uri1", "master"));
+        j.append(new Notification("uri2"));
+        long id3 = j.append(new Notification("uri3", "develop"));
+        j.complete(id1);
+        j.complete(id3);
+        assertEquals(1, j.getPendingCount());
+        j.close();
+
+        j = NotificationJournal.open(file, 0, true);
+        List<NotificationJournal.Entry> entries = j.recover();
+        assertEquals(1, entries.size());
+        assertEquals(new Notification("uri2"), entries.get(0).getNotification());
+        assertTrue(entries.get(0).getTimestamp() > 0);
+        assertEquals(0, j.recover().size());
+
+        // recovered entries are still pending.
+        assertEquals(1, j.getPendingCount());
+        j.append(new Notification("uri4", "feature/\u00e9"));
+        for (NotificationJournal.Entry e: entries) {
+            j.complete(e.getId());
+        }
+        assertEquals(1, j.getPendingCount());
+        j.close();
+
+        j = NotificationJournal.open(file, 0, true);
+        entries = j.recover();
+        assertEquals(1, entries.size());
+        assertEquals(new Notification("uri4", "feature/\u00e9"), entries.get(0).getNotification());
+        j.complete(entries.get(0).getId());
+        j.close();
+
+        j = NotificationJournal.open(file, 0, true);
+        assertEquals(0, j.recover().size());
+        j.close();
+    }
+
+    @Test
+    public void testWrapAround() throws Exception {
+        NotificationJournal j = NotificationJournal.open(file, NotificationJournal.MIN_CAPACITY, false);
+        j.append(new Notification("pending", "master"));
+        for (int i = 0; i < 1000; ++i) {
+            long id = j.append(new Notification("uri" + i, "master"));
+            assertTrue(id >= 0);
+            j.complete(id);
+        }
+        assertEquals(NotificationJournal.MIN_CAPACITY, j.getCapacity());
+        j.close();
+        // compacted into a temporary file replacing the journal.
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        j = NotificationJournal.open(file, 0, false);
+        List<NotificationJournal.Entry> entries = j.recover();
+        assertEquals(1, entries.size());
+        assertEquals(new Notification("pending", "master"), entries.get(0).getNotification());
+        j.close();
+    }
+
+    @Test
+    public void testFull() throws Exception {
+        NotificationJournal j = NotificationJournal.open(file, NotificationJournal.MIN_CAPACITY, false);
+        long first = j.append(new Notification("uri", "master"));
+        int count = 1;
+        while (j.append(new Notification("uri" + count, "master")) >= 0) {
+            ++count;
+        }
+        assertEquals(count, j.getPendingCount());
+        j.complete(first);
+        assertTrue(j.append(new Notification("uri", "master")) >= 0);
+        j.close();
+    }
+
+    @Test
+    public void testNotJournal() throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write("Not a journal".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        try {
+            NotificationJournal.open(file, 0, false);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
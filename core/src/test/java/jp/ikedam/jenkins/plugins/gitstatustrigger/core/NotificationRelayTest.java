@@ -0,0 +1,264 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for {@link NotificationRelay}
+ */
+public class NotificationRelayTest {
+    private static final long TIMEOUT = 10000;
+
+    private final List<StubPeer> stubs = new ArrayList<StubPeer>();
+    private NotificationRelay relay;
+
+    /**
+     * A local stand-in for a peer controller.
+     */
+    private static class StubPeer {
+        private final HttpServer server;
+        private final String subscriptions;
+        private final AtomicInteger failuresToReturn;
+        private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        private final List<String> secrets = Collections.synchronizedList(new ArrayList<String>());
+        private final List<String> relayed = Collections.synchronizedList(new ArrayList<String>());
+
+        StubPeer(String subscriptions, int failuresToReturn) throws IOException {
+            this.subscriptions = subscriptions;
+            this.failuresToReturn = new AtomicInteger(failuresToReturn);
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/", new HttpHandler() {
+                public void handle(HttpExchange exchange) throws IOException {
+                    StubPeer.this.handle(exchange);
+                }
+            });
+            server.start();
+        }
+
+        String getUrl() {
+            return String.format("http://127.0.0.1:%d", server.getAddress().getPort());
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            secrets.add(exchange.getRequestHeaders().getFirst(NotificationRelay.SECRET_HEADER));
+            if (path.equals("/" + NotificationRelay.SUBSCRIPTIONS_PATH) && subscriptions != null) {
+                respond(exchange, 200, subscriptions);
+            } else if (path.equals("/" + NotificationRelay.NOTIFY_PATH)) {
+                String body = read(exchange.getRequestBody());
+                if (failuresToReturn.getAndDecrement() > 0) {
+                    respond(exchange, 503, "");
+                    return;
+                }
+                relayed.add(exchange.getRequestHeaders().getFirst(NotificationRelay.RELAYED_HEADER));
+                received.add(body);
+                respond(exchange, 200, "{\"results\":[]}");
+            } else {
+                respond(exchange, 404, "");
+            }
+        }
+
+        private static String read(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            int len;
+            while ((len = in.read(buf)) >= 0) {
+                out.write(buf, 0, len);
+            }
+            return out.toString("UTF-8");
+        }
+
+        private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+            byte[] b = body.getBytes("UTF-8");
+            exchange.sendResponseHeaders(code, (b.length > 0) ? b.length : -1);
+            OutputStream out = exchange.getResponseBody();
+            try {
+                out.write(b);
+            } finally {
+                out.close();
+            }
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        stubs.clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (relay != null) {
+            relay.stop();
+        }
+        for (StubPeer stub: stubs) {
+            stub.stop();
+        }
+    }
+
+    private StubPeer startStub(String subscriptions, int failuresToReturn) throws IOException {
+        StubPeer stub = new StubPeer(subscriptions, failuresToReturn);
+        stubs.add(stub);
+        return stub;
+    }
+
+    private NotificationRelay createRelay(String secret, StubPeer... peers) {
+        List<String> urls = new ArrayList<String>();
+        for (StubPeer p: peers) {
+            urls.add(p.getUrl());
+        }
+        NotificationRelay r = new NotificationRelay(urls, secret);
+        r.setFlushInterval(100);
+        r.setRetryInterval(10);
+        r.setTimeout(5000);
+        return r;
+    }
+
+    private static void waitFor(NotificationRelay.Peer peer, long sent, long dropped) throws InterruptedException {
+        long until = System.currentTimeMillis() + TIMEOUT;
+        while (peer.getSentCount() < sent || peer.getDroppedCount() < dropped) {
+            assertTrue("Timed out", System.currentTimeMillis() < until);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testForwardOnlySubscribed() throws Exception {
+        StubPeer peer1 = startStub("https://git.example.com/repo1.git\nhttps://GIT.example.com/repo2.git/\n", 0);
+        StubPeer peer2 = startStub("https://git.example.com/repo3.git\n", 0);
+        relay = createRelay("secret", peer1, peer2);
+        relay.refreshSubscriptions();
+        assertEquals(2, relay.getPeers().get(0).getSubscriptionCount());
+        assertEquals(1, relay.getPeers().get(1).getSubscriptionCount());
+
+        relay.offer(new Notification("https://git.example.com/repo1.git", "master"));
+        relay.offer(new Notification("https://git.example.com/repo2.git", "master"));
+        relay.offer(new Notification("https://git.example.com/repo1.git", "develop"));
+        relay.offer(new Notification("https://git.example.com/repo4.git", "master"));
+        relay.start();
+        waitFor(relay.getPeers().get(0), 2, 0);
+
+        assertEquals(1, peer1.received.size());
+        assertEquals(
+            "[{\"url\":\"https://git.example.com/repo1.git\",\"branches\":[\"master\",\"develop\"]},"
+            + "{\"url\":\"https://git.example.com/repo2.git\",\"branches\":[\"master\"]}]",
+            peer1.received.get(0)
+        );
+        assertEquals(Arrays.asList("true"), peer1.relayed);
+        for (String secret: peer1.secrets) {
+            assertEquals("secret", secret);
+        }
+        assertEquals(0, peer2.received.size());
+        assertEquals(0, relay.getPeers().get(1).getSentCount());
+    }
+
+    @Test
+    public void testForwardAllToUnknownPeer() throws Exception {
+        StubPeer peer = startStub(null, 0);
+        relay = createRelay(null, peer);
+        relay.refreshSubscriptions();
+        assertEquals(-1, relay.getPeers().get(0).getSubscriptionCount());
+
+        relay.offer(new Notification("https://git.example.com/repo1.git"));
+        relay.start();
+        waitFor(relay.getPeers().get(0), 1, 0);
+        assertEquals("[{\"url\":\"https://git.example.com/repo1.git\",\"branches\":[]}]", peer.received.get(0));
+        assertEquals(null, peer.secrets.get(0));
+    }
+
+    @Test
+    public void testBatchSize() throws Exception {
+        StubPeer peer = startStub(null, 0);
+        relay = createRelay(null, peer);
+        relay.setFlushInterval(60 * 60 * 1000);
+        relay.setBatchSize(2);
+        // offer before starting, not to flush only the first one at startup.
+        relay.offer(new Notification("https://git.example.com/repo1.git", "master"));
+        relay.offer(new Notification("https://git.example.com/repo2.git", "master"));
+        relay.start();
+        waitFor(relay.getPeers().get(0), 2, 0);
+        assertEquals(1, peer.received.size());
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        StubPeer peer = startStub(null, 2);
+        relay = createRelay(null, peer);
+        relay.offer(new Notification("https://git.example.com/repo1.git", "master"));
+        relay.start();
+        waitFor(relay.getPeers().get(0), 1, 0);
+        assertEquals(1, peer.received.size());
+        assertEquals(0, relay.getPeers().get(0).getDroppedCount());
+        assertNotNull(relay.getPeers().get(0).getLastError());
+    }
+
+    @Test
+    public void testGiveUp() throws Exception {
+        StubPeer peer = startStub(null, 3);
+        relay = createRelay(null, peer);
+        relay.setMaxRetries(2);
+        relay.offer(new Notification("https://git.example.com/repo1.git", "master"));
+        relay.start();
+        waitFor(relay.getPeers().get(0), 0, 1);
+
+        // following notifications are forwarded.
+        relay.offer(new Notification("https://git.example.com/repo2.git", "master"));
+        waitFor(relay.getPeers().get(0), 1, 1);
+        assertEquals("[{\"url\":\"https://git.example.com/repo2.git\",\"branches\":[\"master\"]}]", peer.received.get(0));
+    }
+
+    @Test
+    public void testToJson() throws Exception {
+        assertEquals(
+            "[{\"url\":\"a\\\"b\\\\c\",\"branches\":[\"x\\u000ay\"]}]",
+            NotificationRelay.toJson(Arrays.asList(new Notification("a\"b\\c", "x\ny")))
+        );
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PushPayloadParser}
+ */
+public class PushPayloadParserTest {
+    private List<Notification> parseResource(String name) throws IOException {
+        Reader in = new InputStreamReader(
+            getClass().getResourceAsStream(String.format("%s/%s", getClass().getSimpleName(), name)),
+            "UTF-8"
+        );
+        try {
+            return PushPayloadParser.parse(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void assertMalformed(String payload) {
+        try {
+            PushPayloadParser.parse(new StringReader(payload));
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Malformed"));
+            return;
+        }
+        throw new AssertionError("Expected to fail: " + payload);
+    }
+
+    @Test
+    public void testGitHub() throws Exception {
+        assertEquals(
+            Arrays.asList(
+                new Notification("git://github.com/Codertocat/Hello-World.git", "master"),
+                new Notification("git@github.com:Codertocat/Hello-World.git", "master"),
+                new Notification("https://github.com/Codertocat/Hello-World.git", "master")
+            ),
+            parseResource("github-push.json")
+        );
+    }
+
+    @Test
+    public void testGitHubPing() throws Exception {
+        assertEquals(0, parseResource("github-ping.json").size());
+    }
+
+    @Test
+    public void testGitLab() throws Exception {
+        assertEquals(
+            Arrays.asList(
+                new Notification("git@example.com:mike/diaspora.git", "feature/awesome"),
+                new Notification("http://example.com/mike/diaspora.git", "feature/awesome")
+            ),
+            parseResource("gitlab-push.json")
+        );
+    }
+
+    @Test
+    public void testGitLabDelete() throws Exception {
+        // GitLab reports deletions only with "after" of all zeros.
+        assertEquals(0, parseResource("gitlab-delete.json").size());
+    }
+
+    @Test
+    public void testGiteaTag() throws Exception {
+        // tags are not branches.
+        assertEquals(0, parseResource("gitea-push.json").size());
+    }
+
+    @Test
+    public void testGitea() throws Exception {
+        assertEquals(
+            Arrays.asList(
+                new Notification("ssh://gitea@localhost:2222/gitea/webhooks.git", "master"),
+                new Notification("http://localhost:3000/gitea/webhooks.git", "master")
+            ),
+            PushPayloadParser.parse(new StringReader(
+                "{\"ref\": \"refs/heads/master\", \"repository\": {"
+                + "\"html_url\": \"http://localhost:3000/gitea/webhooks\","
+                + "\"ssh_url\": \"ssh://gitea@localhost:2222/gitea/webhooks.git\","
+                + "\"clone_url\": \"http://localhost:3000/gitea/webhooks.git\""
+                + "}}"
+            ))
+        );
+    }
+
+    @Test
+    public void testDeleted() throws Exception {
+        assertEquals(
+            0,
+            PushPayloadParser.parse(new StringReader(
+                "{\"ref\": \"refs/heads/master\", \"deleted\": true,"
+                + " \"repository\": {\"clone_url\": \"https://example.com/repo.git\"}}"
+            )).size()
+        );
+        assertEquals(
+            1,
+            PushPayloadParser.parse(new StringReader(
+                "{\"ref\": \"refs/heads/master\", \"deleted\": false,"
+                + " \"repository\": {\"clone_url\": \"https://example.com/repo.git\"}}"
+            )).size()
+        );
+        // "deleted" takes precedence over "after".
+        assertEquals(
+            1,
+            PushPayloadParser.parse(new StringReader(
+                "{\"ref\": \"refs/heads/master\", \"deleted\": false,"
+                + " \"after\": \"0000000000000000000000000000000000000000\","
+                + " \"repository\": {\"clone_url\": \"https://example.com/repo.git\"}}"
+            )).size()
+        );
+    }
+
+    @Test
+    public void testEscapes() throws Exception {
+        assertEquals(
+            Arrays.asList(new Notification("https://example.com/a\"b/\u00e9", "x/y")),
+            PushPayloadParser.parse(new StringReader(
+                "{\"ref\":\"refs/heads/x\\/y\",\"repository\":{\"clone_url\":\"https://example.com/a\\\"b/\\u00e9\"}}"
+            ))
+        );
+    }
+
+    @Test
+    public void testMalformed() throws Exception {
+        assertMalformed("");
+        assertMalformed("[]");
+        assertMalformed("{\"ref\": \"refs/heads/master\"");
+        assertMalformed("{\"ref\": \"refs/heads/master}");
+        assertMalformed("{\"ref\" \"refs/heads/master\"}");
+        assertMalformed("{\"commits\": [1, 2}");
+        assertMalformed("{\"ref\": \"refs/heads/master\"} {}");
+        assertMalformed("{\"ref\": @}");
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ReplayDriver}
+ */
+public class ReplayDriverTest {
+    private List<CapturedNotification> createCapture(int count, long intervalMillis) {
+        List<CapturedNotification> capture = new ArrayList<CapturedNotification>();
+        for (int i = 0; i < count; ++i) {
+            capture.add(new CapturedNotification(
+                1000000L + i * intervalMillis,
+                new Notification(String.format("uri%d", i), "master")
+            ));
+        }
+        return capture;
+    }
+
+    @Test
+    public void testReplayAll() throws Exception {
+        final List<Notification> dispatched = Collections.synchronizedList(new ArrayList<Notification>());
+        List<CapturedNotification> capture = createCapture(100, 1000);
+        ReplayDriver driver = new ReplayDriver(new ReplayDriver.Dispatcher() {
+            public void dispatch(Notification n) throws Exception {
+                if (n.getUri().equals("uri50")) {
+                    throw new Exception("Failing for test");
+                }
+                dispatched.add(n);
+            }
+        }, 4, 0);
+        ReplayDriver.Report report = driver.replay(capture);
+        assertEquals(100, report.getCount());
+        assertEquals(1, report.getFailures());
+        assertEquals(99, dispatched.size());
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getLatencyNanos(50) <= report.getLatencyNanos(99));
+        assertTrue(report.getLatencyNanos(99) <= report.getLatencyNanos(100));
+        assertTrue(report.toString(), report.toString().startsWith("100 notifications (1 failed)"));
+    }
+
+    @Test
+    public void testSpeed() throws Exception {
+        // 10 notifications in 900 ms, replayed 3 times faster.
+        List<CapturedNotification> capture = createCapture(10, 100);
+        ReplayDriver driver = new ReplayDriver(new ReplayDriver.Dispatcher() {
+            public void dispatch(Notification n) throws Exception {
+            }
+        }, 1, 3);
+        ReplayDriver.Report report = driver.replay(capture);
+        assertEquals(10, report.getCount());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(report.getElapsedNanos());
+        assertTrue(String.format("elapsed %d ms", elapsed), elapsed >= 290);
+        assertTrue(String.format("elapsed %d ms", elapsed), elapsed < 900);
+    }
+
+    @Test
+    public void testLatencyIncludesWaiting() throws Exception {
+        // 5 notifications at once, each taking 50 ms on a single thread.
+        List<CapturedNotification> capture = createCapture(5, 0);
+        ReplayDriver driver = new ReplayDriver(new ReplayDriver.Dispatcher() {
+            public void dispatch(Notification n) throws Exception {
+                Thread.sleep(50);
+            }
+        }, 1, 1);
+        ReplayDriver.Report report = driver.replay(capture);
+        assertTrue(report.toString(), TimeUnit.NANOSECONDS.toMillis(report.getLatencyNanos(100)) >= 240);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        ReplayDriver driver = new ReplayDriver(new ReplayDriver.Dispatcher() {
+            public void dispatch(Notification n) throws Exception {
+            }
+        }, 1, 1);
+        ReplayDriver.Report report = driver.replay(new ArrayList<CapturedNotification>());
+        assertEquals(0, report.getCount());
+        assertEquals(0, report.getLatencyNanos(99));
+    }
+}
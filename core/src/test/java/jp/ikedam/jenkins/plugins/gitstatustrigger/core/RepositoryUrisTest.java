@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link RepositoryUris}
+ */
+public class RepositoryUrisTest {
+    @Test
+    public void testAlreadyNormalized() throws Exception {
+        String uri = "https://github.com/ikedam/git-status-trigger-plugin";
+        assertSame(uri, RepositoryUris.normalize(uri));
+        uri = "git@github.com:ikedam/git-status-trigger-plugin.git";
+        assertSame(uri, RepositoryUris.normalize(uri));
+        uri = "/srv/git/Repository.git";
+        assertSame(uri, RepositoryUris.normalize(uri));
+    }
+
+    @Test
+    public void testSchemeAndHost() throws Exception {
+        assertEquals(
+            "https://github.com/IKEDAM/Plugin",
+            RepositoryUris.normalize("HTTPS://GitHub.com/IKEDAM/Plugin")
+        );
+        assertEquals(
+            "ssh://User@github.com:22/IKEDAM/Plugin",
+            RepositoryUris.normalize("ssh://User@GitHub.com:22/IKEDAM/Plugin")
+        );
+        assertEquals(
+            "User@github.com:IKEDAM/Plugin.git",
+            RepositoryUris.normalize("User@GitHub.COM:IKEDAM/Plugin.git")
+        );
+    }
+
+    @Test
+    public void testTrailingSlashes() throws Exception {
+        assertEquals(
+            "https://github.com/ikedam/plugin",
+            RepositoryUris.normalize("https://github.com/ikedam/plugin//")
+        );
+        assertEquals(
+            "https://github.com",
+            RepositoryUris.normalize("https://GitHub.com/")
+        );
+        assertEquals("/", RepositoryUris.normalize("/"));
+    }
+
+    @Test
+    public void testWildcard() throws Exception {
+        assertTrue(RepositoryUris.isWildcard("https://git.example.com/platform/*"));
+        assertTrue(RepositoryUris.isWildcard("git@git.example.com:platform/*"));
+        assertFalse(RepositoryUris.isWildcard("https://git.example.com/platform/"));
+        assertFalse(RepositoryUris.isWildcard("https://git.example.com/platform*"));
+        assertFalse(RepositoryUris.isWildcard("/*"));
+
+        String prefix = RepositoryUris.getWildcardPrefix("https://git.example.com/platform/*");
+        assertEquals("https://git.example.com/platform/", prefix);
+        assertTrue(RepositoryUris.isUnder(prefix, "https://git.example.com/platform/repo.git"));
+        assertTrue(RepositoryUris.isUnder(prefix, "https://git.example.com/platform/group/repo.git"));
+        assertFalse(RepositoryUris.isUnder(prefix, "https://git.example.com/platform/"));
+        assertFalse(RepositoryUris.isUnder(prefix, "https://git.example.com/platform"));
+        assertFalse(RepositoryUris.isUnder(prefix, "https://git.example.com/platform2/repo.git"));
+        // compared exactly
+        assertFalse(RepositoryUris.isUnder(prefix, "https://git.example.com/Platform/repo.git"));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SubscriptionIndex}
+ */
+public class SubscriptionIndexTest {
+    @Test
+    public void testLookup() throws Exception {
+        SubscriptionIndex<String> index = new SubscriptionIndex.Builder<String>()
+            .add("https://github.com/ikedam/repo1", "job1")
+            .add("https://github.com/ikedam/repo2", "job2")
+            .add("https://github.com/ikedam/repo1", "job3")
+            .build();
+
+        assertEquals(Arrays.asList("job1", "job3"), index.lookup("https://github.com/ikedam/repo1"));
+        assertEquals(Arrays.asList("job2"), index.lookup("https://github.com/ikedam/repo2"));
+        assertEquals(Collections.emptyList(), index.lookup("https://github.com/ikedam/repo3"));
+        assertEquals(3, index.getSubscriberCount());
+        assertEquals(2, index.getUris().size());
+    }
+
+    @Test
+    public void testLookupNormalized() throws Exception {
+        SubscriptionIndex<String> index = new SubscriptionIndex.Builder<String>()
+            .add("https://GitHub.com/ikedam/repo1/", "job1")
+            .build();
+
+        assertEquals(Arrays.asList("job1"), index.lookup("https://github.com/ikedam/repo1"));
+        assertEquals(Collections.emptyList(), index.lookup("https://github.com/IKEDAM/repo1"));
+    }
+
+    @Test
+    public void testSubscribeTwice() throws Exception {
+        String job1 = new String("job1");
+        SubscriptionIndex<String> index = new SubscriptionIndex.Builder<String>()
+            .add("https://github.com/ikedam/repo1", job1)
+            .add("https://github.com/ikedam/repo1/", job1)
+            .add("https://github.com/ikedam/repo2", job1)
+            .build();
+
+        assertEquals(Arrays.asList("job1"), index.lookup("https://github.com/ikedam/repo1"));
+        assertEquals(1, index.getSubscriberCount());
+    }
+
+    @Test
+    public void testWildcard() throws Exception {
+        SubscriptionIndex<String> index = new SubscriptionIndex.Builder<String>()
+            .add("https://github.com/ikedam/repo1", "job1")
+            .add("https://github.com/ikedam/*", "job2")
+            .add("https://GitHub.com/*", "job3")
+            .add("https://github.com/ikedam/repo1", "job2")
+            .add("git@github.com:ikedam/*", "job4")
+            .build();
+
+        // exact subscribers first, and then from the shallowest.
+        assertEquals(Arrays.asList("job1", "job2", "job3"), index.lookup("https://github.com/ikedam/repo1"));
+        assertEquals(Arrays.asList("job3", "job2"), index.lookup("https://github.com/ikedam/repo2/"));
+        assertEquals(Arrays.asList("job3", "job2"), index.lookup("https://github.com/ikedam/group/repo3"));
+        assertEquals(Arrays.asList("job3"), index.lookup("https://github.com/ikedam"));
+        assertEquals(Arrays.asList("job3"), index.lookup("https://github.com/another/repo1"));
+        assertEquals(Collections.emptyList(), index.lookup("https://github.com"));
+        assertEquals(Collections.emptyList(), index.lookup("https://git.example.com/ikedam/repo1"));
+        assertEquals(Arrays.asList("job4"), index.lookup("git@github.com:ikedam/repo1"));
+        assertEquals(Collections.emptyList(), index.lookup("git@github.com:ikedam"));
+
+        assertEquals(4, index.getSubscriberCount());
+        assertEquals(
+            new HashSet<String>(Arrays.asList(
+                "https://github.com/ikedam/repo1",
+                "https://github.com/ikedam/*",
+                "https://github.com/*",
+                "git@github.com:ikedam/*"
+            )),
+            index.getUris()
+        );
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        SubscriptionIndex<String> index = SubscriptionIndex.empty();
+        assertEquals(Collections.emptyList(), index.lookup("https://github.com/ikedam/repo1"));
+        assertEquals(0, index.getSubscriberCount());
+    }
+}
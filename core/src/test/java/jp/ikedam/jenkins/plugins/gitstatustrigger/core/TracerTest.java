@@ -0,0 +1,146 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link Tracer} and {@link JsonLinesSpanExporter}
+ */
+public class TracerTest {
+    private static class RecordingExporter implements SpanExporter {
+        private final List<Span> spans = new ArrayList<Span>();
+
+        public synchronized void export(Span span) {
+            spans.add(span);
+        }
+
+        public void close() {
+        }
+    }
+
+    @Test
+    public void testNesting() throws Exception {
+        RecordingExporter exporter = new RecordingExporter();
+        Tracer tracer = new Tracer(exporter);
+
+        Span root = tracer.start("root");
+        Span child1 = tracer.start("child1");
+        assertSame(child1, tracer.current());
+        child1.end();
+        assertSame(root, tracer.current());
+        Span child2 = tracer.start("child2");
+        child2.end();
+        root.end();
+        assertNull(tracer.current());
+
+        assertEquals(3, exporter.spans.size());
+        assertSame(child1, exporter.spans.get(0));
+        assertSame(root, exporter.spans.get(2));
+        assertNull(root.getParentSpanId());
+        assertEquals(root.getSpanId(), child1.getParentSpanId());
+        assertEquals(root.getSpanId(), child2.getParentSpanId());
+        assertEquals(root.getTraceId(), child2.getTraceId());
+        assertEquals(32, root.getTraceId().length());
+        assertEquals(16, root.getSpanId().length());
+        assertTrue(root.getStartEpochNanos() <= child1.getStartEpochNanos());
+        assertTrue(child2.getEndEpochNanos() <= root.getEndEpochNanos());
+
+        // a new trace.
+        Span another = tracer.start("another");
+        another.end();
+        assertTrue(!another.getTraceId().equals(root.getTraceId()));
+    }
+
+    @Test
+    public void testParentInAnotherThread() throws Exception {
+        RecordingExporter exporter = new RecordingExporter();
+        final Tracer tracer = new Tracer(exporter);
+        final Span root = tracer.start("root");
+        final List<Span> children = new ArrayList<Span>();
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                Span child = tracer.start("child", root);
+                child.end();
+                children.add(child);
+                children.add(tracer.current());
+            }
+        };
+        t.start();
+        t.join();
+        root.end();
+
+        assertEquals(root.getTraceId(), children.get(0).getTraceId());
+        assertEquals(root.getSpanId(), children.get(0).getParentSpanId());
+        // the parent doesn't leak to the other thread.
+        assertNull(children.get(1));
+    }
+
+    @Test
+    public void testJsonLines() throws Exception {
+        StringWriter out = new StringWriter();
+        Tracer tracer = new Tracer(new JsonLinesSpanExporter(out));
+
+        Span root = tracer.start("notify").setAttribute("uri", "https://git.example.com/\"repo\".git");
+        Span child = tracer.start("schedule")
+            .setAttribute("job", "folder/job")
+            .setAttribute("candidates", 3)
+            .setAttribute("held", false)
+            .setError(new IllegalStateException("failed"));
+        child.end();
+        root.end();
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(
+            "{\"traceId\":\"" + root.getTraceId() + "\""
+            + ",\"spanId\":\"" + child.getSpanId() + "\""
+            + ",\"parentSpanId\":\"" + root.getSpanId() + "\""
+            + ",\"name\":\"schedule\""
+            + ",\"startTimeUnixNano\":\"" + child.getStartEpochNanos() + "\""
+            + ",\"endTimeUnixNano\":\"" + child.getEndEpochNanos() + "\""
+            + ",\"attributes\":["
+            + "{\"key\":\"job\",\"value\":{\"stringValue\":\"folder/job\"}},"
+            + "{\"key\":\"candidates\",\"value\":{\"intValue\":\"3\"}},"
+            + "{\"key\":\"held\",\"value\":{\"boolValue\":false}}"
+            + "]"
+            + ",\"status\":{\"code\":2,\"message\":\"java.lang.IllegalStateException: failed\"}"
+            + "}",
+            lines[0]
+        );
+        assertTrue(lines[1].contains("\"stringValue\":\"https://git.example.com/\\\"repo\\\".git\""));
+        assertTrue(!lines[1].contains("parentSpanId"));
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.jfr;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.TriggerEvents;
+
+/**
+ * Emits {@link TriggerEvents} as JDK Flight Recorder events.
+ *
+ * Events are allocated only to test whether enabled,
+ * which the JIT compiler eliminates when not recording.
+ */
+public class JfrTriggerEvents implements TriggerEvents {
+    private static final String CATEGORY = "Git Status Trigger";
+
+    @Name("jp.ikedam.gitstatustrigger.NotificationReceived")
+    @Label("Notification Received")
+    @Description("A push notification received from a git repository")
+    @Category({"Jenkins", CATEGORY})
+    static class NotificationReceivedEvent extends Event {
+        @Label("URI")
+        String uri;
+
+        @Label("Branches")
+        String branches;
+
+        @Label("Relayed")
+        @Description("Forwarded from another controller")
+        boolean relayed;
+    }
+
+    @Name("jp.ikedam.gitstatustrigger.IndexRebuild")
+    @Label("Index Rebuild")
+    @Description("Scanned jobs and rebuilt the index of triggers")
+    @Category({"Jenkins", CATEGORY})
+    static class IndexRebuildEvent extends Event {
+        @Label("Triggers")
+        int triggers;
+    }
+
+    @Name("jp.ikedam.gitstatustrigger.Match")
+    @Label("Match Evaluation")
+    @Description("Tested triggers for a notification and scheduled builds for matched ones")
+    @Category({"Jenkins", CATEGORY})
+    static class MatchEvent extends Event {
+        @Label("URI")
+        String uri;
+
+        @Label("Triggers Checked")
+        int candidates;
+
+        @Label("Triggers Matched")
+        int matched;
+
+        @Label("Match Cache Hit")
+        boolean cacheHit;
+    }
+
+    @Name("jp.ikedam.gitstatustrigger.BuildScheduled")
+    @Label("Build Scheduled")
+    @Description("Scheduled a build for a matched trigger")
+    @Category({"Jenkins", CATEGORY})
+    static class BuildScheduledEvent extends Event {
+        @Label("Job")
+        String job;
+
+        @Label("Branch")
+        String branch;
+
+        @Label("Held")
+        @Description("Held until the queue gets less loaded")
+        boolean held;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void notificationReceived(@Nonnull Object uri, @Nonnull String[] branches, boolean relayed) {
+        NotificationReceivedEvent e = new NotificationReceivedEvent();
+        if (!e.isEnabled()) {
+            return;
+        }
+        e.uri = uri.toString();
+        e.branches = String.join(",", branches);
+        e.relayed = relayed;
+        e.commit();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @CheckForNull
+    public Object beginIndexRebuild() {
+        IndexRebuildEvent e = new IndexRebuildEvent();
+        if (!e.isEnabled()) {
+            return null;
+        }
+        e.begin();
+        return e;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void endIndexRebuild(@CheckForNull Object event, int triggers) {
+        if (event == null) {
+            return;
+        }
+        IndexRebuildEvent e = (IndexRebuildEvent)event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.triggers = triggers;
+            e.commit();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @CheckForNull
+    public Object beginMatch() {
+        MatchEvent e = new MatchEvent();
+        if (!e.isEnabled()) {
+            return null;
+        }
+        e.begin();
+        return e;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void endMatch(@CheckForNull Object event, @Nonnull String uri, int candidates, int matched, boolean cacheHit) {
+        if (event == null) {
+            return;
+        }
+        MatchEvent e = (MatchEvent)event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.uri = uri;
+            e.candidates = candidates;
+            e.matched = matched;
+            e.cacheHit = cacheHit;
+            e.commit();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @CheckForNull
+    public Object beginBuildScheduled() {
+        BuildScheduledEvent e = new BuildScheduledEvent();
+        if (!e.isEnabled()) {
+            return null;
+        }
+        e.begin();
+        return e;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void endBuildScheduled(@CheckForNull Object event, @Nonnull String job, @CheckForNull String branch, boolean held) {
+        if (event == null) {
+            return;
+        }
+        BuildScheduledEvent e = (BuildScheduledEvent)event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.job = job;
+            e.branch = branch;
+            e.held = held;
+            e.commit();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link JfrTriggerEvents}
+ */
+public class JfrTriggerEventsTest {
+    private static List<RecordedEvent> filter(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> filtered = new ArrayList<RecordedEvent>();
+        for (RecordedEvent e: events) {
+            if (name.equals(e.getEventType().getName())) {
+                filtered.add(e);
+            }
+        }
+        return filtered;
+    }
+
+    @Test
+    public void testNotRecording() throws Exception {
+        JfrTriggerEvents events = new JfrTriggerEvents();
+        assertNull(events.beginIndexRebuild());
+        assertNull(events.beginMatch());
+        assertNull(events.beginBuildScheduled());
+        // do nothing
+        events.notificationReceived("https://git.example.com/repo.git", new String[] {"master"}, false);
+        events.endIndexRebuild(null, 1);
+        events.endMatch(null, "https://git.example.com/repo.git", 1, 1, false);
+        events.endBuildScheduled(null, "job", "master", false);
+    }
+
+    @Test
+    public void testRecording() throws Exception {
+        JfrTriggerEvents events = new JfrTriggerEvents();
+        File file = File.createTempFile("gitstatustrigger", ".jfr");
+        try {
+            Recording recording = new Recording();
+            try {
+                recording.enable(JfrTriggerEvents.NotificationReceivedEvent.class);
+                recording.enable(JfrTriggerEvents.IndexRebuildEvent.class);
+                recording.enable(JfrTriggerEvents.MatchEvent.class);
+                recording.enable(JfrTriggerEvents.BuildScheduledEvent.class);
+                recording.start();
+
+                events.notificationReceived("https://git.example.com/repo.git", new String[] {"master", "develop"}, true);
+                Object rebuild = events.beginIndexRebuild();
+                assertNotNull(rebuild);
+                events.endIndexRebuild(rebuild, 10);
+                Object match = events.beginMatch();
+                assertNotNull(match);
+                Object schedule = events.beginBuildScheduled();
+                assertNotNull(schedule);
+                events.endBuildScheduled(schedule, "folder/job", "master", false);
+                events.endMatch(match, "https://git.example.com/repo.git", 3, 1, true);
+
+                recording.stop();
+                recording.dump(file.toPath());
+            } finally {
+                recording.close();
+            }
+
+            List<RecordedEvent> recorded = RecordingFile.readAllEvents(file.toPath());
+
+            List<RecordedEvent> received = filter(recorded, "jp.ikedam.gitstatustrigger.NotificationReceived");
+            assertEquals(1, received.size());
+            assertEquals("https://git.example.com/repo.git", received.get(0).getString("uri"));
+            assertEquals("master,develop", received.get(0).getString("branches"));
+            assertTrue(received.get(0).getBoolean("relayed"));
+
+            List<RecordedEvent> rebuilt = filter(recorded, "jp.ikedam.gitstatustrigger.IndexRebuild");
+            assertEquals(1, rebuilt.size());
+            assertEquals(10, rebuilt.get(0).getInt("triggers"));
+
+            List<RecordedEvent> matched = filter(recorded, "jp.ikedam.gitstatustrigger.Match");
+            assertEquals(1, matched.size());
+            assertEquals(3, matched.get(0).getInt("candidates"));
+            assertEquals(1, matched.get(0).getInt("matched"));
+            assertTrue(matched.get(0).getBoolean("cacheHit"));
+
+            List<RecordedEvent> scheduled = filter(recorded, "jp.ikedam.gitstatustrigger.BuildScheduled");
+            assertEquals(1, scheduled.size());
+            assertEquals("folder/job", scheduled.get(0).getString("job"));
+            assertEquals("master", scheduled.get(0).getString("branch"));
+            assertFalse(scheduled.get(0).getBoolean("held"));
+        } finally {
+            file.delete();
+        }
+    }
+}
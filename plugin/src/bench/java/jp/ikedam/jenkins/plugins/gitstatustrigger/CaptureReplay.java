@@ -0,0 +1,121 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jgit.transport.URIish;
+
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.CaptureReader;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.CapturedNotification;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.Notification;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.ReplayDriver;
+
+/**
+ * Replays a capture recorded with the "File to record notifications to" setting
+ * over synthetic triggers, and reports throughput and latencies.
+ *
+ * Triggers are created for each repository in the capture, and not started,
+ * so builds are not actually scheduled.
+ * <pre>
+ * mvn -P benchmark test -Dbenchmark.main=jp.ikedam.jenkins.plugins.gitstatustrigger.CaptureReplay \
+ *   -Dbenchmark.args="capture.tsv --speed 10 --threads 8 --triggers 20"
+ * </pre>
+ * <dl>
+ *   <dt>--speed</dt><dd>How fast to replay. 1 for the original speed, 0 for as fast as possible (1)</dd>
+ *   <dt>--threads</dt><dd>The number of threads to dispatch notifications (8)</dd>
+ *   <dt>--triggers</dt><dd>The number of triggers for each repository (10)</dd>
+ *   <dt>--repeat</dt><dd>The number of times to replay. The first ones are warm-ups (3)</dd>
+ * </dl>
+ */
+public class CaptureReplay {
+    public static void main(String[] args) throws Exception {
+        String capture = null;
+        double speed = 1;
+        int threads = 8;
+        int triggersPerUri = 10;
+        int repeat = 3;
+        for (int i = 0; i < args.length; ++i) {
+            if ("--speed".equals(args[i])) {
+                speed = Double.parseDouble(args[++i]);
+            } else if ("--threads".equals(args[i])) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("--triggers".equals(args[i])) {
+                triggersPerUri = Integer.parseInt(args[++i]);
+            } else if ("--repeat".equals(args[i])) {
+                repeat = Integer.parseInt(args[++i]);
+            } else {
+                capture = args[i];
+            }
+        }
+        if (capture == null) {
+            System.err.println("Usage: CaptureReplay capture [--speed N] [--threads N] [--triggers N] [--repeat N]");
+            System.exit(1);
+        }
+
+        List<CapturedNotification> captured = CaptureReader.readAll(
+            new InputStreamReader(new FileInputStream(capture), "UTF-8")
+        );
+        Set<String> uris = new LinkedHashSet<String>();
+        int branches = 0;
+        for (CapturedNotification c: captured) {
+            uris.add(c.getNotification().getUri());
+            branches += c.getNotification().getBranches().length;
+        }
+        System.out.println(String.format(
+            "%d notifications for %d repositories, %.1f branches per notification",
+            captured.size(),
+            uris.size(),
+            captured.isEmpty() ? 0.0 : (double)branches / captured.size()
+        ));
+
+        List<GitStatusTrigger> triggers = new ArrayList<GitStatusTrigger>(uris.size() * triggersPerUri);
+        for (String uri: uris) {
+            for (int i = 0; i < triggersPerUri; ++i) {
+                triggers.add(new GitStatusTrigger(Arrays.asList(
+                    new GitStatusTarget(uri, (i % 2 == 0) ? "master, release/*" : "")
+                )));
+            }
+        }
+        GitStatusTrigger.setItemsToNotify(triggers);
+
+        ReplayDriver driver = new ReplayDriver(new ReplayDriver.Dispatcher() {
+            public void dispatch(Notification n) throws Exception {
+                GitStatusTrigger.BroadCastNotifyAll(new URIish(n.getUri()), n.getBranches());
+            }
+        }, threads, speed);
+        for (int i = 1; i <= repeat; ++i) {
+            ReplayDriver.Report report = driver.replay(captured);
+            System.out.println(String.format("%s %d: %s", (i < repeat) ? "Warm-up" : "Result", i, report));
+        }
+        GitStatusTrigger.setItemsToNotify(null);
+    }
+}
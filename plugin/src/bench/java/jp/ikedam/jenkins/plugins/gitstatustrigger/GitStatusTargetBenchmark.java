@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.transport.URIish;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link GitStatusTarget#isMatch(URIish, String...)}
+ * and {@link GitStatusTarget#isMatchBranch(String, String)}.
+ *
+ * Run with {@code -prof gc} to see allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GitStatusTargetBenchmark {
+    private static final String URI = "https://git.example.com/platform/service.git";
+    private static final String OTHER_URI = "https://git.example.com/platform/another-service.git";
+
+    /**
+     * Data sets:
+     * <dl>
+     *   <dt>exact</dt><dd>A few branches without wildcards</dd>
+     *   <dt>wildcard</dt><dd>Patterns with wildcards</dd>
+     *   <dt>manyBranches</dt><dd>100 comma-separated branches, matching the last one</dd>
+     *   <dt>manyRefs</dt><dd>A push with 300 refs, only the last one matching</dd>
+     * </dl>
+     */
+    @Param({"exact", "wildcard", "manyBranches", "manyRefs"})
+    public String dataSet;
+
+    private GitStatusTarget target;
+    private URIish uri;
+    private URIish otherUri;
+    private String[] matchingBranches;
+    private String[] notMatchingBranches;
+    private String pattern;
+    private String branch;
+
+    @Setup
+    public void setUp() throws Exception {
+        uri = new URIish(URI);
+        otherUri = new URIish(OTHER_URI);
+        if ("exact".equals(dataSet)) {
+            target = new GitStatusTarget(URI, "master, develop, release");
+            matchingBranches = new String[] {"release"};
+            notMatchingBranches = new String[] {"feature/something"};
+            pattern = "release";
+            branch = "release";
+        } else if ("wildcard".equals(dataSet)) {
+            target = new GitStatusTarget(URI, "feature/*/test, release/*, *-hotfix, bug*fix*");
+            matchingBranches = new String[] {"team/urgent-bugfix-1234"};
+            notMatchingBranches = new String[] {"feature/something/else"};
+            pattern = "bug*fix*";
+            branch = "team/urgent-bugfix-1234";
+        } else if ("manyBranches".equals(dataSet)) {
+            List<String> branches = new ArrayList<String>();
+            for (int i = 0; i < 100; ++i) {
+                branches.add(String.format("team%02d/feature%03d", i % 10, i));
+            }
+            target = new GitStatusTarget(URI, StringUtils.join(branches, ","));
+            matchingBranches = new String[] {branches.get(branches.size() - 1)};
+            notMatchingBranches = new String[] {"team00/feature999"};
+            pattern = branches.get(branches.size() - 1);
+            branch = pattern;
+        } else if ("manyRefs".equals(dataSet)) {
+            target = new GitStatusTarget(URI, "release/*");
+            matchingBranches = new String[300];
+            notMatchingBranches = new String[300];
+            for (int i = 0; i < matchingBranches.length; ++i) {
+                matchingBranches[i] = String.format("feature/JIRA-%05d", i);
+                notMatchingBranches[i] = matchingBranches[i];
+            }
+            matchingBranches[matchingBranches.length - 1] = "release/1.0";
+            pattern = "release/*";
+            branch = "feature/JIRA-00001";
+        } else {
+            throw new IllegalArgumentException(dataSet);
+        }
+    }
+
+    @Benchmark
+    public Object isMatchHit() {
+        return target.isMatch(uri, matchingBranches);
+    }
+
+    @Benchmark
+    public Object isMatchBranchMiss() {
+        return target.isMatch(uri, notMatchingBranches);
+    }
+
+    @Benchmark
+    public Object isMatchUriMiss() {
+        return target.isMatch(otherUri, matchingBranches);
+    }
+
+    @Benchmark
+    public boolean isMatchBranch() {
+        return target.isMatchBranch(pattern, branch);
+    }
+}
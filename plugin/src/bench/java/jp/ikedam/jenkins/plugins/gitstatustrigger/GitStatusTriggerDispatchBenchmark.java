@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.transport.URIish;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures dispatching notifications over synthetic triggers, without Jenkins.
+ *
+ * Triggers are not started, so builds are not actually scheduled.
+ * Reports both throughput and latency distributions (including p99).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GitStatusTriggerDispatchBenchmark {
+    private static final int REPOSITORIES_PER_TRIGGER = 2;
+
+    /**
+     * The number of triggers subscribed.
+     */
+    @Param({"100", "1000", "10000", "100000"})
+    public int subscriptions;
+
+    /**
+     * The number of repositories subscribed by triggers.
+     * Each notification matches about {@code subscriptions * 2 / repositories} triggers.
+     */
+    @Param({"1000"})
+    public int repositories;
+
+    private URIish[] uris;
+    private String[][] branches;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<GitStatusTrigger> triggers = new ArrayList<GitStatusTrigger>(subscriptions);
+        for (int i = 0; i < subscriptions; ++i) {
+            List<GitStatusTarget> targets = new ArrayList<GitStatusTarget>(REPOSITORIES_PER_TRIGGER);
+            for (int j = 0; j < REPOSITORIES_PER_TRIGGER; ++j) {
+                targets.add(new GitStatusTarget(
+                    getUri((i * REPOSITORIES_PER_TRIGGER + j) % repositories),
+                    (i % 2 == 0) ? "master, release/*" : ""
+                ));
+            }
+            triggers.add(new GitStatusTrigger(targets));
+        }
+        GitStatusTrigger.setItemsToNotify(triggers);
+
+        uris = new URIish[16];
+        branches = new String[uris.length][];
+        for (int i = 0; i < uris.length; ++i) {
+            uris[i] = new URIish(getUri((i * 61) % repositories));
+            branches[i] = (i % 2 == 0)
+                ? new String[] {"master"}
+                : new String[] {"feature/JIRA-1234", "release/1.0"};
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        GitStatusTrigger.setItemsToNotify(null);
+    }
+
+    private static String getUri(int index) {
+        return String.format("https://git.example.com/team%02d/repository%04d.git", index % 50, index);
+    }
+
+    private int next = 0;
+
+    private void dispatch() {
+        // Races are harmless: we just want to vary notifications.
+        int i = (next++ & Integer.MAX_VALUE) % uris.length;
+        GitStatusTrigger.BroadCastNotifyAll(uris[i], branches[i]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void dispatch1Thread() {
+        dispatch();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void dispatch8Threads() {
+        dispatch();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void dispatch32Threads() {
+        dispatch();
+    }
+}
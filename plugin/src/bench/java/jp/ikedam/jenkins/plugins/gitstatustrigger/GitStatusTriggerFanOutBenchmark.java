@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.transport.URIish;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of a notification matching many triggers (e.g. a push to a monorepo),
+ * with and without parallel fan-out.
+ *
+ * Triggers are not started, so builds are not actually scheduled.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GitStatusTriggerFanOutBenchmark {
+    private static final String URI = "https://git.example.com/platform/monorepo.git";
+
+    /**
+     * The number of triggers watching the repository.
+     */
+    @Param({"1000", "10000"})
+    public int subscriptions;
+
+    /**
+     * Threads to dispatch a notification. 1 for sequential.
+     */
+    @Param({"1", "2", "4", "8"})
+    public int fanOutThreads;
+
+    private URIish uri;
+    private final String[] branches = {"feature/JIRA-1234", "release/1.0"};
+
+    @Setup
+    public void setUp() throws Exception {
+        List<GitStatusTrigger> triggers = new ArrayList<GitStatusTrigger>(subscriptions);
+        for (int i = 0; i < subscriptions; ++i) {
+            triggers.add(new GitStatusTrigger(Arrays.asList(
+                new GitStatusTarget(URI, String.format("release/*, component%04d/*", i))
+            )));
+        }
+        GitStatusTrigger.setItemsToNotify(triggers);
+        GitStatusTriggerFanOut.configure(1, fanOutThreads);
+        uri = new URIish(URI);
+    }
+
+    @TearDown
+    public void tearDown() {
+        GitStatusTriggerFanOut.configure(0, 0);
+        GitStatusTrigger.setItemsToNotify(null);
+    }
+
+    @Benchmark
+    public Object dispatch() {
+        return GitStatusTrigger.BroadCastNotifyAll(uri, branches);
+    }
+}
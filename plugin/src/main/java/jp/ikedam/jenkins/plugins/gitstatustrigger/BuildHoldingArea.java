@@ -0,0 +1,410 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import hudson.Extension;
+import hudson.model.AbstractProject;
+import hudson.model.BuildableItem;
+import hudson.model.Cause;
+import hudson.model.CauseAction;
+import hudson.model.Label;
+import hudson.model.PeriodicWork;
+import hudson.model.Queue;
+import hudson.security.ACL;
+import jenkins.model.Jenkins;
+
+/**
+ * Holds builds triggered while the build queue is overloaded,
+ * and schedules them gradually as the load decreases.
+ *
+ * The build queue is considered overloaded when
+ * <ul>
+ *   <li>the number of buildable items in the queue reaches the threshold, or</li>
+ *   <li>the load of the label of the job reaches the threshold.
+ *     The load is busy executors and buildable items for the label
+ *     in percentage of executors for the label.
+ *     Labels without executors (e.g. ones provisioned by clouds) are never considered overloaded.</li>
+ * </ul>
+ *
+ * A job is held only once: further triggers for a held job are merged into it,
+ * and the released build has causes of them,
+ * except ones for the same URI and branch and ones over {@link #MAX_CAUSES}.
+ */
+public class BuildHoldingArea {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(BuildHoldingArea.class.getName());
+    @Nonnull
+    private static final BuildHoldingArea INSTANCE = new BuildHoldingArea();
+
+    /**
+     * Interval to release held builds.
+     */
+    public static final long RELEASE_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Max number of causes kept for a held build. Further triggers are only counted.
+     */
+    public static final int MAX_CAUSES = 20;
+
+    private volatile int queueLengthThreshold = 0;
+    private volatile int labelLoadThreshold = 0;
+    private volatile int releaseCount = 10;
+
+    /**
+     * Held builds by full names of jobs, oldest first.
+     */
+    @Nonnull
+    private final Map<String, HeldBuild> held = new LinkedHashMap<String, HeldBuild>();
+    private long heldCount = 0;
+    private long mergedCount = 0;
+    private long releasedCount = 0;
+
+    BuildHoldingArea() {
+    }
+
+    /**
+     * @return the instance used for notifications
+     */
+    @Nonnull
+    public static BuildHoldingArea get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param queueLengthThreshold number of buildable items to hold builds. 0 for disabled.
+     * @param labelLoadThreshold load of a label in percentage to hold builds. 0 for disabled.
+     * @param releaseCount maximum number of builds to schedule for each {@link #RELEASE_INTERVAL}
+     */
+    void configure(int queueLengthThreshold, int labelLoadThreshold, int releaseCount) {
+        this.queueLengthThreshold = Math.max(0, queueLengthThreshold);
+        this.labelLoadThreshold = Math.max(0, labelLoadThreshold);
+        this.releaseCount = Math.max(1, releaseCount);
+    }
+
+    /**
+     * @return whether builds can be held
+     */
+    public boolean isEnabled() {
+        return queueLengthThreshold > 0 || labelLoadThreshold > 0;
+    }
+
+    /**
+     * Hold a build if the build queue is overloaded.
+     *
+     * @param item the job to build
+     * @param c the cause of the build
+     * @return {@code true} if the build is held. The caller shouldn't schedule it.
+     */
+    boolean hold(@Nonnull BuildableItem item, @Nonnull GitStatusTriggerCause c) {
+        if (!isEnabled()) {
+            return false;
+        }
+        String name = item.getFullName();
+        synchronized (this) {
+            HeldBuild h = held.get(name);
+            if (h != null) {
+                h.merge(c);
+                ++mergedCount;
+                return true;
+            }
+        }
+        if (!isOverloaded(item)) {
+            return false;
+        }
+        synchronized (this) {
+            HeldBuild h = held.get(name);
+            if (h != null) {
+                h.merge(c);
+                ++mergedCount;
+            } else {
+                held.put(name, new HeldBuild(name, c));
+                ++heldCount;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param item the job to build
+     * @return whether the queue is overloaded for the job
+     */
+    boolean isOverloaded(@Nonnull BuildableItem item) {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return false;
+        }
+        Queue queue = jenkins.getQueue();
+        int queueLength = queueLengthThreshold;
+        if (queueLength > 0 && queue.countBuildableItems() >= queueLength) {
+            return true;
+        }
+        int labelLoad = labelLoadThreshold;
+        if (labelLoad > 0 && item instanceof AbstractProject) {
+            Label label = ((AbstractProject<?, ?>)item).getAssignedLabel();
+            if (label != null) {
+                int executors = label.getTotalExecutors();
+                int load = label.getBusyExecutors() + queue.countBuildableItemsFor(label);
+                // the load is unknown without executors, and clouds may provision them.
+                if (executors > 0 && load * 100 >= labelLoad * executors) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Schedule held builds not overloaded any more, oldest first.
+     *
+     * @return the number of scheduled builds
+     */
+    int release() {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return 0;
+        }
+        int released = 0;
+        SecurityContext orig = ACL.impersonate(ACL.SYSTEM);
+        try {
+            List<HeldBuild> candidates;
+            synchronized (this) {
+                candidates = new ArrayList<HeldBuild>(held.values());
+            }
+            boolean enabled = isEnabled();
+            for (HeldBuild h: candidates) {
+                if (released >= releaseCount) {
+                    break;
+                }
+                BuildableItem item = jenkins.getItemByFullName(h.getJobFullName(), BuildableItem.class);
+                if (item != null && enabled && isOverloaded(item)) {
+                    continue;
+                }
+                synchronized (this) {
+                    held.remove(h.getJobFullName());
+                    ++releasedCount;
+                }
+                if (item == null) {
+                    LOG.log(Level.INFO, "Discard held build for removed job {0}", h.getJobFullName());
+                    continue;
+                }
+                int quietPeriod = (item instanceof AbstractProject)
+                    ? ((AbstractProject<?, ?>)item).getQuietPeriod()
+                    : jenkins.getQuietPeriod();
+                List<GitStatusTriggerCause> causes = h.getCauses();
+                jenkins.getQueue().schedule(
+                    item,
+                    quietPeriod,
+                    new CauseAction(causes.toArray(new Cause[causes.size()]))
+                );
+                ++released;
+            }
+        } finally {
+            SecurityContextHolder.setContext(orig);
+        }
+        return released;
+    }
+
+    /**
+     * @return held builds, oldest first
+     */
+    @Nonnull
+    public synchronized List<HeldBuild> getHeldBuilds() {
+        List<HeldBuild> ret = new ArrayList<HeldBuild>(held.size());
+        for (HeldBuild h: held.values()) {
+            ret.add(h.copy());
+        }
+        return ret;
+    }
+
+    /**
+     * @return the number of builds currently held
+     */
+    public synchronized int size() {
+        return held.size();
+    }
+
+    /**
+     * @return the number of builds held since startup
+     */
+    public synchronized long getHeldCount() {
+        return heldCount;
+    }
+
+    /**
+     * @return the number of triggers merged into held builds since startup
+     */
+    public synchronized long getMergedCount() {
+        return mergedCount;
+    }
+
+    /**
+     * @return the number of builds released since startup
+     */
+    public synchronized long getReleasedCount() {
+        return releasedCount;
+    }
+
+    /**
+     * Discard all held builds. Used for tests.
+     */
+    synchronized void clear() {
+        held.clear();
+    }
+
+    /**
+     * A build held in {@link BuildHoldingArea}
+     */
+    public static class HeldBuild {
+        @Nonnull
+        private final String jobFullName;
+        /**
+         * The cause held first, followed by merged ones.
+         */
+        @Nonnull
+        private final List<GitStatusTriggerCause> causes;
+        private final long since;
+        private int mergedCount;
+
+        private HeldBuild(@Nonnull String jobFullName, @Nonnull GitStatusTriggerCause cause) {
+            this(jobFullName, Arrays.asList(cause), System.currentTimeMillis(), 0);
+        }
+
+        private HeldBuild(
+            @Nonnull String jobFullName,
+            @Nonnull List<GitStatusTriggerCause> causes,
+            long since,
+            int mergedCount
+        ) {
+            this.jobFullName = jobFullName;
+            this.causes = new ArrayList<GitStatusTriggerCause>(causes);
+            this.since = since;
+            this.mergedCount = mergedCount;
+        }
+
+        /**
+         * Causes for the same URI and branch as kept ones, and ones over {@link #MAX_CAUSES} are only counted.
+         */
+        private void merge(@Nonnull GitStatusTriggerCause c) {
+            ++mergedCount;
+            if (causes.size() >= MAX_CAUSES) {
+                return;
+            }
+            for (GitStatusTriggerCause kept: causes) {
+                if (equals(kept.getUri(), c.getUri()) && equals(kept.getBranch(), c.getBranch())) {
+                    return;
+                }
+            }
+            causes.add(c);
+        }
+
+        private static boolean equals(@CheckForNull String a, @CheckForNull String b) {
+            return (a == null) ? (b == null) : a.equals(b);
+        }
+
+        @Nonnull
+        private HeldBuild copy() {
+            return new HeldBuild(jobFullName, causes, since, mergedCount);
+        }
+
+        /**
+         * @return the full name of the job to build
+         */
+        @Nonnull
+        public String getJobFullName() {
+            return jobFullName;
+        }
+
+        /**
+         * @return the cause the build was held with
+         */
+        @Nonnull
+        public GitStatusTriggerCause getCause() {
+            return causes.get(0);
+        }
+
+        /**
+         * @return causes to schedule the build with, including merged ones up to {@link #MAX_CAUSES}
+         */
+        @Nonnull
+        public List<GitStatusTriggerCause> getCauses() {
+            return Collections.unmodifiableList(causes);
+        }
+
+        /**
+         * @return when the build was held
+         */
+        @Nonnull
+        public Date getSince() {
+            return new Date(since);
+        }
+
+        /**
+         * @return the number of triggers merged into this build
+         */
+        public int getMergedCount() {
+            return mergedCount;
+        }
+    }
+
+    /**
+     * Releases held builds periodically.
+     */
+    @Extension
+    public static class ReleaseWork extends PeriodicWork {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long getRecurrencePeriod() {
+            return RELEASE_INTERVAL;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void doRun() throws Exception {
+            BuildHoldingArea.get().release();
+        }
+    }
+}
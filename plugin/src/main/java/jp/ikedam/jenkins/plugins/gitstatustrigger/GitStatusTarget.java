@@ -0,0 +1,421 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.transport.URIish;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.model.Items;
+import hudson.util.FormValidation;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.BranchMatcher;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.RepositoryUris;
+
+/**
+ * Holds information for git notification target
+ *
+ * Immutable. Targets loaded from configurations are canonical instances,
+ * shared among jobs listening to the same repository and branches.
+ */
+public class GitStatusTarget extends AbstractDescribableImpl<GitStatusTarget> {
+    /**
+     * Canonical instances. Entries are kept while their targets are in use,
+     * as targets refer their keys.
+     */
+    @Nonnull
+    private static final Map<Key, WeakReference<GitStatusTarget>> CANONICAL
+        = new WeakHashMap<Key, WeakReference<GitStatusTarget>>();
+
+    @Nonnull
+    private final String uri;
+    @Nonnull
+    private final String branches;
+    @Nonnull
+    private final transient Key key;
+    /**
+     * {@code true} to match any branches, as {@link #branches} is blank.
+     */
+    private final transient boolean anyBranch;
+    /**
+     * {@code true} for subclasses, which may override methods to test notifications.
+     */
+    private final transient boolean subclassed;
+    @Nonnull
+    private final transient BranchMatcher[] branchMatchers;
+    /**
+     * Prefix of repositories to match if {@link #uri} is a wildcard. {@code null} to match exactly.
+     */
+    @CheckForNull
+    private final transient String wildcardPrefix;
+
+    /**
+     * @param uri URI of repository, or a wildcard ending with {@code /*} to match all repositories under it
+     * @param branches Comma-separated list of branches
+     */
+    @DataBoundConstructor
+    public GitStatusTarget(String uri, String branches) {
+        this(new Key(uri, branches));
+    }
+
+    private GitStatusTarget(@Nonnull Key key) {
+        this.uri = key.uri;
+        this.branches = key.branches;
+        this.key = key;
+        this.anyBranch = StringUtils.isBlank(this.branches);
+        this.subclassed = (getClass() != GitStatusTarget.class);
+        this.branchMatchers = BranchMatcher.parseList(this.branches);
+        this.wildcardPrefix = RepositoryUris.isWildcard(this.uri)
+            ? RepositoryUris.getWildcardPrefix(this.uri)
+            : null;
+    }
+
+    /**
+     * Returns the canonical instance, parsing branches only for the first time.
+     *
+     * @param uri URI of repository
+     * @param branches Comma-separated list of branches
+     * @return the target shared among all callers with the same URI and branches
+     */
+    @Nonnull
+    static GitStatusTarget of(@CheckForNull String uri, @CheckForNull String branches) {
+        Key key = new Key(uri, branches);
+        synchronized (CANONICAL) {
+            GitStatusTarget t = get(key);
+            if (t == null) {
+                t = new GitStatusTarget(key);
+                CANONICAL.put(key, new WeakReference<GitStatusTarget>(t));
+            }
+            return t;
+        }
+    }
+
+    /**
+     * @param target a target
+     * @return the canonical instance equivalent to {@code target}.
+     *     {@code target} itself if it gets canonical.
+     */
+    @Nonnull
+    static GitStatusTarget canonical(@Nonnull GitStatusTarget target) {
+        if (target.getClass() != GitStatusTarget.class) {
+            // subclasses may behave differently.
+            return target;
+        }
+        synchronized (CANONICAL) {
+            GitStatusTarget t = get(target.key);
+            if (t == null) {
+                t = target;
+                CANONICAL.put(target.key, new WeakReference<GitStatusTarget>(t));
+            }
+            return t;
+        }
+    }
+
+    /**
+     * @param targets targets
+     * @return a list of canonical instances, sized exactly
+     */
+    @Nonnull
+    static List<GitStatusTarget> canonicalList(@CheckForNull List<GitStatusTarget> targets) {
+        if (targets == null) {
+            return new ArrayList<GitStatusTarget>(0);
+        }
+        List<GitStatusTarget> canonicalTargets = new ArrayList<GitStatusTarget>(targets.size());
+        for (GitStatusTarget t: targets) {
+            if (t != null) {
+                canonicalTargets.add(canonical(t));
+            }
+        }
+        return canonicalTargets;
+    }
+
+    @CheckForNull
+    private static GitStatusTarget get(@Nonnull Key key) {
+        WeakReference<GitStatusTarget> ref = CANONICAL.get(key);
+        return (ref != null) ? ref.get() : null;
+    }
+
+    /**
+     * Use the canonical instance when loaded without {@link ConverterImpl}.
+     *
+     * @return the instance to use
+     */
+    private Object readResolve() {
+        return of(uri, branches);
+    }
+
+    /**
+     * @return URI of the repository
+     */
+    @Nonnull
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * @return Comma-separated list of branches
+     */
+    @Nonnull
+    public String getBranches() {
+        return branches;
+    }
+
+    /**
+     * Test whether notification matches this target
+     *
+     * @param uri URI of the repository
+     * @param branches Affected branches. May be empty.
+     * @return the cause indicating the matched target.
+     */
+    @CheckForNull
+    public GitStatusTriggerCause isMatch(URIish uri, String... branches) {
+        return match(uri.toString(), branches);
+    }
+
+    /**
+     * Test whether notification matches this target
+     *
+     * Subclasses are tested with {@link #isMatch(URIish, String...)} and {@link #isMatchBranch(String, String)},
+     * as they may override them.
+     *
+     * @param uri URI of the repository, in the string representation
+     * @param branches Affected branches. May be empty.
+     * @return the cause indicating the matched target.
+     */
+    @CheckForNull
+    GitStatusTriggerCause isMatch(@Nonnull String uri, @Nonnull String... branches) {
+        if (subclassed) {
+            URIish parsed;
+            try {
+                parsed = new URIish(uri);
+            } catch (URISyntaxException e) {
+                return null;
+            }
+            return isMatch(parsed, branches);
+        }
+        return match(uri, branches);
+    }
+
+    @CheckForNull
+    private GitStatusTriggerCause match(@Nonnull String uri, @Nonnull String[] branches) {
+        if (wildcardPrefix != null) {
+            if (!RepositoryUris.isUnder(wildcardPrefix, uri)) {
+                return null;
+            }
+        } else if (!getUri().equals(uri)) {
+            return null;
+        }
+        if (anyBranch) {
+            if (branches.length > 0) {
+                return new GitStatusTriggerCause(uri, branches[0], this);
+            } else {
+                return new GitStatusTriggerCause(uri, "", this);
+            }
+        }
+        if (subclassed) {
+            for (String targetBranch: StringUtils.split(getBranches(), ',')) {
+                targetBranch = StringUtils.trim(targetBranch);
+                for (String branch: branches) {
+                    if (isMatchBranch(targetBranch, branch)) {
+                        return new GitStatusTriggerCause(uri, branch, this);
+                    }
+                }
+            }
+            return null;
+        }
+        for (BranchMatcher matcher: branchMatchers) {
+            for (String branch: branches) {
+                if (matcher.matches(branch)) {
+                    return new GitStatusTriggerCause(uri, branch, this);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Test whether {@code targetBranch} contains {@code branch}
+     *
+     * Called only for subclasses: {@link GitStatusTarget} itself uses branch patterns parsed in advance.
+     *
+     * @param targetBranch configured branch
+     * @param branch actual branch
+     * @return {@code true} if contains
+     */
+    protected boolean isMatchBranch(@Nonnull String targetBranch, @Nonnull String branch) {
+        return new BranchMatcher(targetBranch).matches(branch);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<GitStatusTarget> {
+        @Override
+        public String getDisplayName() {
+            return Messages.GitStatusTarget_DisplayName();
+        }
+
+        public FormValidation doCheckUri(@QueryParameter String uri) {
+            return checkUri(uri);
+        }
+    }
+
+    /**
+     * URI and branches identifying equivalent targets.
+     */
+    private static class Key {
+        @Nonnull
+        private final String uri;
+        @Nonnull
+        private final String branches;
+
+        private Key(@CheckForNull String uri, @CheckForNull String branches) {
+            this.uri = StringUtils.trim(Util.fixNull(uri));
+            this.branches = StringUtils.trim(Util.fixNull(branches));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return uri.hashCode() * 31 + branches.hashCode();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)o;
+            return uri.equals(other.uri) && branches.equals(other.branches);
+        }
+    }
+
+    /**
+     * Reads and writes targets in job configurations.
+     *
+     * Writes only non-empty fields:
+     * <pre>
+     * &lt;uri&gt;https://git.example.com/repo.git&lt;/uri&gt;
+     * &lt;branches&gt;master&lt;/branches&gt;
+     * </pre>
+     * and reads canonical instances without reflection.
+     * Unknown fields are ignored.
+     */
+    public static class ConverterImpl implements Converter {
+        /**
+         * {@inheritDoc}
+         */
+        @SuppressWarnings("rawtypes")
+        public boolean canConvert(Class type) {
+            return type == GitStatusTarget.class;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+            GitStatusTarget t = (GitStatusTarget)source;
+            writer.startNode("uri");
+            writer.setValue(t.getUri());
+            writer.endNode();
+            if (t.getBranches().length() > 0) {
+                writer.startNode("branches");
+                writer.setValue(t.getBranches());
+                writer.endNode();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+            String uri = null;
+            String branches = null;
+            while (reader.hasMoreChildren()) {
+                reader.moveDown();
+                if ("uri".equals(reader.getNodeName())) {
+                    uri = reader.getValue();
+                } else if ("branches".equals(reader.getNodeName())) {
+                    branches = reader.getValue();
+                }
+                reader.moveUp();
+            }
+            return of(uri, branches);
+        }
+    }
+
+    /**
+     * Register {@link ConverterImpl} before jobs are loaded.
+     */
+    @Initializer(before = InitMilestone.PLUGINS_STARTED)
+    public static void registerConverter() {
+        Items.XSTREAM.registerConverter(new ConverterImpl());
+    }
+
+    /**
+     * Validate the URI of a repository to listen.
+     *
+     * @param uri URI of the repository
+     * @return the validation result
+     */
+    @Nonnull
+    static FormValidation checkUri(@CheckForNull String uri) {
+        uri = StringUtils.trim(uri);
+        if (StringUtils.isBlank(uri)) {
+            return FormValidation.error(Messages.GitStatusTarget_uri_required());
+        }
+        if (uri.indexOf('*') >= 0
+            && (!RepositoryUris.isWildcard(uri) || uri.indexOf('*') < uri.length() - 1)
+        ) {
+            return FormValidation.warning(Messages.GitStatusTarget_uri_wildcard());
+        }
+        return FormValidation.ok();
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import jenkins.model.Jenkins;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.RepositoryUris;
+
+/**
+ * Rewrites {@link GitStatusTarget}s of many jobs at once,
+ * e.g. when a repository moves.
+ *
+ * Only jobs with changed targets are saved,
+ * and the index of triggers is rebuilt once after all jobs are updated.
+ *
+ * Supports {@link AbstractProject}s and jobs with {@code addTrigger(Trigger)}
+ * like Pipeline jobs. Other jobs are reported as skipped.
+ */
+public class GitStatusTargetRewriter {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(GitStatusTargetRewriter.class.getName());
+
+    @Nonnull
+    private final String fromUri;
+    @CheckForNull
+    private final String toUri;
+    @CheckForNull
+    private final String branches;
+
+    /**
+     * @param fromUri URI of targets to rewrite. Compared after normalized.
+     * @param toUri new URI for targets. {@code null} not to change.
+     * @param branches new branches for targets. {@code null} not to change.
+     */
+    public GitStatusTargetRewriter(@Nonnull String fromUri, @CheckForNull String toUri, @CheckForNull String branches) {
+        this.fromUri = RepositoryUris.normalize(fromUri);
+        this.toUri = toUri;
+        this.branches = branches;
+    }
+
+    /**
+     * Rewrite targets of all jobs the current user can configure.
+     *
+     * @param dryRun {@code true} only to list jobs to change
+     * @return jobs changed, or jobs to change in dry-run
+     * @throws IOException failed to save a job
+     */
+    @Nonnull
+    public Result rewrite(boolean dryRun) throws IOException {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            throw new IllegalStateException("Jenkins is not ready");
+        }
+        Result result = new Result();
+        GitStatusTrigger.beginBatch();
+        try {
+            for (Item item: jenkins.getAllItems()) {
+                GitStatusTrigger t = GitStatusTrigger.getGitStatusTrigger(item);
+                if (t == null) {
+                    continue;
+                }
+                List<GitStatusTarget> targets = rewriteTargets(t.getTargetList());
+                if (targets == null) {
+                    continue;
+                }
+                Method addTrigger = (item instanceof AbstractProject) ? null : getAddTrigger(item);
+                if (!(item instanceof AbstractProject) && addTrigger == null) {
+                    LOG.log(
+                        Level.WARNING,
+                        "Cannot rewrite targets of {0}: {1} is not supported",
+                        new Object[] {item.getFullName(), item.getClass().getName()}
+                    );
+                    result.skipped.add(item.getFullName());
+                    continue;
+                }
+                if (!item.hasPermission(Item.CONFIGURE)) {
+                    result.skipped.add(item.getFullName());
+                    continue;
+                }
+                if (!dryRun) {
+                    GitStatusTrigger newTrigger = new GitStatusTrigger(targets, t.getSharedRepositoryList());
+                    if (addTrigger == null) {
+                        // replaces the current trigger and saves the job
+                        ((AbstractProject<?, ?>)item).addTrigger(newTrigger);
+                    } else {
+                        invokeAddTrigger(addTrigger, item, newTrigger);
+                        item.save();
+                    }
+                    t.stop();
+                    newTrigger.start(item, true);
+                }
+                result.changed.add(item.getFullName());
+            }
+        } finally {
+            GitStatusTrigger.endBatch();
+        }
+        return result;
+    }
+
+    /**
+     * @param item a job not {@link AbstractProject}
+     * @return {@code addTrigger(Trigger)} of the job, replacing the trigger of the same kind.
+     *     {@code null} if not available.
+     */
+    @CheckForNull
+    private static Method getAddTrigger(@Nonnull Item item) {
+        for (Method m: item.getClass().getMethods()) {
+            if ("addTrigger".equals(m.getName())
+                    && m.getParameterTypes().length == 1
+                    && m.getParameterTypes()[0].isAssignableFrom(GitStatusTrigger.class)) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    private static void invokeAddTrigger(@Nonnull Method addTrigger, @Nonnull Item item, @Nonnull GitStatusTrigger t)
+        throws IOException
+    {
+        try {
+            addTrigger.invoke(item, t);
+        } catch (IllegalAccessException e) {
+            IOException ex = new IOException(String.format("Failed to update the trigger of %s", item.getFullName()));
+            ex.initCause(e);
+            throw ex;
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            IOException ex = new IOException(String.format("Failed to update the trigger of %s", item.getFullName()));
+            ex.initCause(e.getCause());
+            throw ex;
+        }
+    }
+
+    /**
+     * @param targets current targets
+     * @return rewritten targets. {@code null} if nothing changed.
+     */
+    @CheckForNull
+    List<GitStatusTarget> rewriteTargets(@Nonnull List<GitStatusTarget> targets) {
+        List<GitStatusTarget> rewritten = null;
+        for (int i = 0; i < targets.size(); ++i) {
+            GitStatusTarget target = targets.get(i);
+            if (!fromUri.equals(RepositoryUris.normalize(target.getUri()))) {
+                continue;
+            }
+            GitStatusTarget newTarget = new GitStatusTarget(
+                (toUri != null) ? toUri : target.getUri(),
+                (branches != null) ? branches : target.getBranches()
+            );
+            if (newTarget.getUri().equals(target.getUri())
+                    && newTarget.getBranches().equals(target.getBranches())) {
+                continue;
+            }
+            if (rewritten == null) {
+                rewritten = new ArrayList<GitStatusTarget>(targets);
+            }
+            rewritten.set(i, newTarget);
+        }
+        return rewritten;
+    }
+
+    /**
+     * Jobs processed by {@link GitStatusTargetRewriter#rewrite(boolean)}.
+     */
+    public static class Result {
+        @Nonnull
+        private final List<String> changed = new ArrayList<String>();
+        @Nonnull
+        private final List<String> skipped = new ArrayList<String>();
+
+        /**
+         * @return full names of jobs changed
+         */
+        @Nonnull
+        public List<String> getChanged() {
+            return Collections.unmodifiableList(changed);
+        }
+
+        /**
+         * @return full names of jobs to change but not changed,
+         *     as the user cannot configure them or they are not supported.
+         */
+        @Nonnull
+        public List<String> getSkipped() {
+            return Collections.unmodifiableList(skipped);
+        }
+    }
+}
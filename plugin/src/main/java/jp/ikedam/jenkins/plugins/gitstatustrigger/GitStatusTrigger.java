@@ -0,0 +1,1186 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.io.ObjectStreamException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+import org.eclipse.jgit.transport.URIish;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import hudson.Extension;
+import hudson.model.AbstractProject;
+import hudson.model.BuildableItem;
+import hudson.model.Item;
+import hudson.plugins.git.GitStatus;
+import hudson.plugins.git.GitStatus.ResponseContributor;
+import hudson.security.ACL;
+import hudson.triggers.Trigger;
+import hudson.triggers.TriggerDescriptor;
+import jenkins.model.Jenkins;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.MatchCache;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.Span;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.SubscriptionIndex;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.TriggerEvents;
+
+/**
+ * Trigger builds when git push notification
+ */
+public class GitStatusTrigger extends Trigger<Item> {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(GitStatusTrigger.class.getName());
+    /**
+     * Incremented whenever triggers start or stop.
+     */
+    @Nonnull
+    private static final AtomicLong cacheGeneration = new AtomicLong();
+    @CheckForNull
+    private static volatile IndexCache indexCache = null;
+    @Nonnull
+    private static final Object scanLock = new Object();
+    private static final int MAX_SCAN_RETRIES = 3;
+    @CheckForNull
+    private static volatile MatchCache<GitStatusTrigger> matchCache = null;
+    /**
+     * Batches in progress on the current thread.
+     */
+    @Nonnull
+    private static final ThreadLocal<Batch> batch = new ThreadLocal<Batch>() {
+        @Override
+        protected Batch initialValue() {
+            return new Batch();
+        }
+    };
+
+    @Nonnull
+    private final List<GitStatusTarget> targetList;
+    @CheckForNull
+    private final List<SharedRepositoryReference> sharedRepositoryList;
+
+    /**
+     * Creates a new instance of {@link GitStatusTrigger}
+     *
+     * @param targetList Git repositories to trigger build when notified.
+     */
+    public GitStatusTrigger(List<GitStatusTarget> targetList) {
+        this(targetList, null);
+    }
+
+    /**
+     * Creates a new instance of {@link GitStatusTrigger}
+     *
+     * Called via Jenkins UI.
+     *
+     * @param targetList Git repositories to trigger build when notified.
+     * @param sharedRepositoryList Shared repositories to trigger build when notified.
+     */
+    @DataBoundConstructor
+    public GitStatusTrigger(List<GitStatusTarget> targetList, List<SharedRepositoryReference> sharedRepositoryList) {
+        this.targetList = GitStatusTarget.canonicalList(targetList);
+        this.sharedRepositoryList = (sharedRepositoryList != null && !sharedRepositoryList.isEmpty())
+            ? sharedRepositoryList
+            : null;
+    }
+
+    /**
+     * Share targets among jobs, and drop empty lists not to save them.
+     *
+     * @return the instance to use
+     * @throws ObjectStreamException never thrown
+     */
+    @Override
+    protected Object readResolve() throws ObjectStreamException {
+        super.readResolve();
+        return new GitStatusTrigger(targetList, sharedRepositoryList);
+    }
+
+    @Nonnull
+    public List<GitStatusTarget> getTargetList() {
+        return targetList;
+    }
+
+    /**
+     * @return shared repositories to trigger build when notified
+     */
+    @Nonnull
+    public List<SharedRepositoryReference> getSharedRepositoryList() {
+        return (sharedRepositoryList != null)
+            ? sharedRepositoryList
+            : Collections.<SharedRepositoryReference>emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start(@Nonnull Item project, boolean newInstance) {
+        super.start(project, newInstance);
+        clearCache();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop() {
+        super.stop();
+        clearCache();
+    }
+
+    /**
+     * Invalidate the cached index.
+     *
+     * Doesn't take locks, as this is called while Jenkins loads jobs.
+     * Bumping the generation makes any index built from a scan in progress stale.
+     */
+    static void clearCache() {
+        Batch b = batch.get();
+        if (b.depth > 0) {
+            // cleared once at the end of the batch.
+            b.cleared = true;
+            return;
+        }
+        cacheGeneration.incrementAndGet();
+        indexCache = null;
+    }
+
+    /**
+     * @return the generation of the cache, changed whenever triggers start or stop
+     */
+    static long getCacheGeneration() {
+        return cacheGeneration.get();
+    }
+
+    /**
+     * @param capacity number of notifications to remember matched triggers. 0 for disabled.
+     */
+    synchronized static void configureMatchCache(int capacity) {
+        MatchCache<GitStatusTrigger> current = matchCache;
+        if (capacity <= 0) {
+            matchCache = null;
+        } else if (current == null || current.getCapacity() != capacity) {
+            matchCache = new MatchCache<GitStatusTrigger>(capacity);
+        }
+    }
+
+    /**
+     * @return the cache of matched triggers. {@code null} if disabled.
+     */
+    @CheckForNull
+    static MatchCache<GitStatusTrigger> getMatchCache() {
+        return matchCache;
+    }
+
+    /**
+     * Start a batch of changes to triggers on the current thread.
+     *
+     * Starting and stopping triggers doesn't invalidate the index until
+     * the batch ends with {@link #endBatch()}, so that the index is rebuilt
+     * only once for changes to many jobs.
+     * Batches can be nested.
+     */
+    static void beginBatch() {
+        ++batch.get().depth;
+    }
+
+    /**
+     * End a batch started with {@link #beginBatch()}.
+     *
+     * Invalidates the index if any trigger started or stopped in the batch.
+     */
+    static void endBatch() {
+        Batch b = batch.get();
+        if (b.depth <= 0) {
+            throw new IllegalStateException("No batch in progress");
+        }
+        if (--b.depth == 0 && b.cleared) {
+            b.cleared = false;
+            clearCache();
+        }
+    }
+
+    /**
+     * State of batches on a thread.
+     */
+    private static class Batch {
+        private int depth = 0;
+        private boolean cleared = false;
+    }
+
+    /**
+     * Indexes with the generation they were built for.
+     */
+    private static class IndexCache {
+        private final long generation;
+        /**
+         * Triggers by URIs of their own targets.
+         */
+        @Nonnull
+        private final SubscriptionIndex<GitStatusTrigger> index;
+        /**
+         * Shared repositories and triggers referring them.
+         */
+        @Nonnull
+        private final SubscriptionIndex<SharedSubscription> sharedIndex;
+
+        private IndexCache(long generation, @Nonnull List<GitStatusTrigger> triggers) {
+            this.generation = generation;
+            SubscriptionIndex.Builder<GitStatusTrigger> builder = new SubscriptionIndex.Builder<GitStatusTrigger>();
+            Map<String, SharedSubscription> shared = new LinkedHashMap<String, SharedSubscription>();
+            for (GitStatusTrigger t: triggers) {
+                for (GitStatusTarget target: t.getTargetList()) {
+                    builder.add(target.getUri(), t);
+                }
+                for (SharedRepositoryReference ref: t.getSharedRepositoryList()) {
+                    SharedRepository repository = ref.resolve();
+                    if (repository == null) {
+                        continue;
+                    }
+                    SharedSubscription s = shared.get(repository.getId());
+                    if (s == null) {
+                        s = new SharedSubscription(repository);
+                        shared.put(repository.getId(), s);
+                    }
+                    s.triggers.add(t);
+                }
+            }
+            this.index = builder.build();
+            SubscriptionIndex.Builder<SharedSubscription> sharedBuilder
+                = new SubscriptionIndex.Builder<SharedSubscription>();
+            for (SharedSubscription s: shared.values()) {
+                sharedBuilder.add(s.repository.getUri(), s);
+            }
+            this.sharedIndex = sharedBuilder.build();
+        }
+    }
+
+    /**
+     * A shared repository and triggers referring it.
+     */
+    static class SharedSubscription {
+        @Nonnull
+        final SharedRepository repository;
+        @Nonnull
+        final List<GitStatusTrigger> triggers = new ArrayList<GitStatusTrigger>();
+
+        SharedSubscription(@Nonnull SharedRepository repository) {
+            this.repository = repository;
+        }
+    }
+
+    /**
+     * Replace triggers to notify without scanning Jenkins.
+     *
+     * Used for benchmarks and tests.
+     *
+     * @param triggers triggers to notify
+     */
+    static void setItemsToNotify(@CheckForNull List<GitStatusTrigger> triggers) {
+        synchronized (scanLock) {
+            // a new generation, not to use matches cached for previous triggers.
+            indexCache = (triggers != null)
+                ? new IndexCache(cacheGeneration.incrementAndGet(), triggers)
+                : null;
+        }
+    }
+
+    /**
+     * Dispatch a notification to triggers as the system
+     *
+     * @param uri URI of the repository
+     * @param branches branches update occurred
+     * @return triggers matched the notification
+     */
+    @Nonnull
+    static List<GitStatusTrigger> notifyCommit(@Nonnull URIish uri, @Nonnull String... branches) {
+        return notifyCommit(uri, true, branches);
+    }
+
+    /**
+     * Dispatch a notification to triggers as the system
+     *
+     * @param uri URI of the repository
+     * @param relay whether to forward the notification to peers.
+     *     {@code false} for notifications forwarded from other controllers.
+     * @param branches branches update occurred
+     * @return triggers matched the notification. Always empty when dispatched asynchronously.
+     */
+    @Nonnull
+    static List<GitStatusTrigger> notifyCommit(@Nonnull URIish uri, boolean relay, @Nonnull String... branches) {
+        return notifyCommit(uri, relay, null, branches);
+    }
+
+    /**
+     * Dispatch a notification to triggers as the system
+     *
+     * @param uri URI of the repository
+     * @param relay whether to forward the notification to peers.
+     *     {@code false} for notifications forwarded from other controllers.
+     * @param scheduled triggers already scheduled for the same push, which are skipped.
+     *     Matched triggers are added. {@code null} not to skip any.
+     *     Not used when dispatched asynchronously.
+     * @param branches branches update occurred
+     * @return triggers matched the notification. Always empty when dispatched asynchronously.
+     */
+    @Nonnull
+    static List<GitStatusTrigger> notifyCommit(
+        @Nonnull URIish uri,
+        boolean relay,
+        @CheckForNull Map<GitStatusTrigger, Boolean> scheduled,
+        @Nonnull String... branches
+    ) {
+        TriggerEvents events = TriggerFlightRecorder.EVENTS;
+        if (events != null) {
+            events.notificationReceived(uri, branches, !relay);
+        }
+        long entry = GitStatusTriggerJournal.append(uri, branches);
+        if (relay) {
+            GitStatusTriggerRelay.relay(uri, branches);
+        }
+        if (entry >= 0 && Jenkins.getInstance() == null) {
+            // dispatched when replaying the journal
+            LOG.warning("Journaled push notification as Jenkins is not ready.");
+            return Collections.emptyList();
+        }
+        if (GitStatusTriggerFairQueue.offer(uri, branches, entry)) {
+            // dispatched and completed by workers.
+            return Collections.emptyList();
+        }
+        try {
+            return dispatch(uri, scheduled, branches);
+        } finally {
+            GitStatusTriggerJournal.complete(entry);
+        }
+    }
+
+    /**
+     * Dispatch a notification to triggers as the system without journaling it
+     *
+     * @param uri URI of the repository
+     * @param branches branches update occurred
+     * @return triggers matched the notification
+     */
+    @Nonnull
+    static List<GitStatusTrigger> dispatch(@Nonnull URIish uri, @Nonnull String... branches) {
+        return dispatch(uri, null, branches);
+    }
+
+    /**
+     * Dispatch a notification to triggers as the system without journaling it
+     *
+     * @param uri URI of the repository
+     * @param scheduled triggers already scheduled for the same push, which are skipped.
+     *     Matched triggers are added. {@code null} not to skip any.
+     * @param branches branches update occurred
+     * @return triggers matched the notification
+     */
+    @Nonnull
+    static List<GitStatusTrigger> dispatch(
+        @Nonnull URIish uri,
+        @CheckForNull Map<GitStatusTrigger, Boolean> scheduled,
+        @Nonnull String... branches
+    ) {
+        SecurityContext orig = ACL.impersonate(ACL.SYSTEM);
+        try {
+            return BroadCastNotifyAll(uri, branches, scheduled);
+        } finally {
+            SecurityContextHolder.setContext(orig);
+        }
+    }
+
+    @Nonnull
+    static List<GitStatusTrigger> BroadCastNotifyAll(URIish uri, String[] branches) {
+        return BroadCastNotifyAll(uri, branches, null);
+    }
+
+    /**
+     * @param uri URI of the repository
+     * @param branches branches update occurred
+     * @param scheduled triggers already scheduled for the same push, which are skipped.
+     *     Matched triggers are added. {@code null} not to skip any.
+     * @return triggers matched the notification, except skipped ones
+     */
+    @Nonnull
+    static List<GitStatusTrigger> BroadCastNotifyAll(
+        URIish uri,
+        String[] branches,
+        @CheckForNull Map<GitStatusTrigger, Boolean> scheduled
+    ) {
+        NotificationHistory history = NotificationHistory.get();
+        NotificationWatchdog watchdog = NotificationWatchdog.get();
+        String uriString = uri.toString();
+        NotificationRecord record = history.begin(uriString, branches);
+        watchdog.watch(record);
+        Span span = NotificationTracing.start("dispatch", uriString, branches);
+        List<GitStatusTrigger> matched = Collections.emptyList();
+        try {
+            long lookupStart = System.nanoTime();
+            Span lookupSpan = NotificationTracing.start("lookup");
+            // read before the index, so that results are never cached for a newer generation.
+            long generation = cacheGeneration.get();
+            IndexCache indexes;
+            List<GitStatusTrigger> candidates;
+            boolean cacheHit = false;
+            MatchCache<GitStatusTrigger> cache = matchCache;
+            boolean cacheMiss = false;
+            try {
+                indexes = getIndex();
+                if (indexes == null) {
+                    // In case Jenkins.instance == null
+                    LOG.warning("Ignore push notification as Jenkins is not ready.");
+                    return matched;
+                }
+                candidates = indexes.index.lookup(uriString);
+                if (cache != null) {
+                    List<GitStatusTrigger> cached = cache.get(generation, uriString, branches);
+                    if (cached != null) {
+                        // matched before: still tested, but other candidates are skipped.
+                        candidates = cached;
+                        cacheHit = true;
+                        record.setMatchCacheHit(true);
+                    } else {
+                        cacheMiss = MatchCache.isCacheable(branches);
+                    }
+                }
+                if (scheduled != null && !scheduled.isEmpty()) {
+                    List<GitStatusTrigger> rest = exclude(candidates, scheduled);
+                    if (rest != candidates) {
+                        // results would miss skipped triggers.
+                        candidates = rest;
+                        cacheMiss = false;
+                    }
+                }
+                if (lookupSpan != null) {
+                    lookupSpan.setAttribute("candidates", candidates.size())
+                        .setAttribute("cacheHit", cacheHit);
+                }
+            } catch (RuntimeException e) {
+                if (lookupSpan != null) {
+                    lookupSpan.setError(e);
+                }
+                throw e;
+            } finally {
+                NotificationTracing.end(lookupSpan);
+            }
+            record.setStage(NotificationRecord.Stage.MATCH);
+            record.setLookupNanos(System.nanoTime() - lookupStart);
+            TriggerEvents events = TriggerFlightRecorder.EVENTS;
+            Object matchEvent = (events != null) ? events.beginMatch() : null;
+            try {
+                DispatchResult result;
+                if (GitStatusTriggerFanOut.isApplicable(candidates.size())) {
+                    record.setStage(NotificationRecord.Stage.SCHEDULE);
+                    result = GitStatusTriggerFanOut.dispatch(candidates, uriString, branches);
+                } else {
+                    result = new DispatchResult();
+                    dispatchRange(candidates, 0, candidates.size(), uriString, branches, record, result);
+                }
+                if (!cacheHit) {
+                    // cached results include triggers matched via shared repositories.
+                    List<SharedSubscription> shared = indexes.sharedIndex.lookup(uriString);
+                    if (!shared.isEmpty()) {
+                        dispatchShared(shared, uriString, branches, record, result, scheduled);
+                    }
+                }
+                if (cacheMiss && result.failures == 0) {
+                    // Not to cache results missing triggers failed to schedule builds.
+                    cache.put(
+                        generation,
+                        uriString,
+                        branches,
+                        (result.matched != null) ? result.matched : Collections.<GitStatusTrigger>emptyList()
+                    );
+                }
+                if (result.matched != null) {
+                    matched = result.matched;
+                    for (int i = 0; i < matched.size(); ++i) {
+                        String jobName = matched.get(i).getJobFullName();
+                        if (jobName != null) {
+                            record.addMatchedJob(jobName);
+                        }
+                        if (scheduled != null) {
+                            scheduled.put(matched.get(i), Boolean.TRUE);
+                        }
+                    }
+                }
+                record.setMatchNanos(result.matchNanos);
+                record.setScheduleNanos(result.scheduleNanos);
+            } finally {
+                if (matchEvent != null) {
+                    events.endMatch(matchEvent, uriString, candidates.size(), matched.size(), cacheHit);
+                }
+            }
+        } catch (RuntimeException e) {
+            if (span != null) {
+                span.setError(e);
+            }
+            throw e;
+        } finally {
+            if (span != null) {
+                span.setAttribute("matched", matched.size()).end();
+            }
+            record.setStage(NotificationRecord.Stage.DONE);
+            watchdog.unwatch(record);
+            history.record(record);
+        }
+        return matched;
+    }
+
+    /**
+     * @param candidates triggers to test
+     * @param excluded triggers to skip
+     * @return candidates except excluded ones. {@code candidates} itself if nothing is excluded.
+     */
+    @Nonnull
+    private static List<GitStatusTrigger> exclude(
+        @Nonnull List<GitStatusTrigger> candidates,
+        @Nonnull Map<GitStatusTrigger, Boolean> excluded
+    ) {
+        List<GitStatusTrigger> rest = null;
+        for (int i = 0; i < candidates.size(); ++i) {
+            GitStatusTrigger t = candidates.get(i);
+            if (excluded.containsKey(t)) {
+                if (rest == null) {
+                    rest = new ArrayList<GitStatusTrigger>(candidates.subList(0, i));
+                }
+            } else if (rest != null) {
+                rest.add(t);
+            }
+        }
+        return (rest != null) ? rest : candidates;
+    }
+
+    /**
+     * Triggers matched a notification and time spent for them.
+     */
+    static class DispatchResult {
+        /**
+         * Matched triggers, in the order of candidates. {@code null} if none.
+         */
+        @CheckForNull
+        List<GitStatusTrigger> matched = null;
+        long matchNanos = 0;
+        long scheduleNanos = 0;
+        int failures = 0;
+
+        /**
+         * Merge the result for following candidates.
+         *
+         * @param other the result for following candidates
+         */
+        void add(@Nonnull DispatchResult other) {
+            if (other.matched != null) {
+                if (matched == null) {
+                    matched = new ArrayList<GitStatusTrigger>(other.matched.size());
+                }
+                matched.addAll(other.matched);
+            }
+            matchNanos += other.matchNanos;
+            scheduleNanos += other.scheduleNanos;
+            failures += other.failures;
+        }
+    }
+
+    /**
+     * Match and schedule builds for a range of candidates.
+     *
+     * Failures in a trigger are logged, and don't prevent following triggers.
+     *
+     * @param candidates triggers to test
+     * @param from the first index in candidates, inclusive
+     * @param to the last index in candidates, exclusive
+     * @param uri URI of the repository, in the string representation
+     * @param branches branches update occurred
+     * @param record the record to update the stage. {@code null} not to update.
+     * @param result where to store results
+     */
+    static void dispatchRange(
+        @Nonnull List<GitStatusTrigger> candidates,
+        int from,
+        int to,
+        @Nonnull String uri,
+        @Nonnull String[] branches,
+        @CheckForNull NotificationRecord record,
+        @Nonnull DispatchResult result
+    ) {
+        long start = System.nanoTime();
+        long scheduleNanos = 0;
+        for (int i = from; i < to; ++i) {
+            GitStatusTrigger t = candidates.get(i);
+            try {
+                GitStatusTriggerCause c = t.match(uri, branches);
+                if (c != null) {
+                    long scheduleStart = System.nanoTime();
+                    if (record != null) {
+                        record.setStage(NotificationRecord.Stage.SCHEDULE);
+                    }
+                    try {
+                        ScheduleResult outcome = t.scheduleBuild(c);
+                        if (outcome != ScheduleResult.NOT_QUEUED) {
+                            GitStatusTriggerListenerQueue.offer(t.job, c, outcome == ScheduleResult.HELD);
+                        }
+                    } finally {
+                        if (record != null) {
+                            record.setStage(NotificationRecord.Stage.MATCH);
+                        }
+                        scheduleNanos += System.nanoTime() - scheduleStart;
+                    }
+                    if (result.matched == null) {
+                        result.matched = new ArrayList<GitStatusTrigger>();
+                    }
+                    result.matched.add(t);
+                }
+            } catch (RuntimeException e) {
+                ++result.failures;
+                LOG.log(
+                    Level.WARNING,
+                    String.format("Failed to dispatch push notification from %s to %s", uri, t.getJobFullName()),
+                    e
+                );
+            }
+        }
+        result.matchNanos += System.nanoTime() - start - scheduleNanos;
+        result.scheduleNanos += scheduleNanos;
+    }
+
+    /**
+     * Schedule builds for triggers referring shared repositories matching a notification.
+     *
+     * Each shared repository is tested only once.
+     * Triggers already in {@code result} or in {@code excluded} are not scheduled again.
+     *
+     * @param subscriptions shared repositories to test
+     * @param uri URI of the repository, in the string representation
+     * @param branches branches update occurred
+     * @param record the record to update the stage
+     * @param result where to store results
+     * @param excluded triggers already scheduled for the same push. Can be {@code null}.
+     */
+    static void dispatchShared(
+        @Nonnull List<SharedSubscription> subscriptions,
+        @Nonnull String uri,
+        @Nonnull String[] branches,
+        @Nonnull NotificationRecord record,
+        @Nonnull DispatchResult result,
+        @CheckForNull Map<GitStatusTrigger, Boolean> excluded
+    ) {
+        long start = System.nanoTime();
+        long scheduleNanos = 0;
+        Map<GitStatusTrigger, Boolean> scheduled = null;
+        for (int i = 0; i < subscriptions.size(); ++i) {
+            SharedSubscription s = subscriptions.get(i);
+            GitStatusTriggerCause c = traceMatch(
+                "SharedRepository.isMatch",
+                s.repository.getTarget(),
+                null,
+                s.repository.getId(),
+                uri,
+                branches
+            );
+            if (c == null) {
+                continue;
+            }
+            if (scheduled == null) {
+                scheduled = new IdentityHashMap<GitStatusTrigger, Boolean>();
+                if (excluded != null) {
+                    scheduled.putAll(excluded);
+                }
+                if (result.matched != null) {
+                    for (GitStatusTrigger t: result.matched) {
+                        scheduled.put(t, Boolean.TRUE);
+                    }
+                }
+            }
+            for (GitStatusTrigger t: s.triggers) {
+                if (scheduled.put(t, Boolean.TRUE) != null) {
+                    continue;
+                }
+                long scheduleStart = System.nanoTime();
+                record.setStage(NotificationRecord.Stage.SCHEDULE);
+                try {
+                    ScheduleResult outcome = t.scheduleBuild(c);
+                    if (outcome != ScheduleResult.NOT_QUEUED) {
+                        GitStatusTriggerListenerQueue.offer(t.job, c, outcome == ScheduleResult.HELD);
+                    }
+                    if (result.matched == null) {
+                        result.matched = new ArrayList<GitStatusTrigger>();
+                    }
+                    result.matched.add(t);
+                } catch (RuntimeException e) {
+                    ++result.failures;
+                    LOG.log(
+                        Level.WARNING,
+                        String.format("Failed to dispatch push notification from %s to %s", uri, t.getJobFullName()),
+                        e
+                    );
+                } finally {
+                    record.setStage(NotificationRecord.Stage.MATCH);
+                    scheduleNanos += System.nanoTime() - scheduleStart;
+                }
+            }
+        }
+        result.matchNanos += System.nanoTime() - start - scheduleNanos;
+        result.scheduleNanos += scheduleNanos;
+    }
+
+    /**
+     * Evaluate a notification just like {@link #BroadCastNotifyAll(URIish, String[])}
+     * without scheduling builds nor updating the match cache.
+     *
+     * All candidates are tested even when results are cached, to report matched targets.
+     * Should be called as the system.
+     *
+     * @param uri URI of the repository, in the string representation
+     * @param branches branches update occurred
+     * @return how the notification would be dispatched. {@code null} if Jenkins is not ready.
+     */
+    @CheckForNull
+    static NotificationSimulation simulate(@Nonnull String uri, @Nonnull String[] branches) {
+        NotificationSimulation simulation = new NotificationSimulation(uri, branches);
+        long lookupStart = System.nanoTime();
+        long generation = cacheGeneration.get();
+        IndexCache previous = indexCache;
+        IndexCache indexes = getIndex();
+        if (indexes == null) {
+            return null;
+        }
+        List<GitStatusTrigger> candidates = indexes.index.lookup(uri);
+        List<SharedSubscription> shared = indexes.sharedIndex.lookup(uri);
+        simulation.generation = indexes.generation;
+        simulation.indexRebuilt = (indexes != previous);
+        simulation.candidates = candidates.size();
+        simulation.sharedRepositories = shared.size();
+        MatchCache<GitStatusTrigger> cache = matchCache;
+        if (cache != null) {
+            simulation.matchCacheEnabled = true;
+            simulation.matchCacheable = MatchCache.isCacheable(branches);
+            simulation.matchCacheHit = cache.contains(generation, uri, branches);
+        }
+        simulation.fanOut = GitStatusTriggerFanOut.isApplicable(candidates.size());
+        simulation.lookupNanos = System.nanoTime() - lookupStart;
+
+        long matchStart = System.nanoTime();
+        Map<GitStatusTrigger, Boolean> matched = new IdentityHashMap<GitStatusTrigger, Boolean>();
+        for (int i = 0; i < candidates.size(); ++i) {
+            GitStatusTrigger t = candidates.get(i);
+            try {
+                GitStatusTriggerCause c = t.match(uri, branches);
+                if (c != null) {
+                    matched.put(t, Boolean.TRUE);
+                    simulation.matches.add(new NotificationSimulation.Match(
+                        t.getJobFullName(),
+                        c.getTarget(),
+                        c.getBranch(),
+                        null
+                    ));
+                }
+            } catch (RuntimeException e) {
+                LOG.log(
+                    Level.WARNING,
+                    String.format("Failed to simulate push notification from %s to %s", uri, t.getJobFullName()),
+                    e
+                );
+                simulation.failures.add(t.getJobFullName());
+            }
+        }
+        simulation.matchNanos = System.nanoTime() - matchStart;
+
+        long sharedStart = System.nanoTime();
+        for (int i = 0; i < shared.size(); ++i) {
+            SharedSubscription s = shared.get(i);
+            GitStatusTriggerCause c = s.repository.isMatch(uri, branches);
+            if (c == null) {
+                continue;
+            }
+            for (GitStatusTrigger t: s.triggers) {
+                if (matched.put(t, Boolean.TRUE) == null) {
+                    simulation.matches.add(new NotificationSimulation.Match(
+                        t.getJobFullName(),
+                        c.getTarget(),
+                        c.getBranch(),
+                        s.repository.getId()
+                    ));
+                }
+            }
+        }
+        simulation.sharedNanos = System.nanoTime() - sharedStart;
+        return simulation;
+    }
+
+    /**
+     * @return normalized URIs triggers subscribe to. {@code null} if Jenkins is not ready.
+     */
+    @CheckForNull
+    static Set<String> getSubscribedUris() {
+        IndexCache indexes = getIndex();
+        if (indexes == null) {
+            return null;
+        }
+        Set<String> uris = new HashSet<String>(indexes.index.getUris());
+        uris.addAll(indexes.sharedIndex.getUris());
+        return uris;
+    }
+
+    /**
+     * @return indexes of triggers. {@code null} if Jenkins is not ready.
+     */
+    @CheckForNull
+    private static IndexCache getIndex() {
+        IndexCache cache = indexCache;
+        if (cache != null && cache.generation == cacheGeneration.get()) {
+            return cache;
+        }
+        synchronized (scanLock) {
+            // Scan again if triggers start or stop while scanning,
+            // not to miss triggers started before the notification.
+            for (int i = 0; i <= MAX_SCAN_RETRIES; ++i) {
+                cache = indexCache;
+                long generation = cacheGeneration.get();
+                if (cache != null && cache.generation == generation) {
+                    return cache;
+                }
+                TriggerEvents events = TriggerFlightRecorder.EVENTS;
+                Object rebuildEvent = (events != null) ? events.beginIndexRebuild() : null;
+                List<GitStatusTrigger> scanned = scanItemsToNotify();
+                if (scanned == null) {
+                    return null;
+                }
+                cache = new IndexCache(generation, scanned);
+                indexCache = cache;
+                if (rebuildEvent != null) {
+                    events.endIndexRebuild(rebuildEvent, scanned.size());
+                }
+                if (generation == cacheGeneration.get()) {
+                    break;
+                }
+            }
+            return cache;
+        }
+    }
+
+    @CheckForNull
+    private static List<GitStatusTrigger> scanItemsToNotify() {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return null;
+        }
+        List<GitStatusTrigger> scanned = new ArrayList<GitStatusTrigger>();
+        for (Item item: jenkins.getAllItems()) {
+            GitStatusTrigger t = getGitStatusTrigger(item);
+            if (t != null) {
+                scanned.add(t);
+            }
+        }
+        return scanned;
+    }
+
+    @CheckForNull
+    static GitStatusTrigger getGitStatusTrigger(@Nonnull Item item) {
+        if (item instanceof AbstractProject) {
+            return ((AbstractProject<?, ?>)item).getTrigger(GitStatusTrigger.class);
+        }
+        // Support Map<TriggerDescriptor,Trigger<?>> getTriggers()
+        // In case of ParameterizedJobMixIn.ParameterizedJob
+        Method m = null;
+        try {
+            m = item.getClass().getMethod("getTriggers");
+        } catch(NoSuchMethodException e) {
+            return null;
+        } catch(SecurityException e) {
+            return null;
+        }
+        Object ret = null;
+        try {
+            ret = m.invoke(item);
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            return null;
+        }
+        if (ret == null) {
+            return null;
+        }
+        if (!(ret instanceof Map)) {
+            return null;
+        }
+        for (Object t: ((Map<?, ?>)ret).values()) {
+            if (t instanceof GitStatusTrigger) {
+                return (GitStatusTrigger)t;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Called when git-plugin push notification from repositories
+     *
+     * @param uri URI of the repository
+     * @param branches branches update occurred
+     */
+    public void onNotifyCommit(@Nonnull URIish uri, @Nonnull String... branches) {
+        GitStatusTriggerCause c = match(uri.toString(), branches);
+        if (c != null) {
+            scheduleBuild(c);
+        }
+    }
+
+    /**
+     * Test whether the notification matches any of targets
+     *
+     * @param uri URI of the repository, in the string representation
+     * @param branches branches update occurred
+     * @return the cause for the first matched target. {@code null} if nothing matched.
+     */
+    @CheckForNull
+    GitStatusTriggerCause match(@Nonnull String uri, @Nonnull String... branches) {
+        // Don't use an iterator not to allocate objects for each notification.
+        List<GitStatusTarget> targets = getTargetList();
+        for (int i = 0; i < targets.size(); ++i) {
+            GitStatusTriggerCause c = traceMatch("GitStatusTarget.isMatch", targets.get(i), this, null, uri, branches);
+            if (c != null) {
+                return c;
+            }
+        }
+        List<SharedRepositoryReference> refs = getSharedRepositoryList();
+        for (int i = 0; i < refs.size(); ++i) {
+            SharedRepository repository = refs.get(i).resolve();
+            if (repository != null) {
+                GitStatusTriggerCause c = traceMatch(
+                    "SharedRepository.isMatch",
+                    repository.getTarget(),
+                    this,
+                    repository.getId(),
+                    uri,
+                    branches
+                );
+                if (c != null) {
+                    return c;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Test a target in a span if tracing is enabled.
+     *
+     * @param name name of the span
+     * @param target the target to test
+     * @param trigger the trigger testing the target. {@code null} if tested for multiple triggers.
+     * @param sharedRepositoryId id of the shared repository of the target. {@code null} if not shared.
+     * @param uri URI of the repository, in the string representation
+     * @param branches branches update occurred
+     * @return the cause if matched. {@code null} if not matched.
+     */
+    @CheckForNull
+    private static GitStatusTriggerCause traceMatch(
+        @Nonnull String name,
+        @Nonnull GitStatusTarget target,
+        @CheckForNull GitStatusTrigger trigger,
+        @CheckForNull String sharedRepositoryId,
+        @Nonnull String uri,
+        @Nonnull String[] branches
+    ) {
+        Span span = NotificationTracing.start(name);
+        if (span == null) {
+            return target.isMatch(uri, branches);
+        }
+        try {
+            if (trigger != null) {
+                span.setAttribute("job", trigger.getJobFullName());
+            }
+            span.setAttribute("uri", uri)
+                .setAttribute("target.uri", target.getUri())
+                .setAttribute("target.branches", target.getBranches());
+            if (sharedRepositoryId != null) {
+                span.setAttribute("sharedRepository", sharedRepositoryId);
+            }
+            GitStatusTriggerCause c = target.isMatch(uri, branches);
+            span.setAttribute("matched", c != null);
+            return c;
+        } catch (RuntimeException e) {
+            span.setError(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * @return full name of the job of this trigger. {@code null} if not started.
+     */
+    @CheckForNull
+    String getJobFullName() {
+        return (job != null) ? job.getFullName() : null;
+    }
+
+    /**
+     * @return whether the current user can see the job of this trigger.
+     */
+    boolean isJobReadable() {
+        return job != null && job.hasPermission(Item.READ);
+    }
+
+    /**
+     * What {@link GitStatusTrigger#scheduleBuild(GitStatusTriggerCause)} did.
+     */
+    enum ScheduleResult {
+        /**
+         * Put into the build queue.
+         */
+        QUEUED,
+        /**
+         * Held in {@link BuildHoldingArea}, and scheduled later.
+         */
+        HELD,
+        /**
+         * Not scheduled, e.g. the job is disabled or already in the queue.
+         */
+        NOT_QUEUED,
+    }
+
+    /**
+     * @param c the cause of the build
+     * @return whether the build is queued or held
+     */
+    @Nonnull
+    private ScheduleResult scheduleBuild(@Nonnull GitStatusTriggerCause c) {
+        if (job == null) {
+            // Strange case that start() is not called.
+            return ScheduleResult.NOT_QUEUED;
+        }
+        if (!(job instanceof BuildableItem)) {
+            LOG.log(
+                Level.WARNING,
+                "Push notification from {0} (branch={1}) matches {2},"
+                + " but not applicable as {2} is not buildable.",
+                new Object[] {
+                    c.getUri(),
+                    c.getBranch(),
+                    job.getFullDisplayName(),
+                }
+            );
+            return ScheduleResult.NOT_QUEUED;
+        }
+        BuildableItem item = (BuildableItem)job;
+        Span span = NotificationTracing.start("scheduleBuild");
+        if (span != null) {
+            span.setAttribute("job", job.getFullName()).setAttribute("branch", c.getBranch());
+        }
+        TriggerEvents events = TriggerFlightRecorder.EVENTS;
+        Object scheduleEvent = (events != null) ? events.beginBuildScheduled() : null;
+        boolean held = false;
+        try {
+            if (BuildHoldingArea.get().hold(item, c)) {
+                // scheduled later when the queue gets less loaded.
+                held = true;
+                if (span != null) {
+                    span.setAttribute("held", true);
+                }
+                return ScheduleResult.HELD;
+            }
+            return item.scheduleBuild(c) ? ScheduleResult.QUEUED : ScheduleResult.NOT_QUEUED;
+        } catch (RuntimeException e) {
+            if (span != null) {
+                span.setError(e);
+            }
+            throw e;
+        } finally {
+            NotificationTracing.end(span);
+            if (scheduleEvent != null) {
+                events.endBuildScheduled(scheduleEvent, job.getFullName(), c.getBranch(), held);
+            }
+        }
+    }
+
+    /**
+     * Descriptor for {@link GitStatusTrigger}
+     */
+    @Extension
+    public static class DescriptorImpl extends TriggerDescriptor {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isApplicable(Item item) {
+            return (item instanceof BuildableItem);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getDisplayName() {
+            return Messages.GitStatusTrigger_DisplayName();
+        }
+    }
+
+    /**
+     * Listener for git push notification.
+     */
+    @Extension
+    public static class GitStatusListenerImpl extends GitStatus.Listener {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<ResponseContributor> onNotifyCommit(URIish uri, String... branches) {
+            NotificationCapture.record(uri, branches);
+            Span span = NotificationTracing.isEnabled()
+                ? NotificationTracing.start("onNotifyCommit", uri.toString(), branches)
+                : null;
+            try {
+                GitStatusTrigger.notifyCommit(uri, branches);
+            } catch (RuntimeException e) {
+                if (span != null) {
+                    span.setError(e);
+                }
+                throw e;
+            } finally {
+                NotificationTracing.end(span);
+            }
+            return Collections.emptyList();
+        }
+    }
+}
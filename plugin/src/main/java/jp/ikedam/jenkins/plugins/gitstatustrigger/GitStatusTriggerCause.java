@@ -24,6 +24,8 @@
 
 package jp.ikedam.jenkins.plugins.gitstatustrigger;
 
+import javax.annotation.CheckForNull;
+
 import org.apache.commons.lang.StringUtils;
 
 import hudson.model.Cause;
@@ -34,14 +36,26 @@ import hudson.model.Cause;
 public class GitStatusTriggerCause extends Cause {
     private final String uri;
     private final String branch;
+    @CheckForNull
+    private final transient GitStatusTarget target;
 
     /**
      * @param uri URI of notified repository
      * @param branch notified branch
      */
     public GitStatusTriggerCause(String uri, String branch) {
+        this(uri, branch, null);
+    }
+
+    /**
+     * @param uri URI of notified repository
+     * @param branch notified branch
+     * @param target the target matched the notification
+     */
+    GitStatusTriggerCause(String uri, String branch, @CheckForNull GitStatusTarget target) {
         this.uri = uri;
         this.branch = branch;
+        this.target = target;
     }
 
     /**
@@ -58,6 +72,15 @@ public class GitStatusTriggerCause extends Cause {
         return branch;
     }
 
+    /**
+     * @return the target matched the notification.
+     *     {@code null} if loaded from a build, as it isn't saved.
+     */
+    @CheckForNull
+    public GitStatusTarget getTarget() {
+        return target;
+    }
+
     /**
      * @return notified branch. "(none)" for brank.
      */
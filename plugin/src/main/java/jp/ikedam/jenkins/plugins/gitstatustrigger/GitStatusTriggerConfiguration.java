@@ -0,0 +1,430 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.util.FormValidation;
+import hudson.util.Secret;
+import jenkins.model.GlobalConfiguration;
+import net.sf.json.JSONObject;
+
+/**
+ * System-wide configurations for {@link GitStatusTrigger}
+ */
+@Extension
+public class GitStatusTriggerConfiguration extends GlobalConfiguration {
+    private static final long DEFAULT_WATCHDOG_REPORT_INTERVAL = 60;
+    private static final int DEFAULT_JOURNAL_SIZE = 16;
+    private static final int DEFAULT_BACKPRESSURE_RELEASE_COUNT = 10;
+    static final int DEFAULT_FAIR_QUEUE_BACKLOG = 100;
+
+    private long watchdogThreshold = 0;
+    private long watchdogReportInterval = DEFAULT_WATCHDOG_REPORT_INTERVAL;
+    private boolean journalEnabled = false;
+    private int journalSize = DEFAULT_JOURNAL_SIZE;
+    private int backpressureQueueLength = 0;
+    private int backpressureLabelLoad = 0;
+    private int backpressureReleaseCount = DEFAULT_BACKPRESSURE_RELEASE_COUNT;
+    private int fanOutThreshold = 0;
+    private int fanOutThreads = 0;
+    private int matchCacheSize = 0;
+    private int fairQueueThreads = 0;
+    private int fairQueueBacklog = DEFAULT_FAIR_QUEUE_BACKLOG;
+    @CheckForNull
+    private String captureFile = null;
+    @CheckForNull
+    private String traceFile = null;
+    @CheckForNull
+    private String relayPeers = null;
+    @CheckForNull
+    private Secret relaySecret = null;
+    @CheckForNull
+    private List<SharedRepository> sharedRepositories = null;
+
+    public GitStatusTriggerConfiguration() {
+        load();
+        apply();
+    }
+
+    /**
+     * @return the instance. {@code null} if Jenkins is not ready.
+     */
+    @CheckForNull
+    public static GitStatusTriggerConfiguration get() {
+        return GlobalConfiguration.all().get(GitStatusTriggerConfiguration.class);
+    }
+
+    /**
+     * @return milliseconds to report a notification as slow. 0 for disabled.
+     */
+    public long getWatchdogThreshold() {
+        return watchdogThreshold;
+    }
+
+    /**
+     * @param watchdogThreshold milliseconds to report a notification as slow. 0 for disabled.
+     */
+    public void setWatchdogThreshold(long watchdogThreshold) {
+        this.watchdogThreshold = Math.max(0, watchdogThreshold);
+    }
+
+    /**
+     * @return minimum seconds between reports of slow notifications
+     */
+    public long getWatchdogReportInterval() {
+        return watchdogReportInterval;
+    }
+
+    /**
+     * @param watchdogReportInterval minimum seconds between reports of slow notifications
+     */
+    public void setWatchdogReportInterval(long watchdogReportInterval) {
+        this.watchdogReportInterval = Math.max(0, watchdogReportInterval);
+    }
+
+    /**
+     * @return whether to journal notifications to dispatch them after restarted
+     */
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    /**
+     * @param journalEnabled whether to journal notifications to dispatch them after restarted
+     */
+    public void setJournalEnabled(boolean journalEnabled) {
+        this.journalEnabled = journalEnabled;
+    }
+
+    /**
+     * @return size of the journal in megabytes
+     */
+    public int getJournalSize() {
+        return journalSize;
+    }
+
+    /**
+     * @param journalSize size of the journal in megabytes
+     */
+    public void setJournalSize(int journalSize) {
+        this.journalSize = Math.max(1, journalSize);
+    }
+
+    /**
+     * @return number of buildable items in the queue to hold triggered builds. 0 for disabled.
+     */
+    public int getBackpressureQueueLength() {
+        return backpressureQueueLength;
+    }
+
+    /**
+     * @param backpressureQueueLength number of buildable items in the queue to hold triggered builds. 0 for disabled.
+     */
+    public void setBackpressureQueueLength(int backpressureQueueLength) {
+        this.backpressureQueueLength = Math.max(0, backpressureQueueLength);
+    }
+
+    /**
+     * @return load of the label of the job in percentage to hold triggered builds. 0 for disabled.
+     */
+    public int getBackpressureLabelLoad() {
+        return backpressureLabelLoad;
+    }
+
+    /**
+     * @param backpressureLabelLoad load of the label of the job in percentage to hold triggered builds. 0 for disabled.
+     */
+    public void setBackpressureLabelLoad(int backpressureLabelLoad) {
+        this.backpressureLabelLoad = Math.max(0, backpressureLabelLoad);
+    }
+
+    /**
+     * @return maximum number of held builds to schedule at a time
+     */
+    public int getBackpressureReleaseCount() {
+        return backpressureReleaseCount;
+    }
+
+    /**
+     * @param backpressureReleaseCount maximum number of held builds to schedule at a time
+     */
+    public void setBackpressureReleaseCount(int backpressureReleaseCount) {
+        this.backpressureReleaseCount = Math.max(1, backpressureReleaseCount);
+    }
+
+    /**
+     * @return number of matching candidates to dispatch a notification in parallel. 0 for disabled.
+     */
+    public int getFanOutThreshold() {
+        return fanOutThreshold;
+    }
+
+    /**
+     * @param fanOutThreshold number of matching candidates to dispatch a notification in parallel. 0 for disabled.
+     */
+    public void setFanOutThreshold(int fanOutThreshold) {
+        this.fanOutThreshold = Math.max(0, fanOutThreshold);
+    }
+
+    /**
+     * @return number of threads to dispatch a notification in parallel. 0 for the number of processors.
+     */
+    public int getFanOutThreads() {
+        return fanOutThreads;
+    }
+
+    /**
+     * @param fanOutThreads number of threads to dispatch a notification in parallel. 0 for the number of processors.
+     */
+    public void setFanOutThreads(int fanOutThreads) {
+        this.fanOutThreads = Math.max(0, fanOutThreads);
+    }
+
+    /**
+     * @return number of notifications to remember matched jobs. 0 for disabled.
+     */
+    public int getMatchCacheSize() {
+        return matchCacheSize;
+    }
+
+    /**
+     * @param matchCacheSize number of notifications to remember matched jobs. 0 for disabled.
+     */
+    public void setMatchCacheSize(int matchCacheSize) {
+        this.matchCacheSize = Math.max(0, matchCacheSize);
+    }
+
+    /**
+     * @return number of threads to dispatch notifications asynchronously. 0 for disabled.
+     */
+    public int getFairQueueThreads() {
+        return fairQueueThreads;
+    }
+
+    /**
+     * @param fairQueueThreads number of threads to dispatch notifications asynchronously. 0 for disabled.
+     */
+    public void setFairQueueThreads(int fairQueueThreads) {
+        this.fairQueueThreads = Math.max(0, fairQueueThreads);
+    }
+
+    /**
+     * @return maximum number of notifications queued for a repository
+     */
+    public int getFairQueueBacklog() {
+        return fairQueueBacklog;
+    }
+
+    /**
+     * @param fairQueueBacklog maximum number of notifications queued for a repository
+     */
+    public void setFairQueueBacklog(int fairQueueBacklog) {
+        this.fairQueueBacklog = Math.max(1, fairQueueBacklog);
+    }
+
+    /**
+     * @return the file to record notifications to. {@code null} not to record.
+     */
+    @CheckForNull
+    public String getCaptureFile() {
+        return captureFile;
+    }
+
+    /**
+     * @param captureFile the file to record notifications to. {@code null} not to record.
+     */
+    public void setCaptureFile(@CheckForNull String captureFile) {
+        this.captureFile = Util.fixEmptyAndTrim(captureFile);
+    }
+
+    /**
+     * @return the file to write traces to. {@code null} not to trace.
+     */
+    @CheckForNull
+    public String getTraceFile() {
+        return traceFile;
+    }
+
+    /**
+     * @param traceFile the file to write traces to. {@code null} not to trace.
+     */
+    public void setTraceFile(@CheckForNull String traceFile) {
+        this.traceFile = Util.fixEmptyAndTrim(traceFile);
+    }
+
+    /**
+     * @return root URLs of controllers to forward notifications to, one per line
+     */
+    @CheckForNull
+    public String getRelayPeers() {
+        return relayPeers;
+    }
+
+    /**
+     * @param relayPeers root URLs of controllers to forward notifications to, one per line
+     */
+    public void setRelayPeers(@CheckForNull String relayPeers) {
+        this.relayPeers = Util.fixEmptyAndTrim(relayPeers);
+    }
+
+    /**
+     * @return the secret shared among controllers relaying notifications
+     */
+    @CheckForNull
+    public Secret getRelaySecret() {
+        return relaySecret;
+    }
+
+    /**
+     * @param relaySecret the secret shared among controllers relaying notifications
+     */
+    public void setRelaySecret(@CheckForNull Secret relaySecret) {
+        this.relaySecret = relaySecret;
+    }
+
+    /**
+     * @return repositories shared among jobs
+     */
+    @Nonnull
+    public List<SharedRepository> getSharedRepositories() {
+        return (sharedRepositories != null)
+            ? sharedRepositories
+            : Collections.<SharedRepository>emptyList();
+    }
+
+    /**
+     * @param sharedRepositories repositories shared among jobs
+     */
+    public void setSharedRepositories(@CheckForNull List<SharedRepository> sharedRepositories) {
+        this.sharedRepositories = (sharedRepositories != null && !sharedRepositories.isEmpty())
+            ? new ArrayList<SharedRepository>(sharedRepositories)
+            : null;
+    }
+
+    /**
+     * Reflect configurations to running components.
+     */
+    private void apply() {
+        NotificationWatchdog.get().configure(
+            getWatchdogThreshold(),
+            TimeUnit.SECONDS.toMillis(getWatchdogReportInterval())
+        );
+        GitStatusTriggerJournal.configure(isJournalEnabled(), getJournalSize());
+        BuildHoldingArea.get().configure(
+            getBackpressureQueueLength(),
+            getBackpressureLabelLoad(),
+            getBackpressureReleaseCount()
+        );
+        GitStatusTriggerFanOut.configure(getFanOutThreshold(), getFanOutThreads());
+        GitStatusTrigger.configureMatchCache(getMatchCacheSize());
+        GitStatusTriggerFairQueue.configure(getFairQueueThreads(), getFairQueueBacklog());
+        NotificationCapture.configure(getCaptureFile());
+        NotificationTracing.configure(getTraceFile());
+        GitStatusTriggerRelay.configure(
+            GitStatusTriggerRelay.parsePeers(getRelayPeers()),
+            Util.fixEmpty(Secret.toString(getRelaySecret()))
+        );
+        SharedRepository.configure(getSharedRepositories());
+        // triggers may refer changed repositories.
+        GitStatusTrigger.clearCache();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+        // not bound when all of them are removed.
+        setSharedRepositories(null);
+        req.bindJSON(this, json);
+        save();
+        apply();
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDisplayName() {
+        return Messages.GitStatusTriggerConfiguration_DisplayName();
+    }
+
+    public FormValidation doCheckWatchdogThreshold(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckWatchdogReportInterval(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckJournalSize(@QueryParameter String value) {
+        return FormValidation.validatePositiveInteger(value);
+    }
+
+    public FormValidation doCheckBackpressureQueueLength(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckBackpressureLabelLoad(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckBackpressureReleaseCount(@QueryParameter String value) {
+        return FormValidation.validatePositiveInteger(value);
+    }
+
+    public FormValidation doCheckFanOutThreshold(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckFanOutThreads(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckMatchCacheSize(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckFairQueueThreads(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckFairQueueBacklog(@QueryParameter String value) {
+        return FormValidation.validatePositiveInteger(value);
+    }
+}
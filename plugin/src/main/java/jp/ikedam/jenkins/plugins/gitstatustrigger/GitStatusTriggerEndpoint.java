@@ -0,0 +1,576 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URISyntaxException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.transport.URIish;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.UnprotectedRootAction;
+import hudson.security.ACL;
+import hudson.security.csrf.CrumbExclusion;
+import hudson.util.Secret;
+import jenkins.model.Jenkins;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.Notification;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.NotificationRelay;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.PushPayloadParser;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.Span;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+
+/**
+ * Endpoints to receive push notifications directly.
+ *
+ * Not protected like /git/notifyCommit of git plugin,
+ * as Git servers send notifications without credentials.
+ */
+@Extension
+public class GitStatusTriggerEndpoint implements UnprotectedRootAction {
+    /**
+     * URL of this action.
+     */
+    public static final String URL_NAME = "git-status-trigger";
+
+    /**
+     * Maximum size of request bodies in characters.
+     * Larger requests are rejected with 413.
+     */
+    static final int MAX_BODY_SIZE =
+        Integer.getInteger(GitStatusTriggerEndpoint.class.getName() + ".maxBodySize", 1024 * 1024);
+
+    /**
+     * Maximum number of notifications in a request to {@link #doNotifyCommits(StaplerRequest)}.
+     * Requests with more notifications are rejected with 400.
+     */
+    static final int MAX_NOTIFICATIONS =
+        Integer.getInteger(GitStatusTriggerEndpoint.class.getName() + ".maxNotifications", 1000);
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getIconFileName() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getDisplayName() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    /**
+     * Receive multiple notifications at once.
+     *
+     * Accepts POST with a JSON array of notifications:
+     * <pre>
+     * [
+     *   {"url": "https://git.example.com/repo1.git", "branches": ["master", "develop"]},
+     *   {"url": "https://git.example.com/repo2.git", "branches": "master,develop"},
+     *   {"url": "https://git.example.com/repo3.git"}
+     * ]
+     * </pre>
+     * Each notification is handled just like one from /git/notifyCommit,
+     * and the response holds the result of each notification in the same order:
+     * <pre>
+     * {"results": [
+     *   {"url": "https://git.example.com/repo1.git", "triggered": ["job1", "folder/job2"], "count": 2},
+     *   {"url": "https://git.example.com/repo2.git", "triggered": [], "count": 0},
+     *   {"url": "invalid url", "error": "..."}
+     * ]}
+     * </pre>
+     * Only jobs the caller can read are listed in {@code "triggered"},
+     * and {@code "count"} is the number of them.
+     * When notifications are dispatched asynchronously,
+     * results have {@code "queued": true} instead of triggered jobs.
+     *
+     * Notifications forwarded from another controller (with {@link NotificationRelay#RELAYED_HEADER})
+     * require the secret in {@link NotificationRelay#SECRET_HEADER} if the secret for relaying is configured.
+     *
+     * Requests larger than {@link #MAX_BODY_SIZE} are rejected with 413,
+     * and ones with more than {@link #MAX_NOTIFICATIONS} notifications with 400.
+     *
+     * @param req request
+     * @return response
+     * @throws IOException failed to read the request
+     */
+    public HttpResponse doNotifyCommits(StaplerRequest req) throws IOException {
+        if (!"POST".equals(req.getMethod())) {
+            return HttpResponses.error(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "POST is required");
+        }
+        String body = readBody(req);
+        if (body == null) {
+            return tooLarge();
+        }
+        JSONArray notifications;
+        try {
+            Object json = JSONSerializer.toJSON(body);
+            if (!(json instanceof JSONArray)) {
+                return HttpResponses.error(HttpServletResponse.SC_BAD_REQUEST, "Expected an array of notifications");
+            }
+            notifications = (JSONArray)json;
+        } catch (JSONException e) {
+            return HttpResponses.error(HttpServletResponse.SC_BAD_REQUEST, e);
+        }
+        if (notifications.size() > MAX_NOTIFICATIONS) {
+            return HttpResponses.error(
+                HttpServletResponse.SC_BAD_REQUEST,
+                String.format("Too many notifications: up to %d are allowed", MAX_NOTIFICATIONS)
+            );
+        }
+        // Don't forward notifications forwarded from another controller again.
+        boolean relay = (req.getHeader(NotificationRelay.RELAYED_HEADER) == null);
+        if (!relay && getRelaySecret() != null && !isValidSecret(req)) {
+            return HttpResponses.error(HttpServletResponse.SC_FORBIDDEN, "Invalid secret");
+        }
+        JSONArray results = new JSONArray();
+        for (Object o: notifications) {
+            results.add(notify(o, relay));
+        }
+        JSONObject response = new JSONObject();
+        response.put("results", results);
+        return jsonResponse(response);
+    }
+
+    /**
+     * Receive a push webhook of GitHub, GitLab or Gitea.
+     *
+     * Notifications are dispatched for each URL of the repository in the payload
+     * (e.g. the https URL and the ssh URL),
+     * directly to triggers without the processing of the git plugin.
+     * A job is triggered only once even if it matches several URLs.
+     * When notifications are dispatched asynchronously, they are queued for all URLs
+     * and jobs matching several URLs are left to the queue of Jenkins to merge.
+     * Accepts payloads both in JSON and in form-encoded "payload" parameter.
+     * Payloads other than pushes (e.g. pings) are accepted and ignored.
+     * Payloads larger than {@link #MAX_BODY_SIZE} are rejected with 413.
+     *
+     * The response is in the same format as {@link #doNotifyCommits(StaplerRequest)}.
+     *
+     * @param req request
+     * @return response
+     * @throws IOException failed to read the request
+     */
+    public HttpResponse doPush(StaplerRequest req) throws IOException {
+        if (!"POST".equals(req.getMethod())) {
+            return HttpResponses.error(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "POST is required");
+        }
+        String payload;
+        if (StringUtils.startsWith(req.getContentType(), "application/x-www-form-urlencoded")) {
+            // the container reads the whole body for parameters.
+            if (req.getContentLength() > MAX_BODY_SIZE) {
+                return tooLarge();
+            }
+            payload = req.getParameter("payload");
+            if (payload == null) {
+                return HttpResponses.error(HttpServletResponse.SC_BAD_REQUEST, "payload is required");
+            }
+        } else {
+            payload = readBody(req);
+        }
+        if (payload == null || payload.length() > MAX_BODY_SIZE) {
+            return tooLarge();
+        }
+        List<Notification> notifications;
+        try {
+            notifications = PushPayloadParser.parse(new StringReader(payload));
+        } catch (IOException e) {
+            return HttpResponses.error(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        }
+        JSONArray results = new JSONArray();
+        // other URLs are for the same repository.
+        Map<GitStatusTrigger, Boolean> scheduled = new IdentityHashMap<GitStatusTrigger, Boolean>();
+        for (Notification n: notifications) {
+            results.add(notify(n.getUri(), n.getBranches(), true, scheduled));
+        }
+        JSONObject response = new JSONObject();
+        response.put("results", results);
+        return jsonResponse(response);
+    }
+
+    /**
+     * Evaluate a notification without scheduling builds, to debug which jobs it triggers and its cost.
+     *
+     * Accepts POST with a notification in the same format as {@link #doNotifyCommits(StaplerRequest)}:
+     * <pre>
+     * {"url": "https://git.example.com/repo1.git", "branches": ["master"]}
+     * </pre>
+     * and responds with matched jobs and targets, how triggers were looked up,
+     * and time spent for each stage in nanoseconds:
+     * <pre>
+     * {
+     *   "url": "https://git.example.com/repo1.git",
+     *   "branches": ["master"],
+     *   "index": {"generation": 3, "rebuilt": false, "candidates": 2, "sharedRepositories": 0},
+     *   "matchCache": {"enabled": true, "cacheable": true, "hit": false},
+     *   "fanOut": false,
+     *   "matched": [
+     *     {"job": "job1", "uri": "https://git.example.com/repo1.git", "branches": "master", "branch": "master"}
+     *   ],
+     *   "failed": [],
+     *   "nanos": {"lookup": 12000, "match": 3400, "shared": 100}
+     * }
+     * </pre>
+     * Neither the build queue nor the match cache is updated.
+     * Requires the permission to administer Jenkins.
+     *
+     * @param req request
+     * @return response
+     * @throws IOException failed to read the request
+     */
+    public HttpResponse doSimulate(StaplerRequest req) throws IOException {
+        if (!"POST".equals(req.getMethod())) {
+            return HttpResponses.error(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "POST is required");
+        }
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return HttpResponses.error(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Jenkins is not ready");
+        }
+        jenkins.checkPermission(Jenkins.ADMINISTER);
+        String body = readBody(req);
+        if (body == null) {
+            return tooLarge();
+        }
+        JSONObject n;
+        try {
+            Object json = JSONSerializer.toJSON(body);
+            if (!(json instanceof JSONObject)) {
+                return HttpResponses.error(HttpServletResponse.SC_BAD_REQUEST, "Expected an object with url and branches");
+            }
+            n = (JSONObject)json;
+        } catch (JSONException e) {
+            return HttpResponses.error(HttpServletResponse.SC_BAD_REQUEST, e);
+        }
+        String url = n.optString("url", null);
+        if (StringUtils.isBlank(url)) {
+            return HttpResponses.error(HttpServletResponse.SC_BAD_REQUEST, "url is required");
+        }
+        String uri;
+        try {
+            // in the same representation as notifications from the git plugin.
+            uri = new URIish(url).toString();
+        } catch (URISyntaxException e) {
+            return HttpResponses.error(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        }
+        NotificationSimulation simulation;
+        // see all jobs just like dispatching notifications.
+        SecurityContext orig = ACL.impersonate(ACL.SYSTEM);
+        try {
+            simulation = GitStatusTrigger.simulate(uri, getBranches(n));
+        } finally {
+            SecurityContextHolder.setContext(orig);
+        }
+        if (simulation == null) {
+            return HttpResponses.error(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Jenkins is not ready");
+        }
+        return jsonResponse(simulation.toJSON());
+    }
+
+    /**
+     * List URIs of repositories triggers subscribe to, one per line.
+     *
+     * Used by controllers forwarding notifications to this controller.
+     * Requires the secret configured for relaying in {@link NotificationRelay#SECRET_HEADER},
+     * and not available if the secret is not configured.
+     *
+     * @param req request
+     * @return response
+     */
+    public HttpResponse doSubscriptions(StaplerRequest req) {
+        if (getRelaySecret() == null) {
+            return HttpResponses.error(HttpServletResponse.SC_NOT_FOUND, "Relaying is not configured");
+        }
+        if (!isValidSecret(req)) {
+            return HttpResponses.error(HttpServletResponse.SC_FORBIDDEN, "Invalid secret");
+        }
+        final Set<String> uris = GitStatusTrigger.getSubscribedUris();
+        if (uris == null) {
+            return HttpResponses.error(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Jenkins is not ready");
+        }
+        return new HttpResponse() {
+            public void generateResponse(StaplerRequest req, StaplerResponse rsp, Object node)
+                throws IOException, ServletException
+            {
+                rsp.setContentType("text/plain;charset=UTF-8");
+                PrintWriter w = rsp.getWriter();
+                for (String uri: uris) {
+                    w.println(uri);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the secret for relaying. {@code null} if not configured.
+     */
+    @CheckForNull
+    private static String getRelaySecret() {
+        GitStatusTriggerConfiguration config = GitStatusTriggerConfiguration.get();
+        return (config != null) ? Util.fixEmpty(Secret.toString(config.getRelaySecret())) : null;
+    }
+
+    /**
+     * Compare the secret in the request with the configured one in constant time.
+     *
+     * @param req request
+     * @return whether the request has the configured secret
+     */
+    private static boolean isValidSecret(@Nonnull StaplerRequest req) {
+        String secret = getRelaySecret();
+        String actual = req.getHeader(NotificationRelay.SECRET_HEADER);
+        if (secret == null || actual == null) {
+            return false;
+        }
+        try {
+            return MessageDigest.isEqual(secret.getBytes("UTF-8"), actual.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Nonnull
+    private JSONObject notify(@CheckForNull Object notification, boolean relay) {
+        JSONObject result = new JSONObject();
+        if (!(notification instanceof JSONObject)) {
+            result.put("error", "Expected an object with url and branches");
+            return result;
+        }
+        JSONObject n = (JSONObject)notification;
+        String url = n.optString("url", null);
+        if (StringUtils.isBlank(url)) {
+            result.put("error", "url is required");
+            return result;
+        }
+        return notify(url, getBranches(n), relay, null);
+    }
+
+    /**
+     * @param url URL of the repository
+     * @param branches branches
+     * @param relay whether to forward the notification to other controllers
+     * @param scheduled triggers already scheduled for the same push, which are skipped.
+     *     Triggers of scheduled jobs are added, including ones the caller can't read. Can be {@code null}.
+     * @return the result
+     */
+    @Nonnull
+    private JSONObject notify(
+        @Nonnull String url,
+        @Nonnull String[] branches,
+        boolean relay,
+        @CheckForNull Map<GitStatusTrigger, Boolean> scheduled
+    ) {
+        JSONObject result = new JSONObject();
+        result.put("url", url);
+        URIish uri;
+        try {
+            uri = new URIish(url);
+        } catch (URISyntaxException e) {
+            result.put("error", e.getMessage());
+            return result;
+        }
+        NotificationCapture.record(uri, branches);
+        Span span = NotificationTracing.start("endpoint.notify", url, branches);
+        try {
+            if (GitStatusTriggerFairQueue.isEnabled()) {
+                // jobs are not known until dispatched.
+                GitStatusTrigger.notifyCommit(uri, relay, branches);
+                result.put("queued", true);
+                return result;
+            }
+            // dispatching runs as SYSTEM, but results are only for jobs the caller can read.
+            List<GitStatusTrigger> triggers = GitStatusTrigger.notifyCommit(uri, relay, scheduled, branches);
+            JSONArray names = toJobNames(triggers);
+            result.put("triggered", names);
+            result.put("count", names.size());
+            return result;
+        } catch (RuntimeException e) {
+            if (span != null) {
+                span.setError(e);
+            }
+            throw e;
+        } finally {
+            NotificationTracing.end(span);
+        }
+    }
+
+    @Nonnull
+    private static String[] getBranches(@Nonnull JSONObject n) {
+        Object branches = n.opt("branches");
+        if (branches instanceof JSONArray) {
+            JSONArray array = (JSONArray)branches;
+            String[] ret = new String[array.size()];
+            for (int i = 0; i < ret.length; ++i) {
+                ret[i] = StringUtils.trim(array.getString(i));
+            }
+            return ret;
+        }
+        if (branches instanceof String) {
+            // Comma-separated just like /git/notifyCommit
+            String[] ret = StringUtils.split((String)branches, ',');
+            for (int i = 0; i < ret.length; ++i) {
+                ret[i] = StringUtils.trim(ret[i]);
+            }
+            return ret;
+        }
+        return new String[0];
+    }
+
+    /**
+     * @param triggers triggers
+     * @return names of jobs of triggers the current user can read
+     */
+    @Nonnull
+    static JSONArray toJobNames(@Nonnull List<GitStatusTrigger> triggers) {
+        JSONArray names = new JSONArray();
+        for (GitStatusTrigger t: triggers) {
+            String name = t.getJobFullName();
+            if (name != null && t.isJobReadable()) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Read the request body up to {@link #MAX_BODY_SIZE}.
+     *
+     * Read in UTF-8 if the request doesn't specify the charset,
+     * as JSON is always UTF-8 while the container defaults to ISO-8859-1.
+     *
+     * @param req request
+     * @return the body. {@code null} if too large.
+     * @throws IOException failed to read the request
+     */
+    @CheckForNull
+    static String readBody(@Nonnull StaplerRequest req) throws IOException {
+        if (req.getContentLength() > MAX_BODY_SIZE) {
+            return null;
+        }
+        Reader r = (req.getCharacterEncoding() != null)
+            ? req.getReader()
+            : new InputStreamReader(req.getInputStream(), "UTF-8");
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[8192];
+        int len;
+        while ((len = r.read(buf)) >= 0) {
+            sb.append(buf, 0, len);
+            if (sb.length() > MAX_BODY_SIZE) {
+                return null;
+            }
+        }
+        return sb.toString();
+    }
+
+    @Nonnull
+    private static HttpResponse tooLarge() {
+        return HttpResponses.error(
+            HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+            String.format("Request is too large: up to %d characters are allowed", MAX_BODY_SIZE)
+        );
+    }
+
+    @Nonnull
+    static HttpResponse jsonResponse(@Nonnull final JSONObject json) {
+        return new HttpResponse() {
+            public void generateResponse(StaplerRequest req, StaplerResponse rsp, Object node)
+                throws IOException, ServletException
+            {
+                rsp.setContentType("application/json;charset=UTF-8");
+                json.write(rsp.getWriter());
+            }
+        };
+    }
+
+    /**
+     * Allow POST to webhooks without CSRF crumbs, as Git servers don't have them.
+     *
+     * Other endpoints, like {@link GitStatusTriggerEndpoint#doSimulate(StaplerRequest)},
+     * are used by users and still require crumbs.
+     */
+    @Extension
+    public static class CrumbExclusionImpl extends CrumbExclusion {
+        /**
+         * Paths of webhooks.
+         */
+        private static final Set<String> PATHS = new HashSet<String>(Arrays.asList(
+            "/" + URL_NAME + "/notifyCommits",
+            "/" + URL_NAME + "/push"
+        ));
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean process(HttpServletRequest req, HttpServletResponse resp, FilterChain chain)
+            throws IOException, ServletException
+        {
+            String pathInfo = req.getPathInfo();
+            if (pathInfo == null || !PATHS.contains(StringUtils.removeEnd(pathInfo, "/"))) {
+                return false;
+            }
+            chain.doFilter(req, resp);
+            return true;
+        }
+    }
+}
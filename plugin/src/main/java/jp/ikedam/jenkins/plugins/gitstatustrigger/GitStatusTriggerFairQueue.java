@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Nonnull;
+
+import org.eclipse.jgit.transport.URIish;
+
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.FairNotificationQueue;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.Notification;
+
+/**
+ * Dispatches notifications asynchronously, fairly among repositories.
+ *
+ * Notifications are queued per repository and dispatched by worker threads in round-robin,
+ * so that a burst of notifications for a busy repository doesn't delay ones for others.
+ * Notifications for a repository are dispatched one at a time.
+ * Disabled unless the number of workers is configured.
+ */
+class GitStatusTriggerFairQueue {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(GitStatusTriggerFairQueue.class.getName());
+    private static final long POLL_SECONDS = 1;
+
+    @Nonnull
+    private static final FairNotificationQueue queue
+        = new FairNotificationQueue(GitStatusTriggerConfiguration.DEFAULT_FAIR_QUEUE_BACKLOG);
+    @Nonnull
+    private static final AtomicInteger workerCount = new AtomicInteger();
+    @Nonnull
+    private static List<Worker> workers = Collections.emptyList();
+    private static boolean enabled = false;
+
+    private GitStatusTriggerFairQueue() {
+    }
+
+    /**
+     * @param threads number of worker threads. 0 to dispatch notifications synchronously.
+     * @param backlog maximum number of notifications queued for a repository
+     */
+    synchronized static void configure(int threads, int backlog) {
+        queue.setBacklogLimit(backlog);
+        if (threads == workers.size()) {
+            return;
+        }
+        for (Worker w: workers) {
+            w.finish();
+        }
+        List<Worker> newWorkers = new ArrayList<Worker>(threads);
+        for (int i = 0; i < threads; ++i) {
+            Worker w = new Worker(false);
+            w.start();
+            newWorkers.add(w);
+        }
+        workers = newWorkers;
+        enabled = (threads > 0);
+        if (!enabled && queue.size() > 0) {
+            // dispatch notifications already queued.
+            new Worker(true).start();
+        }
+    }
+
+    /**
+     * @return whether notifications are dispatched asynchronously
+     */
+    synchronized static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a notification to dispatch asynchronously.
+     *
+     * @param uri URI of the repository
+     * @param branches branches update occurred
+     * @param journalEntry the entry in the journal to complete after dispatched. Negative for none.
+     * @return {@code false} if disabled and the caller should dispatch it
+     */
+    synchronized static boolean offer(@Nonnull URIish uri, @Nonnull String[] branches, long journalEntry) {
+        if (!enabled) {
+            return false;
+        }
+        queue.offer(new Notification(uri.toString(), branches), journalEntry);
+        return true;
+    }
+
+    /**
+     * @return the number of queued notifications
+     */
+    static int size() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of repositories with queued notifications
+     */
+    static int getRepositoryCount() {
+        return queue.getRepositoryCount();
+    }
+
+    /**
+     * @return the number of notifications merged as backlogs of repositories were full
+     */
+    static long getMergedCount() {
+        return queue.getMergedCount();
+    }
+
+    private static void dispatch(@Nonnull FairNotificationQueue.Entry e) {
+        Notification n = e.getNotification();
+        try {
+            GitStatusTrigger.dispatch(new URIish(n.getUri()), n.getBranches());
+        } catch (URISyntaxException ex) {
+            LOG.log(Level.WARNING, String.format("Ignored a notification for invalid URI %s", n.getUri()), ex);
+        } catch (RuntimeException ex) {
+            LOG.log(Level.WARNING, String.format("Failed to dispatch a notification for %s", n.getUri()), ex);
+        } finally {
+            queue.done(e);
+            for (long entry: e.getTags()) {
+                GitStatusTriggerJournal.complete(entry);
+            }
+        }
+    }
+
+    /**
+     * Takes notifications from the queue and dispatches them.
+     */
+    private static class Worker extends Thread {
+        private final boolean untilEmpty;
+        private volatile boolean finished = false;
+
+        /**
+         * @param untilEmpty {@code true} to exit when the queue gets empty
+         */
+        Worker(boolean untilEmpty) {
+            super("Git Status Trigger fair queue " + workerCount.incrementAndGet());
+            this.untilEmpty = untilEmpty;
+            setDaemon(true);
+        }
+
+        /**
+         * Exit after the current notification.
+         */
+        void finish() {
+            finished = true;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!finished) {
+                    FairNotificationQueue.Entry e = queue.poll(POLL_SECONDS, TimeUnit.SECONDS);
+                    if (e != null) {
+                        dispatch(e);
+                    } else if (untilEmpty && queue.size() == 0) {
+                        // other notifications may be queued for busy repositories.
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                LOG.log(Level.FINE, "Interrupted", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import hudson.security.ACL;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.Span;
+
+/**
+ * Dispatches a notification to many candidate triggers in parallel.
+ *
+ * Candidates are split into chunks, one for each worker thread.
+ * The thread receiving the notification handles the first chunk by itself,
+ * and waits for workers to finish the others.
+ * Workers are shared among notifications, and bounded to the configured number.
+ */
+class GitStatusTriggerFanOut {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(GitStatusTriggerFanOut.class.getName());
+
+    private static volatile int threshold = 0;
+    private static volatile int threads = 0;
+    @CheckForNull
+    private static volatile ExecutorService executor = null;
+
+    private GitStatusTriggerFanOut() {
+    }
+
+    /**
+     * @param threshold number of candidates to dispatch in parallel. 0 for disabled.
+     * @param threads number of worker threads. 0 for the number of processors.
+     */
+    synchronized static void configure(int threshold, int threads) {
+        int newThreads = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService current = executor;
+        if (current != null && (threshold <= 0 || newThreads != GitStatusTriggerFanOut.threads)) {
+            // running tasks are finished.
+            current.shutdown();
+            executor = null;
+        }
+        GitStatusTriggerFanOut.threads = newThreads;
+        GitStatusTriggerFanOut.threshold = Math.max(0, threshold);
+    }
+
+    /**
+     * @param candidates number of candidates
+     * @return whether to dispatch in parallel
+     */
+    static boolean isApplicable(int candidates) {
+        int t = threshold;
+        return t > 0 && candidates >= t && threads > 1;
+    }
+
+    @Nonnull
+    private synchronized static ExecutorService getExecutor() {
+        ExecutorService e = executor;
+        if (e == null) {
+            final AtomicInteger count = new AtomicInteger();
+            e = new ThreadPoolExecutor(
+                threads - 1,
+                threads - 1,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "Git Status Trigger fan-out " + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                }
+            );
+            executor = e;
+        }
+        return e;
+    }
+
+    /**
+     * Match and schedule builds for candidates in parallel, and wait for all of them.
+     *
+     * Should be called as the system.
+     *
+     * @param candidates triggers to test
+     * @param uri URI of the repository, in the string representation
+     * @param branches branches update occurred
+     * @return matched triggers in the order of candidates, and time spent summed for all workers
+     */
+    @Nonnull
+    static GitStatusTrigger.DispatchResult dispatch(
+        @Nonnull final List<GitStatusTrigger> candidates,
+        @Nonnull final String uri,
+        @Nonnull final String[] branches
+    ) {
+        int chunks = Math.min(threads, candidates.size());
+        int chunkSize = (candidates.size() + chunks - 1) / chunks;
+        ExecutorService e = getExecutor();
+        final Span parent = NotificationTracing.current();
+        List<Future<GitStatusTrigger.DispatchResult>> futures
+            = new ArrayList<Future<GitStatusTrigger.DispatchResult>>(chunks - 1);
+        for (int from = chunkSize; from < candidates.size(); from += chunkSize) {
+            final int chunkFrom = from;
+            final int chunkTo = Math.min(from + chunkSize, candidates.size());
+            FutureTask<GitStatusTrigger.DispatchResult> task = new FutureTask<GitStatusTrigger.DispatchResult>(
+                new Callable<GitStatusTrigger.DispatchResult>() {
+                    public GitStatusTrigger.DispatchResult call() throws Exception {
+                        SecurityContext orig = ACL.impersonate(ACL.SYSTEM);
+                        Span span = NotificationTracing.startChild("dispatchRange", parent);
+                        try {
+                            GitStatusTrigger.DispatchResult result = new GitStatusTrigger.DispatchResult();
+                            GitStatusTrigger.dispatchRange(candidates, chunkFrom, chunkTo, uri, branches, null, result);
+                            if (span != null) {
+                                span.setAttribute("from", chunkFrom).setAttribute("to", chunkTo);
+                            }
+                            return result;
+                        } finally {
+                            NotificationTracing.end(span);
+                            SecurityContextHolder.setContext(orig);
+                        }
+                    }
+                }
+            );
+            try {
+                e.execute(task);
+            } catch (RejectedExecutionException ex) {
+                // reconfigured
+                task.run();
+            }
+            futures.add(task);
+        }
+
+        GitStatusTrigger.DispatchResult result = new GitStatusTrigger.DispatchResult();
+        GitStatusTrigger.dispatchRange(
+            candidates,
+            0,
+            Math.min(chunkSize, candidates.size()),
+            uri,
+            branches,
+            null,
+            result
+        );
+
+        boolean interrupted = false;
+        for (Future<GitStatusTrigger.DispatchResult> f: futures) {
+            while (true) {
+                try {
+                    result.add(f.get());
+                    break;
+                } catch (InterruptedException ex) {
+                    // All builds should be scheduled before returning.
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    // matches in the partition are lost: don't cache the result.
+                    ++result.failures;
+                    LOG.log(Level.WARNING, String.format("Failed to dispatch push notification from %s", uri), ex);
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+}
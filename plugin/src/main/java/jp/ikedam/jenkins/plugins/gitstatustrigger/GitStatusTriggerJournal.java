@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.eclipse.jgit.transport.URIish;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import jenkins.model.Jenkins;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.Notification;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.NotificationCoalescer;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.NotificationJournal;
+
+/**
+ * Keeps notifications in {@link NotificationJournal} till dispatched,
+ * and dispatches them again when Jenkins restarts.
+ */
+public class GitStatusTriggerJournal {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(GitStatusTriggerJournal.class.getName());
+    @Nonnull
+    private static final String FILENAME = "git-status-trigger/journal.bin";
+    private static final int MEGA = 1024 * 1024;
+
+    @CheckForNull
+    private static volatile NotificationJournal journal = null;
+
+    private GitStatusTriggerJournal() {
+    }
+
+    /**
+     * Open or close the journal.
+     *
+     * @param enabled whether to journal notifications
+     * @param sizeMegaBytes size of the journal file
+     */
+    synchronized static void configure(boolean enabled, int sizeMegaBytes) {
+        NotificationJournal current = journal;
+        if (current != null && (!enabled || current.getCapacity() < (long)sizeMegaBytes * MEGA)) {
+            journal = null;
+            try {
+                current.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to close the journal", e);
+            }
+            current = null;
+        }
+        if (!enabled || current != null) {
+            return;
+        }
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return;
+        }
+        File file = new File(jenkins.getRootDir(), FILENAME);
+        try {
+            if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+                throw new IOException(String.format("Failed to create %s", file.getParentFile()));
+            }
+            journal = NotificationJournal.open(file, sizeMegaBytes * MEGA, true);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, String.format("Failed to open the journal %s", file), e);
+        }
+    }
+
+    /**
+     * @return whether notifications are journaled
+     */
+    static boolean isEnabled() {
+        return journal != null;
+    }
+
+    /**
+     * Journal a notification.
+     *
+     * @param uri URI of the repository
+     * @param branches branches update occurred
+     * @return the id to pass to {@link #complete(long)}. {@code -1} if not journaled.
+     */
+    static long append(@Nonnull URIish uri, @Nonnull String[] branches) {
+        NotificationJournal j = journal;
+        if (j == null) {
+            return -1;
+        }
+        try {
+            long id = j.append(new Notification(uri.toString(), branches));
+            if (id < 0) {
+                LOG.log(Level.WARNING, "The journal is full. Notification for {0} is not journaled.", uri);
+            }
+            return id;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, String.format("Failed to journal notification for %s", uri), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Mark a notification dispatched.
+     *
+     * @param id the value returned from {@link #append(URIish, String[])}
+     */
+    static void complete(long id) {
+        NotificationJournal j = journal;
+        if (id < 0 || j == null) {
+            return;
+        }
+        j.complete(id);
+    }
+
+    /**
+     * Dispatch notifications not completed before Jenkins restarted.
+     *
+     * Notifications for the same repository are merged.
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void replay() {
+        // opens the journal
+        GitStatusTriggerConfiguration.get();
+        NotificationJournal j = journal;
+        if (j == null) {
+            return;
+        }
+        List<NotificationJournal.Entry> entries = j.recover();
+        if (entries.isEmpty()) {
+            return;
+        }
+        NotificationCoalescer coalescer = new NotificationCoalescer();
+        for (NotificationJournal.Entry e: entries) {
+            coalescer.add(e.getNotification());
+        }
+        List<Notification> notifications = coalescer.drain();
+        LOG.log(
+            Level.INFO,
+            "Replaying {0} notifications in the journal ({1} after merged)",
+            new Object[] {entries.size(), notifications.size()}
+        );
+        for (Notification n: notifications) {
+            try {
+                GitStatusTrigger.dispatch(new URIish(n.getUri()), n.getBranches());
+            } catch (URISyntaxException e) {
+                LOG.log(Level.WARNING, String.format("Discard invalid URI in the journal: %s", n.getUri()), e);
+            }
+        }
+        for (NotificationJournal.Entry e: entries) {
+            j.complete(e.getId());
+        }
+    }
+}
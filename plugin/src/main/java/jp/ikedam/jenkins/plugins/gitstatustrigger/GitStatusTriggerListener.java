@@ -0,0 +1,68 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import hudson.ExtensionPoint;
+import jenkins.model.Jenkins;
+
+/**
+ * Receives push notifications matched to jobs with {@link GitStatusTrigger}.
+ *
+ * Lets other plugins reuse matching of this plugin
+ * instead of listening to notifications and scanning jobs by themselves.
+ * Listeners are called asynchronously after builds are scheduled,
+ * so they don't delay responses to Git servers.
+ * Notifications are queued up to a fixed number, and dropped when listeners cannot catch up.
+ * The number of threads and the queue size can be configured with the system properties
+ * {@code jp.ikedam.jenkins.plugins.gitstatustrigger.GitStatusTriggerListener.threads}
+ * and {@code jp.ikedam.jenkins.plugins.gitstatustrigger.GitStatusTriggerListener.queueSize}.
+ */
+public abstract class GitStatusTriggerListener implements ExtensionPoint {
+    /**
+     * Called for each job matched a push notification.
+     *
+     * Called as the system, on a thread shared with other listeners.
+     *
+     * @param notification the matched notification
+     */
+    public abstract void onMatched(@Nonnull MatchedNotification notification);
+
+    /**
+     * @return all registered listeners. Empty if Jenkins is not ready.
+     */
+    @Nonnull
+    public static List<GitStatusTriggerListener> all() {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return Collections.emptyList();
+        }
+        return jenkins.getExtensionList(GitStatusTriggerListener.class);
+    }
+}
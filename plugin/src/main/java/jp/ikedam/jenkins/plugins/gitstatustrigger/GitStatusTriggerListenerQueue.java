@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import hudson.model.Item;
+import hudson.security.ACL;
+
+/**
+ * Delivers matched notifications to {@link GitStatusTriggerListener}s on a bounded executor.
+ */
+class GitStatusTriggerListenerQueue {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(GitStatusTriggerListenerQueue.class.getName());
+
+    private static final int THREADS = Math.max(
+        1,
+        Integer.getInteger(GitStatusTriggerListener.class.getName() + ".threads", 1)
+    );
+    private static final int QUEUE_SIZE = Math.max(
+        1,
+        Integer.getInteger(GitStatusTriggerListener.class.getName() + ".queueSize", 10000)
+    );
+    private static final long DROP_REPORT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Nonnull
+    private static final AtomicLong delivered = new AtomicLong();
+    @Nonnull
+    private static final AtomicLong dropped = new AtomicLong();
+    @Nonnull
+    private static final AtomicLong lastDropReportMillis = new AtomicLong();
+    @CheckForNull
+    private static ExecutorService executor = null;
+
+    private GitStatusTriggerListenerQueue() {
+    }
+
+    @Nonnull
+    private synchronized static ExecutorService getExecutor() {
+        if (executor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            executor = new ThreadPoolExecutor(
+                THREADS,
+                THREADS,
+                60,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "Git Status Trigger listener " + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                }
+            );
+        }
+        return executor;
+    }
+
+    /**
+     * Queue a matched notification for listeners.
+     *
+     * Does nothing if there are no listeners.
+     *
+     * @param job the job matched the notification. {@code null} if the trigger is not started.
+     * @param cause the cause to trigger the job
+     * @param held whether the build is held in {@link BuildHoldingArea} rather than queued
+     */
+    static void offer(@CheckForNull Item job, @Nonnull GitStatusTriggerCause cause, boolean held) {
+        if (job == null) {
+            return;
+        }
+        final List<GitStatusTriggerListener> listeners = GitStatusTriggerListener.all();
+        if (listeners.isEmpty()) {
+            return;
+        }
+        final MatchedNotification notification = new MatchedNotification(job, cause, held);
+        try {
+            getExecutor().execute(new Runnable() {
+                public void run() {
+                    deliver(listeners, notification);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            reportDropped(dropped.incrementAndGet());
+        }
+    }
+
+    /**
+     * Logs the first drop and then at most one per {@link #DROP_REPORT_INTERVAL_MILLIS}.
+     */
+    private static void reportDropped(long total) {
+        long now = System.currentTimeMillis();
+        long last = lastDropReportMillis.get();
+        if (last != 0 && now - last < DROP_REPORT_INTERVAL_MILLIS) {
+            return;
+        }
+        if (!lastDropReportMillis.compareAndSet(last, now)) {
+            return;
+        }
+        LOG.log(
+            Level.WARNING,
+            "Dropped matched notifications as listeners are slow: {0} dropped in total",
+            total
+        );
+    }
+
+    private static void deliver(
+        @Nonnull List<GitStatusTriggerListener> listeners,
+        @Nonnull MatchedNotification notification
+    ) {
+        SecurityContext orig = ACL.impersonate(ACL.SYSTEM);
+        try {
+            for (GitStatusTriggerListener l: listeners) {
+                try {
+                    l.onMatched(notification);
+                } catch (RuntimeException e) {
+                    LOG.log(
+                        Level.WARNING,
+                        String.format("%s failed for %s", l.getClass().getName(), notification.getJob().getFullName()),
+                        e
+                    );
+                }
+            }
+        } finally {
+            SecurityContextHolder.setContext(orig);
+        }
+        delivered.incrementAndGet();
+    }
+
+    /**
+     * @return the number of notifications delivered to listeners since startup
+     */
+    static long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * @return the number of notifications dropped as the queue was full since startup
+     */
+    static long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.kohsuke.stapler.StaplerProxy;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import jenkins.model.Jenkins;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.NotificationRelay;
+
+/**
+ * Shows recent push notifications in Manage Jenkins.
+ */
+@Extension
+public class GitStatusTriggerMonitor extends ManagementLink implements StaplerProxy {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getIconFileName() {
+        return "notepad.png";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getUrlName() {
+        return "git-status-trigger-monitor";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getDisplayName() {
+        return Messages.GitStatusTriggerMonitor_DisplayName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return Messages.GitStatusTriggerMonitor_Description();
+    }
+
+    /**
+     * Only administrators can see this page.
+     *
+     * {@inheritDoc}
+     */
+    public Object getTarget() {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+        return this;
+    }
+
+    /**
+     * @return recent notifications, newest first
+     */
+    @Nonnull
+    public List<NotificationRecord> getRecords() {
+        return getHistory().getRecords();
+    }
+
+    /**
+     * @return the history shown in this page
+     */
+    @Nonnull
+    public NotificationHistory getHistory() {
+        return NotificationHistory.get();
+    }
+
+    /**
+     * @return builds held for the overloaded queue
+     */
+    @Nonnull
+    public BuildHoldingArea getHoldingArea() {
+        return BuildHoldingArea.get();
+    }
+
+    /**
+     * @return whether notifications are dispatched asynchronously
+     */
+    public boolean isFairQueueEnabled() {
+        return GitStatusTriggerFairQueue.isEnabled();
+    }
+
+    /**
+     * @return the number of notifications waiting to be dispatched
+     */
+    public int getFairQueueSize() {
+        return GitStatusTriggerFairQueue.size();
+    }
+
+    /**
+     * @return the number of repositories with notifications waiting to be dispatched
+     */
+    public int getFairQueueRepositoryCount() {
+        return GitStatusTriggerFairQueue.getRepositoryCount();
+    }
+
+    /**
+     * @return the number of notifications merged as backlogs of repositories were full
+     */
+    public long getFairQueueMergedCount() {
+        return GitStatusTriggerFairQueue.getMergedCount();
+    }
+
+    /**
+     * @return peers notifications are forwarded to
+     */
+    @Nonnull
+    public List<NotificationRelay.Peer> getRelayPeers() {
+        return GitStatusTriggerRelay.getPeers();
+    }
+}
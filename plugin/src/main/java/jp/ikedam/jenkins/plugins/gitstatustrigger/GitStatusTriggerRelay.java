@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.transport.URIish;
+
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.Notification;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.NotificationRelay;
+
+/**
+ * Forwards notifications to peer controllers with {@link NotificationRelay}.
+ */
+public class GitStatusTriggerRelay {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(GitStatusTriggerRelay.class.getName());
+
+    @CheckForNull
+    private static volatile NotificationRelay relay = null;
+
+    private GitStatusTriggerRelay() {
+    }
+
+    /**
+     * Restart forwarding with new peers.
+     *
+     * @param peerUrls root URLs of peers. Empty to disable relaying.
+     * @param secret the secret shared with peers. {@code null} not to send.
+     */
+    synchronized static void configure(@Nonnull List<String> peerUrls, @CheckForNull String secret) {
+        NotificationRelay current = relay;
+        relay = null;
+        if (current != null) {
+            try {
+                current.stop();
+            } catch (InterruptedException e) {
+                LOG.log(Level.WARNING, "Interrupted while stopping the relay", e);
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (peerUrls.isEmpty()) {
+            return;
+        }
+        NotificationRelay r = new NotificationRelay(peerUrls, secret);
+        r.start();
+        relay = r;
+    }
+
+    /**
+     * @param peers root URLs of peers, one per line
+     * @return root URLs of peers
+     */
+    @Nonnull
+    static List<String> parsePeers(@CheckForNull String peers) {
+        List<String> ret = new ArrayList<String>();
+        for (String line: StringUtils.split(StringUtils.defaultString(peers), "\r\n")) {
+            if (!StringUtils.isBlank(line)) {
+                ret.add(line.trim());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Forward a notification to peers subscribing the repository.
+     *
+     * @param uri URI of the repository
+     * @param branches branches update occurred
+     */
+    static void relay(@Nonnull URIish uri, @Nonnull String[] branches) {
+        NotificationRelay r = relay;
+        if (r == null) {
+            return;
+        }
+        r.offer(new Notification(uri.toString(), branches));
+    }
+
+    /**
+     * @return peers notifications are forwarded to
+     */
+    @Nonnull
+    public static List<NotificationRelay.Peer> getPeers() {
+        NotificationRelay r = relay;
+        return (r != null) ? r.getPeers() : Collections.<NotificationRelay.Peer>emptyList();
+    }
+}
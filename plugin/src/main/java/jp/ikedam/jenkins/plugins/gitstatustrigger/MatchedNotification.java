@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import hudson.model.Item;
+
+/**
+ * A push notification matched to a job.
+ *
+ * @see GitStatusTriggerListener
+ */
+public class MatchedNotification {
+    @Nonnull
+    private final Item job;
+    @Nonnull
+    private final GitStatusTriggerCause cause;
+    private final boolean held;
+
+    /**
+     * @param job the job matched the notification
+     * @param cause the cause to trigger the job
+     */
+    public MatchedNotification(@Nonnull Item job, @Nonnull GitStatusTriggerCause cause) {
+        this(job, cause, false);
+    }
+
+    /**
+     * @param job the job matched the notification
+     * @param cause the cause to trigger the job
+     * @param held whether the build is held in {@link BuildHoldingArea} rather than queued
+     */
+    public MatchedNotification(@Nonnull Item job, @Nonnull GitStatusTriggerCause cause, boolean held) {
+        this.job = job;
+        this.cause = cause;
+        this.held = held;
+    }
+
+    /**
+     * @return the job matched the notification
+     */
+    @Nonnull
+    public Item getJob() {
+        return job;
+    }
+
+    /**
+     * @return the target of the job matched the notification
+     */
+    @CheckForNull
+    public GitStatusTarget getTarget() {
+        return cause.getTarget();
+    }
+
+    /**
+     * @return URI of the notified repository
+     */
+    public String getUri() {
+        return cause.getUri();
+    }
+
+    /**
+     * @return the matched branch. Empty if the notification has no branches.
+     */
+    public String getBranch() {
+        return cause.getBranch();
+    }
+
+    /**
+     * @return the cause used to schedule the build
+     */
+    @Nonnull
+    public GitStatusTriggerCause getCause() {
+        return cause;
+    }
+
+    /**
+     * @return whether the build is held in {@link BuildHoldingArea}, and scheduled later
+     */
+    public boolean isHeld() {
+        return held;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.eclipse.jgit.transport.URIish;
+
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.CaptureWriter;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.Notification;
+
+/**
+ * Records received notifications to a capture file with {@link CaptureWriter},
+ * to replay the real traffic in benchmarks.
+ */
+public class NotificationCapture {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(NotificationCapture.class.getName());
+
+    @CheckForNull
+    private static volatile CaptureWriter writer = null;
+    @CheckForNull
+    private static String path = null;
+
+    private NotificationCapture() {
+    }
+
+    /**
+     * Start or stop recording.
+     *
+     * @param newPath the file to append notifications to. {@code null} to stop recording.
+     */
+    synchronized static void configure(@CheckForNull String newPath) {
+        if (newPath != null ? newPath.equals(path) : path == null) {
+            return;
+        }
+        CaptureWriter current = writer;
+        writer = null;
+        path = null;
+        if (current != null) {
+            synchronized (current) {
+                try {
+                    current.close();
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Failed to close the capture", e);
+                }
+            }
+        }
+        if (newPath == null) {
+            return;
+        }
+        File file = new File(newPath);
+        try {
+            boolean append = file.length() > 0;
+            writer = new CaptureWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"), append);
+            path = newPath;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, String.format("Failed to open the capture %s", newPath), e);
+        }
+    }
+
+    /**
+     * @return whether notifications are recorded
+     */
+    static boolean isEnabled() {
+        return writer != null;
+    }
+
+    /**
+     * Record a notification if enabled.
+     *
+     * @param uri URI of the repository
+     * @param branches branches update occurred
+     */
+    static void record(@Nonnull URIish uri, @Nonnull String[] branches) {
+        CaptureWriter w = writer;
+        if (w == null) {
+            return;
+        }
+        Notification n = new Notification(uri.toString(), branches);
+        long now = System.currentTimeMillis();
+        synchronized (w) {
+            try {
+                w.write(now, n);
+                w.flush();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to record a notification to the capture", e);
+            }
+        }
+    }
+}
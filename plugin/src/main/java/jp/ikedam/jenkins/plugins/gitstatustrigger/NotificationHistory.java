@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Keeps records of recent push notifications.
+ *
+ * Records are kept in a ring buffer of a fixed number of preallocated slots,
+ * so memory use doesn't depend on the amount of notifications.
+ * The number of slots can be configured with the system property
+ * {@code jp.ikedam.jenkins.plugins.gitstatustrigger.NotificationHistory.size}.
+ */
+public class NotificationHistory {
+    private static final int DEFAULT_SIZE = 100;
+
+    @Nonnull
+    private static final NotificationHistory INSTANCE = new NotificationHistory(
+        Integer.getInteger(NotificationHistory.class.getName() + ".size", DEFAULT_SIZE)
+    );
+
+    @Nonnull
+    private final NotificationRecord[] slots;
+    private long totalCount = 0;
+
+    @Nonnull
+    private final ThreadLocal<NotificationRecord> working = new ThreadLocal<NotificationRecord>() {
+        @Override
+        protected NotificationRecord initialValue() {
+            return new NotificationRecord();
+        }
+    };
+
+    /**
+     * @param size the number of records to keep
+     */
+    NotificationHistory(int size) {
+        slots = new NotificationRecord[Math.max(1, size)];
+        for (int i = 0; i < slots.length; ++i) {
+            slots[i] = new NotificationRecord();
+        }
+    }
+
+    /**
+     * @return the instance used for notifications
+     */
+    @Nonnull
+    public static NotificationHistory get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start recording a notification.
+     *
+     * The returned record is reused for the next notification on the same thread,
+     * and must be passed to {@link #record(NotificationRecord)} when finished.
+     *
+     * @param uri URI of the repository
+     * @param branches notified branches
+     * @return the record to fill
+     */
+    @Nonnull
+    NotificationRecord begin(@Nonnull String uri, @Nonnull String[] branches) {
+        NotificationRecord r = working.get();
+        r.reset(uri, branches);
+        return r;
+    }
+
+    /**
+     * Store a finished record, overwriting the oldest one.
+     *
+     * @param r the record to store
+     */
+    synchronized void record(@Nonnull NotificationRecord r) {
+        slots[(int)(totalCount % slots.length)].copyFrom(r);
+        ++totalCount;
+    }
+
+    /**
+     * @return the number of records to keep
+     */
+    public int getSize() {
+        return slots.length;
+    }
+
+    /**
+     * @return the number of notifications recorded since startup
+     */
+    public synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return copies of kept records, newest first
+     */
+    @Nonnull
+    public synchronized List<NotificationRecord> getRecords() {
+        int n = (int)Math.min(totalCount, slots.length);
+        List<NotificationRecord> records = new ArrayList<NotificationRecord>(n);
+        for (int i = 1; i <= n; ++i) {
+            NotificationRecord r = new NotificationRecord();
+            r.copyFrom(slots[(int)((totalCount - i) % slots.length)]);
+            records.add(r);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * What a single push notification saw while it was dispatched.
+ *
+ * Instances are mutable and reused: the dispatching thread fills one,
+ * and {@link NotificationHistory} copies it into a preallocated slot.
+ * Branches and matched jobs are kept up to a fixed count
+ * so that a record never grows with the size of a notification.
+ */
+public class NotificationRecord {
+    /**
+     * Stages of dispatching a notification.
+     */
+    public enum Stage {
+        /** Looking up triggers to notify, including rebuilding the cache */
+        LOOKUP,
+        /** Testing triggers against the notification */
+        MATCH,
+        /** Scheduling builds for matched triggers */
+        SCHEDULE,
+        /** Finished */
+        DONE,
+    }
+
+    static final int MAX_BRANCHES = 16;
+    static final int MAX_JOBS = 32;
+
+    private long timestamp;
+    @CheckForNull
+    private String uri;
+    @Nonnull
+    private final String[] branches = new String[MAX_BRANCHES];
+    private int branchCount;
+    @Nonnull
+    private final String[] matchedJobs = new String[MAX_JOBS];
+    private int matchedCount;
+    private long lookupNanos;
+    private long matchNanos;
+    private long scheduleNanos;
+    private boolean matchCacheHit;
+
+    // states while dispatching, not copied to history.
+    private long startNanos;
+    @CheckForNull
+    private Thread thread;
+    @Nonnull
+    private volatile Stage stage = Stage.DONE;
+    private volatile boolean reported;
+
+    /**
+     * Start recording a new notification, discarding the previous contents.
+     *
+     * @param uri URI of the repository
+     * @param branches notified branches
+     */
+    void reset(@Nonnull String uri, @Nonnull String[] branches) {
+        this.timestamp = System.currentTimeMillis();
+        this.uri = uri;
+        int stored = Math.min(branches.length, MAX_BRANCHES);
+        System.arraycopy(branches, 0, this.branches, 0, stored);
+        Arrays.fill(this.branches, stored, MAX_BRANCHES, null);
+        this.branchCount = branches.length;
+        Arrays.fill(this.matchedJobs, null);
+        this.matchedCount = 0;
+        this.lookupNanos = 0;
+        this.matchNanos = 0;
+        this.scheduleNanos = 0;
+        this.matchCacheHit = false;
+        this.startNanos = System.nanoTime();
+        this.thread = Thread.currentThread();
+        this.stage = Stage.LOOKUP;
+        this.reported = false;
+    }
+
+    /**
+     * Copy all contents from another record.
+     *
+     * @param src the record to copy
+     */
+    void copyFrom(@Nonnull NotificationRecord src) {
+        this.timestamp = src.timestamp;
+        this.uri = src.uri;
+        System.arraycopy(src.branches, 0, this.branches, 0, MAX_BRANCHES);
+        this.branchCount = src.branchCount;
+        System.arraycopy(src.matchedJobs, 0, this.matchedJobs, 0, MAX_JOBS);
+        this.matchedCount = src.matchedCount;
+        this.lookupNanos = src.lookupNanos;
+        this.matchNanos = src.matchNanos;
+        this.scheduleNanos = src.scheduleNanos;
+        this.matchCacheHit = src.matchCacheHit;
+    }
+
+    void setStage(@Nonnull Stage stage) {
+        this.stage = stage;
+    }
+
+    /**
+     * @return the stage the dispatching is in
+     */
+    @Nonnull
+    Stage getStage() {
+        return stage;
+    }
+
+    /**
+     * @return the thread dispatching the notification
+     */
+    @CheckForNull
+    Thread getThread() {
+        return thread;
+    }
+
+    /**
+     * @return nanoseconds since the dispatching started
+     */
+    long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    boolean isReported() {
+        return reported;
+    }
+
+    void setReported(boolean reported) {
+        this.reported = reported;
+    }
+
+    void addMatchedJob(@Nonnull String fullName) {
+        if (matchedCount < MAX_JOBS) {
+            matchedJobs[matchedCount] = fullName;
+        }
+        ++matchedCount;
+    }
+
+    void setLookupNanos(long lookupNanos) {
+        this.lookupNanos = lookupNanos;
+    }
+
+    void setMatchNanos(long matchNanos) {
+        this.matchNanos = matchNanos;
+    }
+
+    void setScheduleNanos(long scheduleNanos) {
+        this.scheduleNanos = scheduleNanos;
+    }
+
+    void setMatchCacheHit(boolean matchCacheHit) {
+        this.matchCacheHit = matchCacheHit;
+    }
+
+    /**
+     * @return whether matched triggers were found in the cache
+     */
+    public boolean isMatchCacheHit() {
+        return matchCacheHit;
+    }
+
+    /**
+     * @return when the notification arrived
+     */
+    @Nonnull
+    public Date getTime() {
+        return new Date(timestamp);
+    }
+
+    /**
+     * @return URI of the repository
+     */
+    @CheckForNull
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * @return notified branches. Only first {@link #MAX_BRANCHES} ones are kept.
+     */
+    @Nonnull
+    public List<String> getBranches() {
+        return Collections.unmodifiableList(
+            Arrays.asList(branches).subList(0, Math.min(branchCount, MAX_BRANCHES))
+        );
+    }
+
+    /**
+     * @return the number of notified branches, including ones not kept.
+     */
+    public int getBranchCount() {
+        return branchCount;
+    }
+
+    /**
+     * @return full names of matched jobs. Only first {@link #MAX_JOBS} ones are kept.
+     */
+    @Nonnull
+    public List<String> getMatchedJobs() {
+        return Collections.unmodifiableList(
+            Arrays.asList(matchedJobs).subList(0, Math.min(matchedCount, MAX_JOBS))
+        );
+    }
+
+    /**
+     * @return the number of matched jobs, including ones not kept.
+     */
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    public long getLookupNanos() {
+        return lookupNanos;
+    }
+
+    public long getMatchNanos() {
+        return matchNanos;
+    }
+
+    public long getScheduleNanos() {
+        return scheduleNanos;
+    }
+
+    /**
+     * @return time spent in looking up triggers, in milliseconds for display
+     */
+    @Nonnull
+    public String getLookupMillis() {
+        return formatMillis(lookupNanos);
+    }
+
+    /**
+     * @return time spent in matching, in milliseconds for display
+     */
+    @Nonnull
+    public String getMatchMillis() {
+        return formatMillis(matchNanos);
+    }
+
+    /**
+     * @return time spent in scheduling builds, in milliseconds for display
+     */
+    @Nonnull
+    public String getScheduleMillis() {
+        return formatMillis(scheduleNanos);
+    }
+
+    @Nonnull
+    private static String formatMillis(long nanos) {
+        return String.format("%.3f", nanos / 1000000.0);
+    }
+}
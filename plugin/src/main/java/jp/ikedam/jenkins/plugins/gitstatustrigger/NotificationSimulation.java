@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * How a notification would be dispatched, evaluated without scheduling builds.
+ *
+ * @see GitStatusTrigger#simulate(String, String[])
+ */
+class NotificationSimulation {
+    /**
+     * A trigger matched the notification.
+     */
+    static class Match {
+        @CheckForNull
+        final String job;
+        @CheckForNull
+        final GitStatusTarget target;
+        @CheckForNull
+        final String branch;
+        @CheckForNull
+        final String sharedRepository;
+
+        Match(
+            @CheckForNull String job,
+            @CheckForNull GitStatusTarget target,
+            @CheckForNull String branch,
+            @CheckForNull String sharedRepository
+        ) {
+            this.job = job;
+            this.target = target;
+            this.branch = branch;
+            this.sharedRepository = sharedRepository;
+        }
+    }
+
+    @Nonnull
+    final String uri;
+    @Nonnull
+    final String[] branches;
+
+    long generation = 0;
+    boolean indexRebuilt = false;
+    /**
+     * Triggers found in the index with their own targets.
+     */
+    int candidates = 0;
+    /**
+     * Shared repositories found in the index.
+     */
+    int sharedRepositories = 0;
+    boolean matchCacheEnabled = false;
+    boolean matchCacheable = false;
+    boolean matchCacheHit = false;
+    boolean fanOut = false;
+
+    long lookupNanos = 0;
+    long matchNanos = 0;
+    long sharedNanos = 0;
+
+    @Nonnull
+    final List<Match> matches = new ArrayList<Match>();
+    /**
+     * Full names of jobs whose triggers failed in matching.
+     */
+    @Nonnull
+    final List<String> failures = new ArrayList<String>();
+
+    NotificationSimulation(@Nonnull String uri, @Nonnull String[] branches) {
+        this.uri = uri;
+        this.branches = branches;
+    }
+
+    /**
+     * @return matched triggers in the order of dispatching
+     */
+    @Nonnull
+    List<String> getMatchedJobs() {
+        List<String> jobs = new ArrayList<String>(matches.size());
+        for (Match m: matches) {
+            if (m.job != null) {
+                jobs.add(m.job);
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * @return the representation for the simulate endpoint
+     */
+    @Nonnull
+    JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        json.put("url", uri);
+        json.put("branches", JSONArray.fromObject(branches));
+
+        JSONObject index = new JSONObject();
+        index.put("generation", generation);
+        index.put("rebuilt", indexRebuilt);
+        index.put("candidates", candidates);
+        index.put("sharedRepositories", sharedRepositories);
+        json.put("index", index);
+
+        JSONObject cache = new JSONObject();
+        cache.put("enabled", matchCacheEnabled);
+        cache.put("cacheable", matchCacheable);
+        cache.put("hit", matchCacheHit);
+        json.put("matchCache", cache);
+        json.put("fanOut", fanOut);
+
+        JSONArray matched = new JSONArray();
+        for (Match m: matches) {
+            JSONObject o = new JSONObject();
+            o.put("job", m.job);
+            if (m.target != null) {
+                o.put("uri", m.target.getUri());
+                o.put("branches", m.target.getBranches());
+            }
+            o.put("branch", m.branch);
+            if (m.sharedRepository != null) {
+                o.put("sharedRepository", m.sharedRepository);
+            }
+            matched.add(o);
+        }
+        json.put("matched", matched);
+        json.put("failed", JSONArray.fromObject(failures));
+
+        JSONObject nanos = new JSONObject();
+        nanos.put("lookup", lookupNanos);
+        nanos.put("match", matchNanos);
+        nanos.put("shared", sharedNanos);
+        json.put("nanos", nanos);
+        return json;
+    }
+}
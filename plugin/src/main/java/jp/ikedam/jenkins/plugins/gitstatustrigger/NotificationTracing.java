@@ -0,0 +1,163 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.commons.lang.StringUtils;
+
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.JsonLinesSpanExporter;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.Span;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.Tracer;
+
+/**
+ * Traces handling notifications into a file of OpenTelemetry compatible JSON lines,
+ * to analyze which jobs and stages are slow offline.
+ *
+ * Spans are created only when enabled.
+ */
+public class NotificationTracing {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(NotificationTracing.class.getName());
+
+    @CheckForNull
+    private static volatile Tracer tracer = null;
+    @CheckForNull
+    private static String path = null;
+
+    private NotificationTracing() {
+    }
+
+    /**
+     * Start or stop tracing.
+     *
+     * @param newPath the file to append spans to. {@code null} to stop tracing.
+     */
+    synchronized static void configure(@CheckForNull String newPath) {
+        if (newPath != null ? newPath.equals(path) : path == null) {
+            return;
+        }
+        Tracer current = tracer;
+        tracer = null;
+        path = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to close the trace", e);
+            }
+        }
+        if (newPath == null) {
+            return;
+        }
+        try {
+            tracer = new Tracer(new JsonLinesSpanExporter(
+                new OutputStreamWriter(new FileOutputStream(new File(newPath), true), "UTF-8")
+            ));
+            path = newPath;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, String.format("Failed to open the trace %s", newPath), e);
+        }
+    }
+
+    /**
+     * @return whether tracing is enabled
+     */
+    static boolean isEnabled() {
+        return tracer != null;
+    }
+
+    /**
+     * Start a span if enabled.
+     *
+     * @param name name of the operation
+     * @return the started span. {@code null} if disabled.
+     */
+    @CheckForNull
+    static Span start(@Nonnull String name) {
+        Tracer t = tracer;
+        return (t != null) ? t.start(name) : null;
+    }
+
+    /**
+     * Start a span for a notification if enabled.
+     *
+     * @param name name of the operation
+     * @param uri URI of the repository
+     * @param branches branches update occurred
+     * @return the started span. {@code null} if disabled.
+     */
+    @CheckForNull
+    static Span start(@Nonnull String name, @Nonnull String uri, @Nonnull String[] branches) {
+        Tracer t = tracer;
+        if (t == null) {
+            return null;
+        }
+        return t.start(name)
+            .setAttribute("uri", uri)
+            .setAttribute("branches", StringUtils.join(branches, ','));
+    }
+
+    /**
+     * Start a span in another thread than the current span if enabled.
+     *
+     * @param name name of the operation
+     * @param parent the span in the original thread
+     * @return the started span. {@code null} if disabled.
+     */
+    @CheckForNull
+    static Span startChild(@Nonnull String name, @CheckForNull Span parent) {
+        Tracer t = tracer;
+        return (t != null) ? t.start(name, parent) : null;
+    }
+
+    /**
+     * @return the current span of this thread. {@code null} if none or disabled.
+     */
+    @CheckForNull
+    static Span current() {
+        Tracer t = tracer;
+        return (t != null) ? t.current() : null;
+    }
+
+    /**
+     * End a span if not {@code null}.
+     *
+     * @param span the span to end
+     */
+    static void end(@CheckForNull Span span) {
+        if (span != null) {
+            span.end();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Reports notifications taking too long to dispatch.
+ *
+ * A background thread checks notifications in flight,
+ * and logs the stage and the stack of the dispatching thread
+ * for ones exceeding the threshold.
+ * Reports are limited to one per the configured interval.
+ */
+public class NotificationWatchdog {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(NotificationWatchdog.class.getName());
+    private static final long MIN_CHECK_INTERVAL_MILLIS = 50;
+    private static final long MAX_CHECK_INTERVAL_MILLIS = 1000;
+
+    @Nonnull
+    private static final NotificationWatchdog INSTANCE = new NotificationWatchdog();
+
+    @Nonnull
+    private final ConcurrentMap<Thread, NotificationRecord> inFlight
+        = new ConcurrentHashMap<Thread, NotificationRecord>();
+    private volatile long thresholdMillis = 0;
+    private volatile long reportIntervalMillis = 0;
+
+    // guarded by this
+    private long lastReportMillis = 0;
+    private int suppressed = 0;
+    @CheckForNull
+    private Thread checker = null;
+
+    NotificationWatchdog() {
+    }
+
+    /**
+     * @return the instance used for notifications
+     */
+    @Nonnull
+    public static NotificationWatchdog get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param thresholdMillis report notifications taking longer than this. 0 to disable.
+     * @param reportIntervalMillis minimum interval between reports
+     */
+    public void configure(long thresholdMillis, long reportIntervalMillis) {
+        this.thresholdMillis = thresholdMillis;
+        this.reportIntervalMillis = reportIntervalMillis;
+        if (thresholdMillis > 0) {
+            startChecker();
+        }
+    }
+
+    private synchronized void startChecker() {
+        if (checker != null) {
+            return;
+        }
+        checker = new Thread("Git Status Trigger notification watchdog") {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        Thread.sleep(getCheckIntervalMillis());
+                        check();
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (RuntimeException e) {
+                        LOG.log(Level.WARNING, "Unexpected failure in watchdog", e);
+                    }
+                }
+            }
+        };
+        checker.setDaemon(true);
+        checker.start();
+    }
+
+    private long getCheckIntervalMillis() {
+        long threshold = thresholdMillis;
+        if (threshold <= 0) {
+            return MAX_CHECK_INTERVAL_MILLIS;
+        }
+        return Math.max(MIN_CHECK_INTERVAL_MILLIS, Math.min(MAX_CHECK_INTERVAL_MILLIS, threshold / 2));
+    }
+
+    /**
+     * Start watching a notification dispatched in the current thread.
+     *
+     * @param r the record of the notification
+     */
+    void watch(@Nonnull NotificationRecord r) {
+        if (thresholdMillis <= 0) {
+            return;
+        }
+        inFlight.put(Thread.currentThread(), r);
+    }
+
+    /**
+     * Stop watching the notification dispatched in the current thread.
+     *
+     * @param r the record of the notification
+     */
+    void unwatch(@Nonnull NotificationRecord r) {
+        if (inFlight.remove(Thread.currentThread()) == null) {
+            return;
+        }
+        if (r.isReported()) {
+            LOG.log(
+                Level.FINE,
+                "Slow notification from {0} finished in {1} ms",
+                new Object[] {
+                    r.getUri(),
+                    TimeUnit.NANOSECONDS.toMillis(r.getElapsedNanos()),
+                }
+            );
+        }
+    }
+
+    /**
+     * Test notifications in flight and report slow ones.
+     */
+    synchronized void check() {
+        long threshold = thresholdMillis;
+        if (threshold <= 0) {
+            return;
+        }
+        for (NotificationRecord r: inFlight.values()) {
+            if (r.isReported()) {
+                continue;
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(r.getElapsedNanos());
+            if (elapsedMillis < threshold) {
+                continue;
+            }
+            r.setReported(true);
+            report(r, elapsedMillis);
+        }
+    }
+
+    private void report(@Nonnull NotificationRecord r, long elapsedMillis) {
+        int suppressedBefore;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (lastReportMillis != 0 && now - lastReportMillis < reportIntervalMillis) {
+                ++suppressed;
+                return;
+            }
+            lastReportMillis = now;
+            suppressedBefore = suppressed;
+            suppressed = 0;
+        }
+        // Sample the stack first as the thread keeps running.
+        Thread thread = r.getThread();
+        NotificationRecord.Stage stage = r.getStage();
+        SlowNotification stack = new SlowNotification(
+            (thread != null) ? thread.getStackTrace() : new StackTraceElement[0]
+        );
+        LOG.log(
+            Level.WARNING,
+            String.format(
+                "Push notification from %s (branches=%s) has taken %d ms and is still in %s"
+                + " on thread %s. %d slow notifications were not reported since the last report.",
+                r.getUri(),
+                r.getBranches(),
+                elapsedMillis,
+                stage,
+                (thread != null) ? thread.getName() : "(unknown)",
+                suppressedBefore
+            ),
+            stack
+        );
+    }
+
+    /**
+     * Holds the sampled stack of a dispatching thread.
+     */
+    private static class SlowNotification extends Throwable {
+        private static final long serialVersionUID = 1L;
+
+        public SlowNotification(@Nonnull StackTraceElement[] stack) {
+            super("Stack of the dispatching thread");
+            setStackTrace(stack);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import org.kohsuke.args4j.Option;
+
+import hudson.Extension;
+import hudson.cli.CLICommand;
+
+/**
+ * CLI command to rewrite {@link GitStatusTarget}s of many jobs at once.
+ *
+ * <pre>
+ * java -jar jenkins-cli.jar rewrite-git-status-targets --from-uri OLD [--to-uri NEW] [--branches BRANCHES] [--dry-run]
+ * </pre>
+ *
+ * @see GitStatusTargetRewriter
+ */
+@Extension
+public class RewriteGitStatusTargetsCommand extends CLICommand {
+    @Option(name = "--from-uri", required = true, usage = "URI of the repository to rewrite")
+    public String fromUri;
+
+    @Option(name = "--to-uri", usage = "New URI of the repository")
+    public String toUri;
+
+    @Option(name = "--branches", usage = "New comma-separated list of branches")
+    public String branches;
+
+    @Option(name = "--dry-run", usage = "Only list jobs to change")
+    public boolean dryRun = false;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getShortDescription() {
+        return Messages.RewriteGitStatusTargetsCommand_ShortDescription();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int run() throws Exception {
+        if (toUri == null && branches == null) {
+            stderr.println("Specify --to-uri or --branches");
+            return -1;
+        }
+        GitStatusTargetRewriter.Result result = new GitStatusTargetRewriter(fromUri, toUri, branches).rewrite(dryRun);
+        for (String name: result.getChanged()) {
+            stdout.println((dryRun ? "Would change: " : "Changed: ") + name);
+        }
+        for (String name: result.getSkipped()) {
+            stderr.println("Skipped: " + name);
+        }
+        // jobs left with old targets.
+        return result.getSkipped().isEmpty() ? 0 : 1;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+
+/**
+ * A repository to listen defined in the system configuration,
+ * and shared among jobs referring it with {@link SharedRepositoryReference}.
+ *
+ * Matched once for a notification, however many jobs refer it.
+ */
+public class SharedRepository extends AbstractDescribableImpl<SharedRepository> {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(SharedRepository.class.getName());
+
+    @Nonnull
+    private static volatile Map<String, SharedRepository> registry = Collections.emptyMap();
+
+    @Nonnull
+    private final String id;
+    @Nonnull
+    private final String uri;
+    @Nonnull
+    private final String branches;
+    @Nonnull
+    private final transient GitStatusTarget target;
+
+    /**
+     * @param id ID to refer from jobs
+     * @param uri URI of repository
+     * @param branches Comma-separated list of branches
+     */
+    @DataBoundConstructor
+    public SharedRepository(String id, String uri, String branches) {
+        this.id = StringUtils.trim(Util.fixNull(id));
+        this.target = new GitStatusTarget(uri, branches);
+        this.uri = target.getUri();
+        this.branches = target.getBranches();
+    }
+
+    /**
+     * Parse branches when loaded from the configuration.
+     *
+     * @return the instance to use
+     */
+    private Object readResolve() {
+        return new SharedRepository(id, uri, branches);
+    }
+
+    /**
+     * @return ID to refer from jobs
+     */
+    @Nonnull
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return URI of the repository
+     */
+    @Nonnull
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * @return Comma-separated list of branches
+     */
+    @Nonnull
+    public String getBranches() {
+        return branches;
+    }
+
+    /**
+     * @return the target to test notifications
+     */
+    @Nonnull
+    GitStatusTarget getTarget() {
+        return target;
+    }
+
+    /**
+     * Test whether notification matches this repository
+     *
+     * @param uri URI of the repository, in the string representation
+     * @param branches Affected branches. May be empty.
+     * @return the cause indicating the matched target.
+     */
+    @CheckForNull
+    GitStatusTriggerCause isMatch(@Nonnull String uri, @Nonnull String... branches) {
+        return target.isMatch(uri, branches);
+    }
+
+    /**
+     * Replace repositories available to jobs.
+     *
+     * @param repositories repositories defined in the system configuration
+     */
+    synchronized static void configure(@Nonnull List<SharedRepository> repositories) {
+        Map<String, SharedRepository> newRegistry = new LinkedHashMap<String, SharedRepository>();
+        for (SharedRepository r: repositories) {
+            if (newRegistry.containsKey(r.getId())) {
+                LOG.warning(String.format("Ignored duplicate shared repository %s", r.getId()));
+                continue;
+            }
+            newRegistry.put(r.getId(), r);
+        }
+        registry = Collections.unmodifiableMap(newRegistry);
+    }
+
+    /**
+     * @param id ID of the repository
+     * @return the repository. {@code null} if not defined.
+     */
+    @CheckForNull
+    static SharedRepository get(@CheckForNull String id) {
+        return (id != null) ? registry.get(id) : null;
+    }
+
+    /**
+     * @return all repositories available to jobs
+     */
+    @Nonnull
+    static List<SharedRepository> all() {
+        return new ArrayList<SharedRepository>(registry.values());
+    }
+
+    /**
+     * Descriptor for {@link SharedRepository}
+     */
+    @Extension
+    public static class DescriptorImpl extends Descriptor<SharedRepository> {
+        @Override
+        public String getDisplayName() {
+            return Messages.SharedRepository_DisplayName();
+        }
+
+        public FormValidation doCheckId(@QueryParameter String id) {
+            if (StringUtils.isBlank(id)) {
+                return FormValidation.error(Messages.SharedRepository_id_required());
+            }
+            return FormValidation.ok();
+        }
+
+        public FormValidation doCheckUri(@QueryParameter String uri) {
+            return GitStatusTarget.checkUri(uri);
+        }
+    }
+}
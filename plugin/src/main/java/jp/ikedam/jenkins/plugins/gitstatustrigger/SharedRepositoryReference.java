@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+
+/**
+ * Refers a {@link SharedRepository} from a job.
+ */
+public class SharedRepositoryReference extends AbstractDescribableImpl<SharedRepositoryReference> {
+    @Nonnull
+    private final String id;
+
+    /**
+     * @param id ID of the shared repository
+     */
+    @DataBoundConstructor
+    public SharedRepositoryReference(String id) {
+        this.id = StringUtils.trim(Util.fixNull(id));
+    }
+
+    /**
+     * @return ID of the shared repository
+     */
+    @Nonnull
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the shared repository. {@code null} if not defined any more.
+     */
+    @CheckForNull
+    public SharedRepository resolve() {
+        return SharedRepository.get(id);
+    }
+
+    /**
+     * Descriptor for {@link SharedRepositoryReference}
+     */
+    @Extension
+    public static class DescriptorImpl extends Descriptor<SharedRepositoryReference> {
+        @Override
+        public String getDisplayName() {
+            return Messages.SharedRepositoryReference_DisplayName();
+        }
+
+        public ListBoxModel doFillIdItems() {
+            ListBoxModel items = new ListBoxModel();
+            for (SharedRepository r: SharedRepository.all()) {
+                items.add(String.format("%s (%s)", r.getId(), r.getUri()), r.getId());
+            }
+            return items;
+        }
+
+        public FormValidation doCheckId(@QueryParameter String id) {
+            if (SharedRepository.get(id) == null) {
+                return FormValidation.error(Messages.SharedRepositoryReference_id_notFound(id));
+            }
+            return FormValidation.ok();
+        }
+    }
+}
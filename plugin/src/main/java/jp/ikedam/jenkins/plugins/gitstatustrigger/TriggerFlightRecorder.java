@@ -0,0 +1,76 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.TriggerEvents;
+
+/**
+ * Emits JDK Flight Recorder events when running on Java 11 or later.
+ *
+ * Events are implemented in the jfr module built for Java 11,
+ * and loaded reflectively not to require Java 11 for this plugin.
+ */
+class TriggerFlightRecorder {
+    @Nonnull
+    private static final Logger LOG = Logger.getLogger(TriggerFlightRecorder.class.getName());
+
+    private static final String IMPLEMENTATION = "jp.ikedam.jenkins.plugins.gitstatustrigger.jfr.JfrTriggerEvents";
+
+    /**
+     * Receives events. {@code null} if JDK Flight Recorder is not available.
+     * A constant so that the JIT compiler removes calls when not available.
+     */
+    @CheckForNull
+    static final TriggerEvents EVENTS = load();
+
+    private TriggerFlightRecorder() {
+    }
+
+    @CheckForNull
+    private static TriggerEvents load() {
+        try {
+            return (TriggerEvents)Class.forName(IMPLEMENTATION).newInstance();
+        } catch (ClassNotFoundException e) {
+            // not bundled
+            return null;
+        } catch (LinkageError e) {
+            // running on Java < 11
+            LOG.log(Level.FINE, "JDK Flight Recorder events are not available", e);
+            return null;
+        } catch (InstantiationException e) {
+            LOG.log(Level.WARNING, "Failed to load JDK Flight Recorder events", e);
+            return null;
+        } catch (IllegalAccessException e) {
+            LOG.log(Level.WARNING, "Failed to load JDK Flight Recorder events", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import hudson.model.Cause;
+import hudson.model.CauseAction;
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+
+/**
+ * Tests for {@link BuildHoldingArea}
+ */
+public class BuildHoldingAreaTest {
+    private static final int ACTIVITY_WAIT = 60000;
+
+    @Rule
+    public GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    @After
+    public void tearDown() {
+        BuildHoldingArea.get().configure(0, 0, 10);
+        BuildHoldingArea.get().clear();
+    }
+
+    private FreeStyleProject createProject(String uri, String branches) throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.addTrigger(new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget(uri, branches)
+        )));
+        j.configRoundtrip((Item)p);
+        return p;
+    }
+
+    @Test
+    public void testHoldAndRelease() throws Exception {
+        BuildHoldingArea area = BuildHoldingArea.get();
+        FreeStyleProject p1 = createProject("https://git.example.com/repo1.git", "");
+        FreeStyleProject p2 = createProject("https://git.example.com/repo1.git", "");
+        FreeStyleProject blocker = j.createFreeStyleProject();
+
+        // fill the queue
+        j.jenkins.setNumExecutors(0);
+        blocker.scheduleBuild2(0);
+        j.jenkins.getQueue().maintain();
+        assertEquals(1, j.jenkins.getQueue().countBuildableItems());
+
+        area.configure(1, 0, 1);
+        j.requestGitNotification("https://git.example.com/repo1.git", "master");
+        j.requestGitNotification("https://git.example.com/repo1.git", "develop");
+
+        assertEquals(2, area.size());
+        List<BuildHoldingArea.HeldBuild> held = area.getHeldBuilds();
+        assertEquals(p1.getFullName(), held.get(0).getJobFullName());
+        assertEquals("master", held.get(0).getCause().getBranch());
+        assertEquals(1, held.get(0).getMergedCount());
+        assertFalse(j.jenkins.getQueue().contains(p1));
+        assertFalse(j.jenkins.getQueue().contains(p2));
+
+        // still overloaded
+        assertEquals(0, area.release());
+        assertEquals(2, area.size());
+
+        j.jenkins.setNumExecutors(2);
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+
+        // released one by one
+        assertEquals(1, area.release());
+        assertEquals(1, area.size());
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        assertNotNull(p1.getLastBuild());
+        assertNull(p2.getLastBuild());
+
+        assertEquals(1, area.release());
+        assertEquals(0, area.size());
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        assertNotNull(p2.getLastBuild());
+        assertEquals(1, p1.getLastBuild().getNumber());
+
+        // merged triggers are kept as causes.
+        List<Cause> causes = p1.getLastBuild().getAction(CauseAction.class).getCauses();
+        assertEquals(2, causes.size());
+        assertEquals("master", ((GitStatusTriggerCause)causes.get(0)).getBranch());
+        assertEquals("develop", ((GitStatusTriggerCause)causes.get(1)).getBranch());
+    }
+
+    @Test
+    public void testMergeBounded() throws Exception {
+        BuildHoldingArea area = BuildHoldingArea.get();
+        createProject("https://git.example.com/repo1.git", "");
+        FreeStyleProject blocker = j.createFreeStyleProject();
+
+        // fill the queue
+        j.jenkins.setNumExecutors(0);
+        blocker.scheduleBuild2(0);
+        j.jenkins.getQueue().maintain();
+
+        area.configure(1, 0, 1);
+        j.requestGitNotification("https://git.example.com/repo1.git", "master");
+        j.requestGitNotification("https://git.example.com/repo1.git", "master");
+        j.requestGitNotification("https://git.example.com/repo1.git", "master");
+        for (int i = 0; i < BuildHoldingArea.MAX_CAUSES + 5; ++i) {
+            j.requestGitNotification("https://git.example.com/repo1.git", "feature" + i);
+        }
+
+        // the same URI and branch is kept only once, and causes are capped.
+        BuildHoldingArea.HeldBuild held = area.getHeldBuilds().get(0);
+        List<GitStatusTriggerCause> causes = held.getCauses();
+        assertEquals(BuildHoldingArea.MAX_CAUSES, causes.size());
+        assertEquals("master", causes.get(0).getBranch());
+        assertEquals("feature0", causes.get(1).getBranch());
+        // but all are counted.
+        assertEquals(2 + BuildHoldingArea.MAX_CAUSES + 5, held.getMergedCount());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        FreeStyleProject p = createProject("https://git.example.com/repo1.git", "");
+        assertFalse(BuildHoldingArea.get().isEnabled());
+        j.jenkins.setNumExecutors(0);
+        j.requestGitNotification("https://git.example.com/repo1.git", "master");
+        assertTrue(j.jenkins.getQueue().contains(p));
+        assertEquals(0, BuildHoldingArea.get().size());
+        j.jenkins.setNumExecutors(2);
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+    }
+
+    @Test
+    public void testLabelLoad() throws Exception {
+        FreeStyleProject p = createProject("https://git.example.com/repo1.git", "");
+        p.setAssignedLabel(null);
+        BuildHoldingArea.get().configure(0, 100, 10);
+        assertFalse(BuildHoldingArea.get().isOverloaded(p));
+    }
+
+    @Test
+    public void testEmptyLabel() throws Exception {
+        FreeStyleProject p = createProject("https://git.example.com/repo1.git", "");
+        // e.g. a label provisioned by clouds.
+        p.setAssignedLabel(j.jenkins.getLabel("nosuchlabel"));
+        BuildHoldingArea.get().configure(0, 100, 10);
+        assertFalse(BuildHoldingArea.get().isOverloaded(p));
+
+        j.requestGitNotification("https://git.example.com/repo1.git", "master");
+        assertEquals(0, BuildHoldingArea.get().size());
+        assertTrue(j.jenkins.getQueue().contains(p));
+        j.jenkins.getQueue().cancel(p);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+
+/**
+ * Tests for {@link GitStatusTargetRewriter}
+ */
+public class GitStatusTargetRewriterTest {
+    private static final int ACTIVITY_WAIT = 60000;
+    private static final String OLD_URI = "https://git.example.com/old/repo.git";
+    private static final String NEW_URI = "https://git.example.com/new/repo.git";
+
+    @Rule
+    public GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    private FreeStyleProject createProject(GitStatusTarget... targets) throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.addTrigger(new GitStatusTrigger(Arrays.asList(targets)));
+        j.configRoundtrip((Item)p);
+        return p;
+    }
+
+    @Test
+    public void testRewrite() throws Exception {
+        FreeStyleProject p1 = createProject(new GitStatusTarget(OLD_URI, "master"));
+        FreeStyleProject p2 = createProject(
+            new GitStatusTarget("https://git.example.com/other.git", ""),
+            new GitStatusTarget(OLD_URI + "/", "develop")
+        );
+        FreeStyleProject p3 = createProject(new GitStatusTarget("https://git.example.com/other.git", ""));
+        GitStatusTrigger unchanged = p3.getTrigger(GitStatusTrigger.class);
+
+        long generation = GitStatusTrigger.getCacheGeneration();
+        GitStatusTargetRewriter.Result result = new GitStatusTargetRewriter(OLD_URI, NEW_URI, null).rewrite(false);
+        assertEquals(Arrays.asList(p1.getFullName(), p2.getFullName()), result.getChanged());
+        assertEquals(Collections.emptyList(), result.getSkipped());
+        // the index is invalidated only once for all jobs.
+        assertEquals(generation + 1, GitStatusTrigger.getCacheGeneration());
+
+        GitStatusTarget t1 = p1.getTrigger(GitStatusTrigger.class).getTargetList().get(0);
+        assertEquals(NEW_URI, t1.getUri());
+        assertEquals("master", t1.getBranches());
+        GitStatusTarget t2 = p2.getTrigger(GitStatusTrigger.class).getTargetList().get(1);
+        assertEquals(NEW_URI, t2.getUri());
+        assertEquals("develop", t2.getBranches());
+        assertTrue(unchanged == p3.getTrigger(GitStatusTrigger.class));
+
+        j.requestGitNotification(NEW_URI, "master");
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        assertNotNull(p1.getLastBuild());
+        assertNull(p2.getLastBuild());
+        assertNull(p3.getLastBuild());
+    }
+
+    @Test
+    public void testRewriteBranches() throws Exception {
+        FreeStyleProject p = createProject(new GitStatusTarget(OLD_URI, "master"));
+
+        new GitStatusTargetRewriter(OLD_URI, null, "master, release/*").rewrite(false);
+        GitStatusTarget t = p.getTrigger(GitStatusTrigger.class).getTargetList().get(0);
+        assertEquals(OLD_URI, t.getUri());
+        assertEquals("master, release/*", t.getBranches());
+
+        // nothing to change any more.
+        long generation = GitStatusTrigger.getCacheGeneration();
+        GitStatusTargetRewriter.Result result = new GitStatusTargetRewriter(OLD_URI, null, "master, release/*").rewrite(false);
+        assertEquals(Collections.emptyList(), result.getChanged());
+        assertEquals(generation, GitStatusTrigger.getCacheGeneration());
+    }
+
+    @Test
+    public void testDryRun() throws Exception {
+        FreeStyleProject p = createProject(new GitStatusTarget(OLD_URI, "master"));
+        GitStatusTrigger t = p.getTrigger(GitStatusTrigger.class);
+
+        GitStatusTargetRewriter.Result result = new GitStatusTargetRewriter(OLD_URI, NEW_URI, null).rewrite(true);
+        assertEquals(Arrays.asList(p.getFullName()), result.getChanged());
+        assertTrue(t == p.getTrigger(GitStatusTrigger.class));
+        assertEquals(OLD_URI, t.getTargetList().get(0).getUri());
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URISyntaxException;
+import java.util.Arrays;
+
+import org.eclipse.jgit.transport.URIish;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import hudson.model.Items;
+import hudson.util.FormValidation;
+
+/**
+ * Tests for {@link GitStatusTarget}
+ */
+public class GitStatusTargetTest {
+    @ClassRule
+    public static GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    private GitStatusTarget.DescriptorImpl getDescriptor() {
+        return (GitStatusTarget.DescriptorImpl)j.jenkins.getDescriptor(GitStatusTarget.class);
+    }
+
+    @Test
+    public void testDescriptorDoCheckUriOk() throws Exception {
+        GitStatusTarget.DescriptorImpl d = getDescriptor();
+
+        assertEquals(
+            FormValidation.Kind.OK,
+            d.doCheckUri("https://github.com/ikedam/git-status-trigger-plugin").kind
+        );
+        assertEquals(
+            FormValidation.Kind.OK,
+            d.doCheckUri("git@github.com:ikedam/git-status-trigger-plugin.git").kind
+        );
+        assertEquals(
+            FormValidation.Kind.OK,
+            d.doCheckUri("https://github.com/ikedam/*").kind
+        );
+    }
+
+    @Test
+    public void testDescriptorDoCheckUriNg() throws Exception {
+        GitStatusTarget.DescriptorImpl d = getDescriptor();
+
+        assertEquals(
+            FormValidation.Kind.ERROR,
+            d.doCheckUri("").kind
+        );
+        assertEquals(
+            FormValidation.Kind.ERROR,
+            d.doCheckUri("   ").kind
+        );
+        assertEquals(
+            FormValidation.Kind.WARNING,
+            d.doCheckUri("https://github.com/ikedam/*-plugin").kind
+        );
+        assertEquals(
+            FormValidation.Kind.WARNING,
+            d.doCheckUri("https://github.com/*/*").kind
+        );
+    }
+
+    @Test
+    public void testWildcard() throws Exception {
+        GitStatusTarget target = new GitStatusTarget("https://github.com/ikedam/*", "master");
+
+        GitStatusTriggerCause c = target.isMatch("https://github.com/ikedam/git-status-trigger-plugin", "master");
+        assertNotNull(c);
+        assertEquals("https://github.com/ikedam/git-status-trigger-plugin", c.getUri());
+        assertEquals("master", c.getBranch());
+        assertNotNull(target.isMatch("https://github.com/ikedam/group/repo", "master"));
+        assertNull(target.isMatch("https://github.com/ikedam/git-status-trigger-plugin", "develop"));
+        assertNull(target.isMatch("https://github.com/ikedam", "master"));
+        assertNull(target.isMatch("https://github.com/ikedam/", "master"));
+        assertNull(target.isMatch("https://github.com/another/repo", "master"));
+    }
+
+    /**
+     * Overrides branch matching as in the extension point of previous versions.
+     */
+    private static class IgnoreCaseTarget extends GitStatusTarget {
+        public IgnoreCaseTarget(String uri, String branches) {
+            super(uri, branches);
+        }
+
+        @Override
+        protected boolean isMatchBranch(String targetBranch, String branch) {
+            return targetBranch.equalsIgnoreCase(branch);
+        }
+    }
+
+    /**
+     * Overrides matching URIs as in the extension point of previous versions.
+     */
+    private static class AnyUriTarget extends GitStatusTarget {
+        private final URIish target;
+
+        public AnyUriTarget(String branches) throws URISyntaxException {
+            super("https://github.com/ikedam/repo", branches);
+            target = new URIish("https://github.com/ikedam/repo");
+        }
+
+        @Override
+        public GitStatusTriggerCause isMatch(URIish uri, String... branches) {
+            return super.isMatch(target, branches);
+        }
+    }
+
+    @Test
+    public void testSubclass() throws Exception {
+        GitStatusTarget t1 = new IgnoreCaseTarget("https://github.com/ikedam/repo", "Master, develop");
+        GitStatusTriggerCause c = t1.isMatch("https://github.com/ikedam/repo", "feature", "master");
+        assertNotNull(c);
+        assertEquals("master", c.getBranch());
+        assertNull(t1.isMatch("https://github.com/ikedam/repo", "feature"));
+        assertNull(t1.isMatch("https://github.com/ikedam/another", "master"));
+        // subclasses are not shared.
+        assertSame(t1, GitStatusTarget.canonical(t1));
+
+        GitStatusTarget t2 = new AnyUriTarget("master");
+        assertNotNull(t2.isMatch("https://github.com/ikedam/another", "master"));
+        assertNull(t2.isMatch("https://github.com/ikedam/another", "develop"));
+    }
+
+    @Test
+    public void testCanonical() throws Exception {
+        GitStatusTarget t1 = GitStatusTarget.of("https://github.com/ikedam/repo", "master");
+        assertSame(t1, GitStatusTarget.of(" https://github.com/ikedam/repo ", "master "));
+        assertNotSame(t1, GitStatusTarget.of("https://github.com/ikedam/repo", "develop"));
+
+        GitStatusTarget t2 = new GitStatusTarget("https://github.com/ikedam/repo", "master");
+        assertNotSame(t1, t2);
+        assertSame(t1, GitStatusTarget.canonical(t2));
+
+        GitStatusTrigger trigger = new GitStatusTrigger(Arrays.asList(t2));
+        assertSame(t1, trigger.getTargetList().get(0));
+    }
+
+    @Test
+    public void testXml() throws Exception {
+        GitStatusTrigger trigger = new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget("https://github.com/ikedam/repo", "master,develop"),
+            new GitStatusTarget("https://github.com/ikedam/*", "")
+        ));
+        String xml = Items.XSTREAM.toXML(trigger);
+        assertTrue(xml, xml.contains("<uri>https://github.com/ikedam/repo</uri>"));
+        assertTrue(xml, xml.contains("<branches>master,develop</branches>"));
+        assertTrue(xml, xml.contains("<uri>https://github.com/ikedam/*</uri>"));
+        // empty fields are not written.
+        assertFalse(xml, xml.contains("<branches></branches>"));
+        assertFalse(xml, xml.contains("<branches/>"));
+        assertFalse(xml, xml.contains("sharedRepositoryList"));
+
+        GitStatusTrigger loaded1 = (GitStatusTrigger)Items.XSTREAM.fromXML(xml);
+        GitStatusTrigger loaded2 = (GitStatusTrigger)Items.XSTREAM.fromXML(xml);
+        assertEquals(2, loaded1.getTargetList().size());
+        assertSame(trigger.getTargetList().get(0), loaded1.getTargetList().get(0));
+        assertSame(loaded1.getTargetList().get(1), loaded2.getTargetList().get(1));
+        assertEquals("", loaded1.getTargetList().get(1).getBranches());
+        assertNotNull(loaded1.getTargetList().get(0).isMatch("https://github.com/ikedam/repo", "develop"));
+        assertEquals(xml, Items.XSTREAM.toXML(loaded1));
+    }
+
+    @Test
+    public void testXmlCompatibility() throws Exception {
+        // written by previous versions.
+        GitStatusTrigger loaded = (GitStatusTrigger)Items.XSTREAM.fromXML(
+            "<jp.ikedam.jenkins.plugins.gitstatustrigger.GitStatusTrigger>"
+            + "<spec></spec>"
+            + "<targetList>"
+            + "<jp.ikedam.jenkins.plugins.gitstatustrigger.GitStatusTarget>"
+            + "<uri>https://github.com/ikedam/repo</uri>"
+            + "<branches></branches>"
+            + "</jp.ikedam.jenkins.plugins.gitstatustrigger.GitStatusTarget>"
+            + "</targetList>"
+            + "</jp.ikedam.jenkins.plugins.gitstatustrigger.GitStatusTrigger>"
+        );
+        assertEquals(1, loaded.getTargetList().size());
+        assertSame(GitStatusTarget.of("https://github.com/ikedam/repo", ""), loaded.getTargetList().get(0));
+        assertNotNull(loaded.match("https://github.com/ikedam/repo", "master"));
+    }
+}
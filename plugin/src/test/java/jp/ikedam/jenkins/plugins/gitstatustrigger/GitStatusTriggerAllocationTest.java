@@ -0,0 +1,200 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jgit.transport.URIish;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests allocations when handling notifications stay in budgets.
+ *
+ * Measured with per-thread allocation counters of HotSpot.
+ * Skipped on JVMs not supporting them.
+ */
+public class GitStatusTriggerAllocationTest {
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 10000;
+
+    /**
+     * Budget for {@link GitStatusTrigger#onNotifyCommit(URIish, String...)}.
+     * Allows the string representation of the URI and a cause.
+     */
+    private static final long ON_NOTIFY_COMMIT_BUDGET = 512;
+
+    /**
+     * Budget for dispatching a notification to 100 triggers.
+     * Allows the string representation of the URI, an iterator and a few causes.
+     */
+    private static final long DISPATCH_BUDGET = 1024;
+
+    private static final String URI = "https://git.example.com/platform/service.git";
+
+    private com.sun.management.ThreadMXBean threadMXBean;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean)bean;
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        GitStatusTrigger.setItemsToNotify(null);
+    }
+
+    private interface Scenario {
+        void run() throws Exception;
+    }
+
+    /**
+     * @return allocated bytes per a run of the scenario
+     */
+    private long measure(Scenario scenario) throws Exception {
+        for (int i = 0; i < WARMUP; ++i) {
+            scenario.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; ++i) {
+            scenario.run();
+        }
+        long after = threadMXBean.getThreadAllocatedBytes(threadId);
+        return (after - before) / ITERATIONS;
+    }
+
+    private void assertOnNotifyCommitInBudget(
+        String name,
+        String branches,
+        final URIish uri,
+        final String... notified
+    ) throws Exception {
+        final GitStatusTrigger t = new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget("https://git.example.com/platform/other.git", ""),
+            new GitStatusTarget(URI, branches)
+        ));
+        long allocated = measure(new Scenario() {
+            public void run() throws Exception {
+                t.onNotifyCommit(uri, notified);
+            }
+        });
+        assertTrue(
+            String.format("%s: allocated %d bytes per call (budget %d)", name, allocated, ON_NOTIFY_COMMIT_BUDGET),
+            allocated <= ON_NOTIFY_COMMIT_BUDGET
+        );
+    }
+
+    @Test
+    public void testOnNotifyCommitUriNotMatch() throws Exception {
+        assertOnNotifyCommitInBudget(
+            "uri not match",
+            "master",
+            new URIish("https://git.example.com/platform/unknown.git"),
+            "master"
+        );
+    }
+
+    @Test
+    public void testOnNotifyCommitExactMatch() throws Exception {
+        assertOnNotifyCommitInBudget(
+            "exact match",
+            "master, develop, release",
+            new URIish(URI),
+            "release"
+        );
+    }
+
+    @Test
+    public void testOnNotifyCommitWildcardMatch() throws Exception {
+        assertOnNotifyCommitInBudget(
+            "wildcard match",
+            "feature/*/test, release/*, bug*fix*",
+            new URIish(URI),
+            "team/urgent-bugfix-1234"
+        );
+    }
+
+    @Test
+    public void testOnNotifyCommitWildcardNotMatch() throws Exception {
+        assertOnNotifyCommitInBudget(
+            "wildcard not match",
+            "feature/*/test, release/*, bug*fix*",
+            new URIish(URI),
+            "feature/something/else"
+        );
+    }
+
+    @Test
+    public void testOnNotifyCommitManyRefs() throws Exception {
+        String[] refs = new String[300];
+        for (int i = 0; i < refs.length; ++i) {
+            refs[i] = String.format("feature/JIRA-%05d", i);
+        }
+        assertOnNotifyCommitInBudget(
+            "many refs",
+            "release/*, hotfix/*",
+            new URIish(URI),
+            refs
+        );
+    }
+
+    @Test
+    public void testDispatch() throws Exception {
+        List<GitStatusTrigger> triggers = new ArrayList<GitStatusTrigger>();
+        for (int i = 0; i < 100; ++i) {
+            triggers.add(new GitStatusTrigger(Arrays.asList(
+                new GitStatusTarget(
+                    String.format("https://git.example.com/platform/repository%02d.git", i % 20),
+                    (i % 2 == 0) ? "" : "master, release/*"
+                )
+            )));
+        }
+        GitStatusTrigger.setItemsToNotify(triggers);
+        final URIish uri = new URIish("https://git.example.com/platform/repository07.git");
+        final String[] branches = {"release/1.0"};
+
+        long allocated = measure(new Scenario() {
+            public void run() throws Exception {
+                GitStatusTrigger.BroadCastNotifyAll(uri, branches);
+            }
+        });
+        assertTrue(
+            String.format("dispatch: allocated %d bytes per notification (budget %d)", allocated, DISPATCH_BUDGET),
+            allocated <= DISPATCH_BUDGET
+        );
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.gargoylesoftware.htmlunit.FailingHttpStatusCodeException;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.security.GlobalMatrixAuthorizationStrategy;
+import hudson.security.csrf.DefaultCrumbIssuer;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Tests for {@link GitStatusTriggerEndpoint}
+ */
+public class GitStatusTriggerEndpointTest {
+    private static final int ACTIVITY_WAIT = 60000;
+
+    @Rule
+    public GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    private FreeStyleProject createProject(String uri, String branches) throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.addTrigger(new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget(uri, branches)
+        )));
+        j.configRoundtrip((Item)p);
+        return p;
+    }
+
+    @Test
+    public void testNotifyCommits() throws Exception {
+        FreeStyleProject p1 = createProject("https://git.example.com/repo1.git", "master");
+        FreeStyleProject p2 = createProject("https://git.example.com/repo2.git", "develop");
+        FreeStyleProject p3 = createProject("https://git.example.com/repo3.git", "");
+
+        String response = j.postToEndpoint(
+            "notifyCommits",
+            "application/json",
+            "["
+            + "{\"url\": \"https://git.example.com/repo1.git\", \"branches\": [\"master\", \"develop\"]},"
+            + "{\"url\": \"https://git.example.com/repo2.git\", \"branches\": \"master,feature\"},"
+            + "{\"url\": \"https://git.example.com/repo3.git\"},"
+            + "{\"branches\": [\"master\"]}"
+            + "]"
+        );
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+
+        assertNotNull(p1.getLastBuild());
+        assertNull(p2.getLastBuild());
+        assertNotNull(p3.getLastBuild());
+
+        JSONArray results = JSONObject.fromObject(response).getJSONArray("results");
+        assertEquals(4, results.size());
+        assertEquals(
+            Arrays.asList(p1.getFullName()),
+            results.getJSONObject(0).getJSONArray("triggered")
+        );
+        assertEquals(1, results.getJSONObject(0).getInt("count"));
+        assertEquals(0, results.getJSONObject(1).getJSONArray("triggered").size());
+        assertEquals(0, results.getJSONObject(1).getInt("count"));
+        assertEquals(
+            Arrays.asList(p3.getFullName()),
+            results.getJSONObject(2).getJSONArray("triggered")
+        );
+        assertTrue(results.getJSONObject(3).has("error"));
+    }
+
+    @Test
+    public void testNotifyCommitsHidesUnreadableJobs() throws Exception {
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        GlobalMatrixAuthorizationStrategy auth = new GlobalMatrixAuthorizationStrategy();
+        auth.add(Jenkins.ADMINISTER, "admin");
+        auth.add(Jenkins.READ, "anonymous");
+        j.jenkins.setAuthorizationStrategy(auth);
+        FreeStyleProject p = createProject("https://git.example.com/repo1.git", "master");
+
+        String response = j.postToEndpoint(
+            "notifyCommits",
+            "application/json",
+            "[{\"url\": \"https://git.example.com/repo1.git\", \"branches\": [\"master\"]}]"
+        );
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+
+        // triggered, but not visible to anonymous.
+        assertNotNull(p.getLastBuild());
+        JSONObject result = JSONObject.fromObject(response).getJSONArray("results").getJSONObject(0);
+        assertEquals(0, result.getJSONArray("triggered").size());
+        assertEquals(0, result.getInt("count"));
+    }
+
+    @Test
+    public void testNotifyCommitsTooManyNotifications() throws Exception {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i <= GitStatusTriggerEndpoint.MAX_NOTIFICATIONS; ++i) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append("{\"url\": \"https://git.example.com/repo1.git\"}");
+        }
+        sb.append("]");
+        try {
+            j.postToEndpoint("notifyCommits", "application/json", sb.toString());
+        } catch (FailingHttpStatusCodeException e) {
+            assertEquals(400, e.getStatusCode());
+            return;
+        }
+        throw new AssertionError("Expected to fail");
+    }
+
+    @Test
+    public void testNotifyCommitsTooLarge() throws Exception {
+        StringBuilder sb = new StringBuilder("[{\"url\": \"https://git.example.com/repo1.git\", \"branches\": \"");
+        while (sb.length() <= GitStatusTriggerEndpoint.MAX_BODY_SIZE) {
+            sb.append("master,");
+        }
+        sb.append("\"}]");
+        try {
+            j.postToEndpoint("notifyCommits", "application/json", sb.toString());
+        } catch (FailingHttpStatusCodeException e) {
+            assertEquals(413, e.getStatusCode());
+            return;
+        }
+        throw new AssertionError("Expected to fail");
+    }
+
+    @Test
+    public void testPush() throws Exception {
+        FreeStyleProject p1 = createProject("git@github.com:ikedam/git-status-trigger-plugin.git", "master");
+        FreeStyleProject p2 = createProject("https://github.com/ikedam/git-status-trigger-plugin.git", "master");
+        FreeStyleProject p3 = createProject("https://github.com/ikedam/another-plugin.git", "");
+        FreeStyleProject p4 = j.createFreeStyleProject();
+        p4.addTrigger(new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget("git@github.com:ikedam/git-status-trigger-plugin.git", "master"),
+            new GitStatusTarget("https://github.com/ikedam/git-status-trigger-plugin.git", "master")
+        )));
+        j.configRoundtrip((Item)p4);
+
+        String response = j.postToEndpoint(
+            "push",
+            "application/json",
+            "{"
+            + "\"ref\": \"refs/heads/master\","
+            + "\"commits\": [{\"id\": \"0000\", \"message\": \"test\"}],"
+            + "\"repository\": {"
+            + "\"html_url\": \"https://github.com/ikedam/git-status-trigger-plugin\","
+            + "\"ssh_url\": \"git@github.com:ikedam/git-status-trigger-plugin.git\","
+            + "\"clone_url\": \"https://github.com/ikedam/git-status-trigger-plugin.git\""
+            + "}"
+            + "}"
+        );
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+
+        // jobs subscribing different URLs of the same repository are all triggered.
+        assertNotNull(p1.getLastBuild());
+        assertNotNull(p2.getLastBuild());
+        assertNull(p3.getLastBuild());
+        GitStatusTriggerCause c = p1.getLastBuild().getCause(GitStatusTriggerCause.class);
+        assertEquals("git@github.com:ikedam/git-status-trigger-plugin.git", c.getUri());
+        assertEquals("master", c.getBranch());
+        c = p2.getLastBuild().getCause(GitStatusTriggerCause.class);
+        assertEquals("https://github.com/ikedam/git-status-trigger-plugin.git", c.getUri());
+
+        // html_url is not a URL to clone.
+        JSONArray results = JSONObject.fromObject(response).getJSONArray("results");
+        assertEquals(2, results.size());
+        assertEquals("git@github.com:ikedam/git-status-trigger-plugin.git", results.getJSONObject(0).getString("url"));
+        assertEquals(
+            "https://github.com/ikedam/git-status-trigger-plugin.git",
+            results.getJSONObject(1).getString("url")
+        );
+
+        // a job subscribing both URLs is triggered only for the first one.
+        assertEquals(1, p4.getBuilds().size());
+        assertEquals(2, results.getJSONObject(0).getInt("count"));
+        assertEquals(1, results.getJSONObject(1).getInt("count"));
+    }
+
+    @Test
+    public void testPushWithoutCharset() throws Exception {
+        // JSON is UTF-8 even without charset.
+        String branch = "\u6a5f\u80fd";
+        FreeStyleProject p = createProject("https://github.com/ikedam/git-status-trigger-plugin.git", branch);
+
+        j.postToEndpoint(
+            "push",
+            "application/json",
+            "{"
+            + "\"ref\": \"refs/heads/" + branch + "\","
+            + "\"repository\": {"
+            + "\"clone_url\": \"https://github.com/ikedam/git-status-trigger-plugin.git\""
+            + "}"
+            + "}"
+        );
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+
+        assertNotNull(p.getLastBuild());
+        assertEquals(branch, p.getLastBuild().getCause(GitStatusTriggerCause.class).getBranch());
+    }
+
+    @Test
+    public void testPushTag() throws Exception {
+        FreeStyleProject p = createProject("https://github.com/ikedam/git-status-trigger-plugin.git", "");
+
+        String response = j.postToEndpoint(
+            "push",
+            "application/json",
+            "{"
+            + "\"ref\": \"refs/tags/v1.0\","
+            + "\"repository\": {"
+            + "\"clone_url\": \"https://github.com/ikedam/git-status-trigger-plugin.git\""
+            + "}"
+            + "}"
+        );
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+
+        assertNull(p.getLastBuild());
+        assertEquals(0, JSONObject.fromObject(response).getJSONArray("results").size());
+    }
+
+    @Test
+    public void testPushPing() throws Exception {
+        String response = j.postToEndpoint(
+            "push",
+            "application/json",
+            "{\"zen\": \"Keep it logically awesome.\", \"hook_id\": 1}"
+        );
+        assertEquals(0, JSONObject.fromObject(response).getJSONArray("results").size());
+    }
+
+    @Test
+    public void testPushMalformed() throws Exception {
+        try {
+            j.postToEndpoint("push", "application/json", "{\"ref\": ");
+        } catch (FailingHttpStatusCodeException e) {
+            assertEquals(400, e.getStatusCode());
+            return;
+        }
+        throw new AssertionError("Expected to fail");
+    }
+
+    @Test
+    public void testNotifyCommitsInvalidJson() throws Exception {
+        try {
+            j.postToEndpoint("notifyCommits", "application/json", "{\"url\": \"https://git.example.com/repo1.git\"}");
+        } catch (FailingHttpStatusCodeException e) {
+            assertEquals(400, e.getStatusCode());
+            return;
+        }
+        throw new AssertionError("Expected to fail");
+    }
+
+    @Test
+    public void testSimulate() throws Exception {
+        GitStatusTrigger.configureMatchCache(100);
+        FreeStyleProject p1 = createProject("https://git.example.com/repo1.git", "master");
+        FreeStyleProject p2 = createProject("https://git.example.com/repo1.git", "develop");
+        createProject("https://git.example.com/repo2.git", "");
+
+        String request = "{\"url\": \"https://git.example.com/repo1.git\", \"branches\": [\"master\"]}";
+        JSONObject response = JSONObject.fromObject(j.postToEndpoint("simulate", "application/json", request));
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+
+        // no builds are scheduled.
+        assertNull(p1.getLastBuild());
+        assertNull(p2.getLastBuild());
+
+        assertEquals(2, response.getJSONObject("index").getInt("candidates"));
+        assertFalse(response.getJSONObject("matchCache").getBoolean("hit"));
+        JSONArray matched = response.getJSONArray("matched");
+        assertEquals(1, matched.size());
+        assertEquals(p1.getFullName(), matched.getJSONObject(0).getString("job"));
+        assertEquals("https://git.example.com/repo1.git", matched.getJSONObject(0).getString("uri"));
+        assertEquals("master", matched.getJSONObject(0).getString("branch"));
+        assertEquals(0, response.getJSONArray("failed").size());
+        assertTrue(response.getJSONObject("nanos").has("match"));
+
+        // results cached by a real notification.
+        j.requestGitNotification("https://git.example.com/repo1.git", "master");
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        assertNotNull(p1.getLastBuild());
+        response = JSONObject.fromObject(j.postToEndpoint("simulate", "application/json", request));
+        assertTrue(response.getJSONObject("matchCache").getBoolean("hit"));
+        assertFalse(response.getJSONObject("index").getBoolean("rebuilt"));
+        assertEquals(1, response.getJSONArray("matched").size());
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        assertEquals(1, p1.getLastBuild().getNumber());
+        GitStatusTrigger.configureMatchCache(0);
+    }
+
+    @Test
+    public void testCrumbExclusion() throws Exception {
+        j.jenkins.setCrumbIssuer(new DefaultCrumbIssuer(false));
+        FreeStyleProject p = createProject("https://git.example.com/repo1.git", "master");
+
+        // webhooks don't need crumbs.
+        j.postToEndpoint(
+            "notifyCommits",
+            "application/json",
+            "[{\"url\": \"https://git.example.com/repo1.git\", \"branches\": [\"master\"]}]"
+        );
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        assertNotNull(p.getLastBuild());
+
+        try {
+            j.postToEndpoint(
+                "simulate",
+                "application/json",
+                "{\"url\": \"https://git.example.com/repo1.git\"}"
+            );
+        } catch (FailingHttpStatusCodeException e) {
+            assertEquals(403, e.getStatusCode());
+            return;
+        }
+        throw new AssertionError("Expected to fail");
+    }
+
+    @Test
+    public void testSimulateRequiresAdminister() throws Exception {
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        GlobalMatrixAuthorizationStrategy auth = new GlobalMatrixAuthorizationStrategy();
+        auth.add(Jenkins.ADMINISTER, "admin");
+        auth.add(Jenkins.READ, "anonymous");
+        j.jenkins.setAuthorizationStrategy(auth);
+
+        try {
+            j.postToEndpoint(
+                "simulate",
+                "application/json",
+                "{\"url\": \"https://git.example.com/repo1.git\"}"
+            );
+        } catch (FailingHttpStatusCodeException e) {
+            assertEquals(403, e.getStatusCode());
+            return;
+        }
+        throw new AssertionError("Expected to fail");
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import net.sf.json.JSONObject;
+
+/**
+ * Tests for {@link GitStatusTriggerFairQueue}
+ */
+public class GitStatusTriggerFairQueueTest {
+    private static final long TIMEOUT = 60000;
+
+    @Rule
+    public GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    @After
+    public void tearDown() {
+        GitStatusTriggerFairQueue.configure(0, 100);
+    }
+
+    private FreeStyleProject createProject(String uri, String branches) throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.addTrigger(new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget(uri, branches)
+        )));
+        j.configRoundtrip((Item)p);
+        return p;
+    }
+
+    private void waitForBuild(FreeStyleProject p) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (p.getLastBuild() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertNotNull(p.getLastBuild());
+        j.waitUntilNoActivityUpTo((int)TIMEOUT);
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        FreeStyleProject p1 = createProject("https://git.example.com/monorepo.git", "master");
+        FreeStyleProject p2 = createProject("https://git.example.com/repo1.git", "");
+        GitStatusTriggerFairQueue.configure(2, 100);
+        assertTrue(GitStatusTriggerFairQueue.isEnabled());
+
+        String response = j.postToEndpoint(
+            "notifyCommits",
+            "application/json",
+            "["
+            + "{\"url\": \"https://git.example.com/monorepo.git\", \"branches\": [\"master\"]},"
+            + "{\"url\": \"https://git.example.com/repo1.git\"}"
+            + "]"
+        );
+        assertTrue(
+            JSONObject.fromObject(response).getJSONArray("results").getJSONObject(0).getBoolean("queued")
+        );
+        waitForBuild(p1);
+        waitForBuild(p2);
+        assertEquals(0, GitStatusTriggerFairQueue.size());
+    }
+
+    @Test
+    public void testDisable() throws Exception {
+        FreeStyleProject p = createProject("https://git.example.com/repo1.git", "");
+        GitStatusTriggerFairQueue.configure(1, 100);
+        GitStatusTriggerFairQueue.configure(0, 100);
+
+        j.requestGitNotification("https://git.example.com/repo1.git");
+        j.waitUntilNoActivityUpTo((int)TIMEOUT);
+        // dispatched synchronously.
+        assertNotNull(p.getLastBuild());
+    }
+}
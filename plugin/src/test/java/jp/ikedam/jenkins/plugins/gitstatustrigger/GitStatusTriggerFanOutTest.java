@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jgit.transport.URIish;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link GitStatusTriggerFanOut}
+ */
+public class GitStatusTriggerFanOutTest {
+    private static final String URI = "https://git.example.com/monorepo.git";
+
+    @After
+    public void tearDown() {
+        GitStatusTriggerFanOut.configure(0, 0);
+        GitStatusTrigger.setItemsToNotify(null);
+    }
+
+    /**
+     * Fails in matching.
+     */
+    private static class FailingTrigger extends GitStatusTrigger {
+        public FailingTrigger() {
+            super(Arrays.asList(new GitStatusTarget(URI, "")));
+        }
+
+        @Override
+        GitStatusTriggerCause match(String uri, String... branches) {
+            throw new IllegalStateException("Failing for test");
+        }
+    }
+
+    /**
+     * Fails in matching with an error not caught for each trigger.
+     */
+    private static class ErrorTrigger extends GitStatusTrigger {
+        public ErrorTrigger() {
+            super(Arrays.asList(new GitStatusTarget(URI, "")));
+        }
+
+        @Override
+        GitStatusTriggerCause match(String uri, String... branches) {
+            throw new AssertionError("Failing for test");
+        }
+    }
+
+    private List<GitStatusTrigger> createTriggers(int count) {
+        List<GitStatusTrigger> triggers = new ArrayList<GitStatusTrigger>();
+        for (int i = 0; i < count; ++i) {
+            triggers.add(new GitStatusTrigger(Arrays.asList(
+                new GitStatusTarget(URI, (i % 3 == 0) ? "develop" : "master")
+            )));
+        }
+        return triggers;
+    }
+
+    private List<GitStatusTrigger> expectedMatches(List<GitStatusTrigger> triggers) {
+        List<GitStatusTrigger> expected = new ArrayList<GitStatusTrigger>();
+        for (GitStatusTrigger t: triggers) {
+            if (!(t instanceof FailingTrigger) && !(t instanceof ErrorTrigger) && t.match(URI, "master") != null) {
+                expected.add(t);
+            }
+        }
+        return expected;
+    }
+
+    @Test
+    public void testIsApplicable() throws Exception {
+        assertFalse(GitStatusTriggerFanOut.isApplicable(10000));
+        GitStatusTriggerFanOut.configure(100, 4);
+        assertFalse(GitStatusTriggerFanOut.isApplicable(99));
+        assertTrue(GitStatusTriggerFanOut.isApplicable(100));
+        GitStatusTriggerFanOut.configure(100, 1);
+        assertFalse(GitStatusTriggerFanOut.isApplicable(100));
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        List<GitStatusTrigger> triggers = createTriggers(1000);
+        GitStatusTrigger.setItemsToNotify(triggers);
+        GitStatusTriggerFanOut.configure(100, 4);
+
+        List<GitStatusTrigger> matched = GitStatusTrigger.BroadCastNotifyAll(new URIish(URI), new String[] {"master"});
+        assertEquals(expectedMatches(triggers), matched);
+    }
+
+    @Test
+    public void testFewerCandidatesThanThreads() throws Exception {
+        List<GitStatusTrigger> triggers = createTriggers(3);
+        GitStatusTrigger.setItemsToNotify(triggers);
+        GitStatusTriggerFanOut.configure(1, 8);
+
+        List<GitStatusTrigger> matched = GitStatusTrigger.BroadCastNotifyAll(new URIish(URI), new String[] {"master"});
+        assertEquals(expectedMatches(triggers), matched);
+    }
+
+    @Test
+    public void testKeepMatchesWhenSomeFail() throws Exception {
+        List<GitStatusTrigger> triggers = createTriggers(1000);
+        for (int i = 0; i < triggers.size(); i += 97) {
+            triggers.set(i, new FailingTrigger());
+        }
+        GitStatusTrigger.setItemsToNotify(triggers);
+        List<GitStatusTrigger> expected = expectedMatches(triggers);
+
+        // sequential
+        assertEquals(expected, GitStatusTrigger.BroadCastNotifyAll(new URIish(URI), new String[] {"master"}));
+
+        // parallel
+        GitStatusTriggerFanOut.configure(100, 4);
+        assertEquals(expected, GitStatusTrigger.BroadCastNotifyAll(new URIish(URI), new String[] {"master"}));
+    }
+
+    @Test
+    public void testPartitionFailure() throws Exception {
+        List<GitStatusTrigger> triggers = createTriggers(4);
+        // the second partition is dispatched in a worker thread.
+        triggers.set(3, new ErrorTrigger());
+        GitStatusTriggerFanOut.configure(1, 2);
+
+        GitStatusTrigger.DispatchResult result = GitStatusTriggerFanOut.dispatch(triggers, URI, new String[] {"master"});
+        assertEquals(1, result.failures);
+        assertEquals(expectedMatches(triggers.subList(0, 2)), result.matched);
+    }
+
+    @Test
+    public void testReconfigure() throws Exception {
+        List<GitStatusTrigger> triggers = createTriggers(1000);
+        GitStatusTrigger.setItemsToNotify(triggers);
+        GitStatusTriggerFanOut.configure(100, 4);
+        assertEquals(
+            expectedMatches(triggers),
+            GitStatusTrigger.BroadCastNotifyAll(new URIish(URI), new String[] {"master"})
+        );
+        GitStatusTriggerFanOut.configure(100, 2);
+        assertEquals(
+            expectedMatches(triggers),
+            GitStatusTrigger.BroadCastNotifyAll(new URIish(URI), new String[] {"master"})
+        );
+    }
+}
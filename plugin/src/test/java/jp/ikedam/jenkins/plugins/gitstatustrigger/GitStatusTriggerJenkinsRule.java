@@ -71,6 +71,32 @@ public class GitStatusTriggerJenkinsRule extends JenkinsRule {
         wc.getPage(settings);
     }
 
+    /**
+     * POST to an endpoint of this plugin
+     *
+     * @param path path under /git-status-trigger/
+     * @param contentType content type of the body
+     * @param body request body
+     * @return response body
+     */
+    public String postToEndpoint(String path, String contentType, String body) throws FailingHttpStatusCodeException, IOException {
+        WebClient wc = createWebClient();
+        WebRequestSettings settings = new WebRequestSettings(
+            UrlUtils.toUrlUnsafe(String.format(
+                "%s/%s/%s",
+                wc.getContextPath(),
+                GitStatusTriggerEndpoint.URL_NAME,
+                path
+            )),
+            HttpMethod.POST
+        );
+        settings.setAdditionalHeader("Content-Type", contentType);
+        // sent in UTF-8 even if contentType doesn't specify the charset.
+        settings.setCharset("UTF-8");
+        settings.setRequestBody(body);
+        return wc.getPage(settings).getWebResponse().getContentAsString();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.eclipse.jgit.transport.URIish;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+
+/**
+ * Tests for {@link GitStatusTriggerJournal}
+ */
+public class GitStatusTriggerJournalTest {
+    private static final int ACTIVITY_WAIT = 60000;
+
+    @Rule
+    public GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    @After
+    public void tearDown() {
+        GitStatusTriggerJournal.configure(false, 1);
+    }
+
+    private FreeStyleProject createProject(String uri, String branches) throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.addTrigger(new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget(uri, branches)
+        )));
+        j.configRoundtrip((Item)p);
+        return p;
+    }
+
+    private void enableJournal() {
+        GitStatusTriggerConfiguration config = GitStatusTriggerConfiguration.get();
+        config.setJournalEnabled(true);
+        config.setJournalSize(1);
+        config.save();
+        GitStatusTriggerJournal.configure(true, 1);
+    }
+
+    @Test
+    public void testJournal() throws Exception {
+        FreeStyleProject p = createProject("https://git.example.com/repo1.git", "master");
+        enableJournal();
+        assertTrue(GitStatusTriggerJournal.isEnabled());
+        assertTrue(new File(j.jenkins.getRootDir(), "git-status-trigger/journal.bin").exists());
+
+        j.requestGitNotification("https://git.example.com/repo1.git", "master");
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        assertNotNull(p.getLastBuild());
+
+        // dispatched notifications are not replayed.
+        GitStatusTriggerJournal.configure(false, 1);
+        GitStatusTriggerJournal.configure(true, 1);
+        GitStatusTriggerJournal.replay();
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        assertEquals(1, p.getLastBuild().getNumber());
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        FreeStyleProject p1 = createProject("https://git.example.com/repo1.git", "master");
+        FreeStyleProject p2 = createProject("https://git.example.com/repo2.git", "master");
+        FreeStyleProject p3 = createProject("https://git.example.com/repo3.git", "master");
+        enableJournal();
+
+        // simulate crash before dispatched
+        GitStatusTriggerJournal.append(new URIish("https://git.example.com/repo1.git"), new String[] {"develop"});
+        GitStatusTriggerJournal.append(new URIish("https://git.example.com/repo1.git"), new String[] {"master"});
+        long id = GitStatusTriggerJournal.append(
+            new URIish("https://git.example.com/repo2.git"),
+            new String[] {"master"}
+        );
+        GitStatusTriggerJournal.complete(id);
+        GitStatusTriggerJournal.append(new URIish("https://git.example.com/repo3.git"), new String[] {"develop"});
+
+        GitStatusTriggerJournal.configure(false, 1);
+        GitStatusTriggerJournal.configure(true, 1);
+        GitStatusTriggerJournal.replay();
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+
+        assertNotNull(p1.getLastBuild());
+        assertNull(p2.getLastBuild());
+        assertNull(p3.getLastBuild());
+
+        // replayed only once.
+        GitStatusTriggerJournal.configure(false, 1);
+        GitStatusTriggerJournal.configure(true, 1);
+        GitStatusTriggerJournal.replay();
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        assertEquals(1, p1.getLastBuild().getNumber());
+    }
+}
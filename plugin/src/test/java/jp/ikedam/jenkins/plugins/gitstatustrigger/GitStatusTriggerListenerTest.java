@@ -0,0 +1,161 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.TestExtension;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+
+/**
+ * Tests for {@link GitStatusTriggerListener}
+ */
+public class GitStatusTriggerListenerTest {
+    private static final int ACTIVITY_WAIT = 60000;
+
+    @Rule
+    public GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    @TestExtension
+    public static class RecordingListener extends GitStatusTriggerListener {
+        private final List<MatchedNotification> notifications = new ArrayList<MatchedNotification>();
+        private CountDownLatch latch = new CountDownLatch(0);
+
+        @Override
+        public synchronized void onMatched(MatchedNotification notification) {
+            notifications.add(notification);
+            latch.countDown();
+        }
+
+        public synchronized void expect(int count) {
+            notifications.clear();
+            latch = new CountDownLatch(count);
+        }
+
+        public List<MatchedNotification> await() throws InterruptedException {
+            CountDownLatch l;
+            synchronized (this) {
+                l = latch;
+            }
+            assertTrue(l.await(ACTIVITY_WAIT, TimeUnit.MILLISECONDS));
+            synchronized (this) {
+                return new ArrayList<MatchedNotification>(notifications);
+            }
+        }
+    }
+
+    @TestExtension
+    public static class FailingListener extends GitStatusTriggerListener {
+        @Override
+        public void onMatched(MatchedNotification notification) {
+            throw new IllegalStateException("Always fail");
+        }
+    }
+
+    private FreeStyleProject createProject(String uri, String branches) throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.addTrigger(new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget(uri, branches)
+        )));
+        j.configRoundtrip((Item)p);
+        return p;
+    }
+
+    @Test
+    public void testOnMatched() throws Exception {
+        FreeStyleProject p1 = createProject("https://git.example.com/repo1.git", "master");
+        createProject("https://git.example.com/repo1.git", "develop");
+        createProject("https://git.example.com/repo2.git", "");
+        RecordingListener listener = j.jenkins.getExtensionList(GitStatusTriggerListener.class)
+            .get(RecordingListener.class);
+
+        listener.expect(1);
+        j.requestGitNotification("https://git.example.com/repo1.git", "feature", "master");
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+
+        // delivered even though another listener fails.
+        List<MatchedNotification> notifications = listener.await();
+        assertEquals(1, notifications.size());
+        MatchedNotification n = notifications.get(0);
+        assertSame(p1, n.getJob());
+        assertSame(p1.getTrigger(GitStatusTrigger.class).getTargetList().get(0), n.getTarget());
+        assertEquals("https://git.example.com/repo1.git", n.getUri());
+        assertEquals("master", n.getBranch());
+        assertFalse(n.isHeld());
+    }
+
+    @Test
+    public void testNotQueued() throws Exception {
+        FreeStyleProject p = createProject("https://git.example.com/repo1.git", "master");
+        p.disable();
+        RecordingListener listener = j.jenkins.getExtensionList(GitStatusTriggerListener.class)
+            .get(RecordingListener.class);
+
+        listener.expect(0);
+        j.requestGitNotification("https://git.example.com/repo1.git", "master");
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        // wait for listeners called asynchronously.
+        Thread.sleep(1000);
+        assertEquals(0, listener.await().size());
+    }
+
+    @Test
+    public void testHeld() throws Exception {
+        FreeStyleProject p = createProject("https://git.example.com/repo1.git", "master");
+        RecordingListener listener = j.jenkins.getExtensionList(GitStatusTriggerListener.class)
+            .get(RecordingListener.class);
+        // fill the queue
+        j.jenkins.setNumExecutors(0);
+        j.createFreeStyleProject().scheduleBuild2(0);
+        j.jenkins.getQueue().maintain();
+        BuildHoldingArea.get().configure(1, 0, 10);
+        try {
+            listener.expect(1);
+            j.requestGitNotification("https://git.example.com/repo1.git", "master");
+            List<MatchedNotification> notifications = listener.await();
+            assertEquals(1, notifications.size());
+            assertSame(p, notifications.get(0).getJob());
+            assertTrue(notifications.get(0).isHeld());
+        } finally {
+            BuildHoldingArea.get().configure(0, 0, 10);
+            BuildHoldingArea.get().clear();
+            j.jenkins.setNumExecutors(2);
+        }
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.transport.URIish;
+import org.junit.Rule;
+import org.junit.Test;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Queue;
+
+/**
+ * Load test of notifications with many jobs.
+ *
+ * Not run by default. Run with {@code mvn -P load-test test}.
+ * Scale is configured with following system properties:
+ * <dl>
+ *   <dt>loadTest.jobs</dt><dd>The number of jobs with triggers (2000)</dd>
+ *   <dt>loadTest.repositories</dt><dd>The number of repositories jobs subscribe (100)</dd>
+ *   <dt>loadTest.notifications</dt><dd>The number of notifications to send (500)</dd>
+ *   <dt>loadTest.threads</dt><dd>The number of threads to send notifications (8)</dd>
+ *   <dt>loadTest.rescans</dt><dd>The number of times to measure full rescans (5)</dd>
+ * </dl>
+ */
+public class GitStatusTriggerLoadTest {
+    private static final int JOBS = Integer.getInteger("loadTest.jobs", 2000);
+    private static final int REPOSITORIES = Integer.getInteger("loadTest.repositories", 100);
+    private static final int NOTIFICATIONS = Integer.getInteger("loadTest.notifications", 500);
+    private static final int THREADS = Integer.getInteger("loadTest.threads", 8);
+    private static final int RESCANS = Integer.getInteger("loadTest.rescans", 5);
+
+    @Rule
+    public GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    private static String getUri(int index) {
+        return String.format("https://git.example.com/team%02d/repository%04d.git", index % 10, index);
+    }
+
+    private static long getUsedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static void report(String format, Object... args) {
+        System.out.println(String.format("[load-test] " + format, args));
+    }
+
+    @Test
+    public void testNotifications() throws Exception {
+        // Don't run builds: measure only dispatching and scheduling.
+        j.jenkins.setNumExecutors(0);
+        // reflect the number of executors to computers.
+        j.jenkins.setNodes(j.jenkins.getNodes());
+
+        long heapBeforeJobs = getUsedHeap();
+        long start = System.nanoTime();
+        for (int i = 0; i < JOBS; ++i) {
+            FreeStyleProject p = j.createFreeStyleProject("job" + i);
+            GitStatusTrigger t = new GitStatusTrigger(Arrays.asList(
+                new GitStatusTarget(getUri(i % REPOSITORIES), (i % 2 == 0) ? "" : "master, release/*")
+            ));
+            p.addTrigger(t);
+            t.start(p, true);
+        }
+        report(
+            "Created %d jobs in %d ms",
+            JOBS,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+        );
+        long heapBeforeNotifications = getUsedHeap();
+
+        long rescanNanos = 0;
+        URIish unknown = new URIish("https://git.example.com/unknown.git");
+        for (int i = 0; i < RESCANS; ++i) {
+            GitStatusTrigger.setItemsToNotify(null);
+            GitStatusTrigger.BroadCastNotifyAll(unknown, new String[0]);
+            rescanNanos += NotificationHistory.get().getRecords().get(0).getLookupNanos();
+        }
+        report(
+            "Full rescan of %d jobs: %.3f ms on average",
+            JOBS,
+            rescanNanos / 1000000.0 / RESCANS
+        );
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Void>> results = new ArrayList<Future<Void>>(NOTIFICATIONS);
+        start = System.nanoTime();
+        for (int i = 0; i < NOTIFICATIONS; ++i) {
+            final String uri = getUri(i % REPOSITORIES);
+            results.add(executor.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    j.requestGitNotification(uri, "master");
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> f: results) {
+            f.get();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+        report(
+            "Sent %d notifications with %d threads in %d ms: %.1f notifications/sec",
+            NOTIFICATIONS,
+            THREADS,
+            TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+            NOTIFICATIONS * 1000000000.0 / elapsedNanos
+        );
+
+        long heapAfterNotifications = getUsedHeap();
+        report(
+            "Heap: %d KB for jobs, %+d KB after notifications",
+            (heapBeforeNotifications - heapBeforeJobs) / 1024,
+            (heapAfterNotifications - heapBeforeNotifications) / 1024
+        );
+
+        // Every job subscribing notified repositories should be queued.
+        Set<String> queued = new HashSet<String>();
+        for (Queue.Item item: j.jenkins.getQueue().getItems()) {
+            queued.add(item.task.getName());
+        }
+        int notifiedRepositories = Math.min(NOTIFICATIONS, REPOSITORIES);
+        int expected = 0;
+        for (int i = 0; i < JOBS; ++i) {
+            if (i % REPOSITORIES < notifiedRepositories) {
+                ++expected;
+            }
+        }
+        assertEquals(expected, queued.size());
+        j.jenkins.getQueue().clear();
+    }
+}
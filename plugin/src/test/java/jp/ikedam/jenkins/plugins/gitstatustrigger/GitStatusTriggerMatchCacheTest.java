@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.transport.URIish;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.MatchCache;
+
+/**
+ * Tests for caching matched triggers in {@link GitStatusTrigger}
+ */
+public class GitStatusTriggerMatchCacheTest {
+    private static final String URI = "https://git.example.com/monorepo.git";
+
+    /**
+     * Counts tests against notifications.
+     */
+    private static class CountingTrigger extends GitStatusTrigger {
+        private final AtomicInteger matchCount = new AtomicInteger();
+
+        public CountingTrigger(String branches) {
+            super(Arrays.asList(new GitStatusTarget(URI, branches)));
+        }
+
+        @Override
+        GitStatusTriggerCause match(String uri, String... branches) {
+            matchCount.incrementAndGet();
+            return super.match(uri, branches);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        GitStatusTrigger.configureMatchCache(100);
+    }
+
+    @After
+    public void tearDown() {
+        GitStatusTrigger.configureMatchCache(0);
+        GitStatusTrigger.setItemsToNotify(null);
+    }
+
+    @Test
+    public void testCached() throws Exception {
+        CountingTrigger master = new CountingTrigger("master");
+        CountingTrigger develop = new CountingTrigger("develop");
+        GitStatusTrigger.setItemsToNotify(Arrays.<GitStatusTrigger>asList(master, develop));
+        MatchCache<GitStatusTrigger> cache = GitStatusTrigger.getMatchCache();
+
+        assertEquals(
+            Arrays.asList(master),
+            GitStatusTrigger.BroadCastNotifyAll(new URIish(URI), new String[] {"master", "feature"})
+        );
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, master.matchCount.get());
+        assertEquals(1, develop.matchCount.get());
+
+        // the order of branches doesn't matter.
+        assertEquals(
+            Arrays.asList(master),
+            GitStatusTrigger.BroadCastNotifyAll(new URIish(URI), new String[] {"feature", "master"})
+        );
+        assertEquals(1, cache.getHitCount());
+        // only matched triggers are tested again, to get causes.
+        assertEquals(2, master.matchCount.get());
+        assertEquals(1, develop.matchCount.get());
+        assertTrue(NotificationHistory.get().getRecords().get(0).isMatchCacheHit());
+    }
+
+    @Test
+    public void testNoMatchCached() throws Exception {
+        CountingTrigger master = new CountingTrigger("master");
+        GitStatusTrigger.setItemsToNotify(Arrays.<GitStatusTrigger>asList(master));
+
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(
+                Collections.emptyList(),
+                GitStatusTrigger.BroadCastNotifyAll(new URIish(URI), new String[] {"develop"})
+            );
+        }
+        assertEquals(1, master.matchCount.get());
+    }
+
+    @Test
+    public void testInvalidated() throws Exception {
+        List<GitStatusTrigger> triggers = new ArrayList<GitStatusTrigger>();
+        triggers.add(new CountingTrigger("master"));
+        GitStatusTrigger.setItemsToNotify(triggers);
+        assertEquals(triggers, GitStatusTrigger.BroadCastNotifyAll(new URIish(URI), new String[] {"master"}));
+
+        triggers.add(new CountingTrigger("master"));
+        GitStatusTrigger.setItemsToNotify(triggers);
+        assertEquals(triggers, GitStatusTrigger.BroadCastNotifyAll(new URIish(URI), new String[] {"master"}));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+
+/**
+ * Tests for {@link GitStatusTriggerMonitor}
+ */
+public class GitStatusTriggerMonitorTest {
+    private static final int ACTIVITY_WAIT = 60000;
+
+    @Rule
+    public GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    @Test
+    public void testRecordNotification() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+
+        p.addTrigger(new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget(
+                "https://github.com/ikedam/git-status-trigger-plugin",
+                ""
+            )
+        )));
+
+        j.configRoundtrip((Item)p);
+
+        j.requestGitNotification(
+            "https://github.com/ikedam/git-status-trigger-plugin",
+            "master"
+        );
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+
+        NotificationRecord r = NotificationHistory.get().getRecords().get(0);
+        assertEquals("https://github.com/ikedam/git-status-trigger-plugin", r.getUri());
+        assertEquals(Arrays.asList("master"), r.getBranches());
+        assertEquals(Arrays.asList(p.getFullName()), r.getMatchedJobs());
+
+        String page = j.createWebClient().goTo("git-status-trigger-monitor").asText();
+        assertTrue(page, page.contains(p.getFullName()));
+    }
+}
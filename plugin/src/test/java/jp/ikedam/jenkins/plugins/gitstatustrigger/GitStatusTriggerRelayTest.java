@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.util.Secret;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.NotificationRelay;
+
+/**
+ * Tests for {@link GitStatusTriggerRelay}
+ */
+public class GitStatusTriggerRelayTest {
+    private static final int ACTIVITY_WAIT = 60000;
+    private static final long TIMEOUT = 60000;
+
+    @Rule
+    public GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    @After
+    public void tearDown() {
+        GitStatusTriggerRelay.configure(Collections.<String>emptyList(), null);
+    }
+
+    private FreeStyleProject createProject(String uri, String branches) throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.addTrigger(new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget(uri, branches)
+        )));
+        j.configRoundtrip((Item)p);
+        return p;
+    }
+
+    private void setSecret(String secret) {
+        GitStatusTriggerConfiguration config = GitStatusTriggerConfiguration.get();
+        config.setRelaySecret(Secret.fromString(secret));
+        config.save();
+    }
+
+    private HttpURLConnection getSubscriptions(String secret) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection)new URL(
+            j.getURL(),
+            NotificationRelay.SUBSCRIPTIONS_PATH
+        ).openConnection();
+        if (secret != null) {
+            conn.setRequestProperty(NotificationRelay.SECRET_HEADER, secret);
+        }
+        return conn;
+    }
+
+    @Test
+    public void testSubscriptions() throws Exception {
+        createProject("https://git.example.com/repo1.git", "master");
+        createProject("https://GIT.example.com/repo2.git", "");
+
+        assertEquals(404, getSubscriptions("secret").getResponseCode());
+
+        setSecret("secret");
+        assertEquals(403, getSubscriptions(null).getResponseCode());
+        assertEquals(403, getSubscriptions("wrong").getResponseCode());
+
+        HttpURLConnection conn = getSubscriptions("secret");
+        assertEquals(200, conn.getResponseCode());
+        assertEquals(
+            Arrays.asList("https://git.example.com/repo1.git", "https://git.example.com/repo2.git"),
+            IOUtils.readLines(conn.getInputStream(), "UTF-8")
+        );
+    }
+
+    private HttpURLConnection postRelayed(String secret) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection)new URL(
+            j.getURL(),
+            NotificationRelay.NOTIFY_PATH
+        ).openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+        conn.setRequestProperty(NotificationRelay.RELAYED_HEADER, "true");
+        if (secret != null) {
+            conn.setRequestProperty(NotificationRelay.SECRET_HEADER, secret);
+        }
+        OutputStream out = conn.getOutputStream();
+        try {
+            out.write("[{\"url\": \"https://git.example.com/repo1.git\", \"branches\": [\"master\"]}]".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return conn;
+    }
+
+    @Test
+    public void testRelayedRequiresSecret() throws Exception {
+        FreeStyleProject p = createProject("https://git.example.com/repo1.git", "master");
+        setSecret("secret");
+
+        assertEquals(403, postRelayed(null).getResponseCode());
+        assertEquals(403, postRelayed("wrong").getResponseCode());
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        assertNull(p.getLastBuild());
+
+        assertEquals(200, postRelayed("secret").getResponseCode());
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        assertNotNull(p.getLastBuild());
+    }
+
+    @Test
+    public void testRelayToSelf() throws Exception {
+        // relayed notifications come back to this controller and are not relayed again.
+        FreeStyleProject p = createProject("https://git.example.com/repo1.git", "master");
+        setSecret("secret");
+        GitStatusTriggerRelay.configure(Arrays.asList(j.getURL().toString()), "secret");
+        NotificationRelay.Peer peer = GitStatusTriggerRelay.getPeers().get(0);
+
+        long until = System.currentTimeMillis() + TIMEOUT;
+        while (peer.getSubscriptionCount() < 0) {
+            assertTrue("Timed out", System.currentTimeMillis() < until);
+            Thread.sleep(100);
+        }
+        assertEquals(1, peer.getSubscriptionCount());
+
+        j.requestGitNotification("https://git.example.com/repo2.git", "master");
+        j.requestGitNotification("https://git.example.com/repo1.git", "master");
+        while (peer.getSentCount() < 1) {
+            assertTrue("Timed out", System.currentTimeMillis() < until);
+            Thread.sleep(100);
+        }
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        assertNotNull(p.getLastBuild());
+
+        // wait for another flush
+        Thread.sleep(2000);
+        assertEquals(1, peer.getSentCount());
+        assertEquals(0, peer.getDroppedCount());
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jgit.transport.URIish;
+import org.junit.Rule;
+import org.junit.Test;
+
+import hudson.model.FreeStyleProject;
+
+/**
+ * Stress test of invalidating the index of triggers
+ * while triggers start and stop and notifications arrive concurrently.
+ *
+ * Checks that a notification always matches triggers started before it,
+ * and never matches triggers stopped before it.
+ * Scale is configured with following system properties:
+ * <dl>
+ *   <dt>stressTest.iterations</dt><dd>The number of jobs to add and remove (50)</dd>
+ *   <dt>stressTest.threads</dt><dd>The number of threads for each of restarting triggers and notifying (4)</dd>
+ * </dl>
+ */
+public class GitStatusTriggerStressTest {
+    private static final int ITERATIONS = Integer.getInteger("stressTest.iterations", 50);
+    private static final int THREADS = Integer.getInteger("stressTest.threads", 4);
+    private static final String NOISE_URI = "https://git.example.com/noise.git";
+
+    @Rule
+    public GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    private abstract class Hammer extends Thread {
+        @Override
+        public void run() {
+            try {
+                while (running.get()) {
+                    hammer();
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }
+
+        protected abstract void hammer() throws Exception;
+    }
+
+    private GitStatusTrigger startTrigger(FreeStyleProject p, String uri) throws Exception {
+        GitStatusTrigger t = new GitStatusTrigger(Arrays.asList(new GitStatusTarget(uri, "")));
+        p.addTrigger(t);
+        t.start(p, true);
+        return t;
+    }
+
+    @Test
+    public void testNoMatchLost() throws Exception {
+        // Keep triggered builds in the queue.
+        j.jenkins.setQuietPeriod(3600);
+
+        List<Thread> hammers = new ArrayList<Thread>();
+        for (int i = 0; i < THREADS; ++i) {
+            final FreeStyleProject p = j.createFreeStyleProject();
+            final GitStatusTrigger t = startTrigger(p, NOISE_URI);
+            // restart triggers to invalidate the index.
+            hammers.add(new Hammer() {
+                @Override
+                protected void hammer() throws Exception {
+                    t.stop();
+                    t.start(p, false);
+                }
+            });
+            // notify to rebuild the index.
+            hammers.add(new Hammer() {
+                private final URIish uri = new URIish(NOISE_URI);
+
+                @Override
+                protected void hammer() throws Exception {
+                    GitStatusTrigger.notifyCommit(uri, "master");
+                }
+            });
+        }
+        for (Thread h: hammers) {
+            h.start();
+        }
+
+        try {
+            for (int i = 0; i < ITERATIONS && failure.get() == null; ++i) {
+                String uri = String.format("https://git.example.com/repo%04d.git", i);
+                FreeStyleProject p = j.createFreeStyleProject();
+                GitStatusTrigger t = startTrigger(p, uri);
+
+                List<GitStatusTrigger> matched = GitStatusTrigger.notifyCommit(new URIish(uri), "master");
+                assertEquals(String.format("Iteration %d: match lost", i), Arrays.asList(t), matched);
+                assertTrue(j.jenkins.getQueue().contains(p));
+
+                p.removeTrigger(t.getDescriptor());
+                t.stop();
+                matched = GitStatusTrigger.notifyCommit(new URIish(uri), "master");
+                assertFalse(String.format("Iteration %d: matched a stopped trigger", i), matched.contains(t));
+            }
+        } finally {
+            running.set(false);
+            for (Thread h: hammers) {
+                h.join();
+            }
+            j.jenkins.getQueue().clear();
+        }
+        assertNull(failure.get());
+    }
+}
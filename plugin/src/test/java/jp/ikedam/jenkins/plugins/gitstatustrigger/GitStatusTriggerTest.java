@@ -101,6 +101,35 @@ public class GitStatusTriggerTest {
         assertNull(p2.getLastBuild());
     }
 
+    @Test
+    public void testTriggerWildcard() throws Exception {
+        FreeStyleProject p1 = j.createFreeStyleProject();
+        FreeStyleProject p2 = j.createFreeStyleProject();
+        FreeStyleProject p3 = j.createFreeStyleProject();
+
+        p1.addTrigger(new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget("https://github.com/ikedam/*", "")
+        )));
+        p2.addTrigger(new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget("https://github.com/*", "")
+        )));
+        p3.addTrigger(new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget("https://github.com/another/*", "")
+        )));
+
+        j.configRoundtrip((Item)p1);
+        j.configRoundtrip((Item)p2);
+        j.configRoundtrip((Item)p3);
+
+        j.requestGitNotification(
+            "https://github.com/ikedam/git-status-trigger-plugin"
+        );
+        j.waitUntilNoActivityUpTo(ACTIVITY_WAIT);
+        assertNotNull(p1.getLastBuild());
+        assertNotNull(p2.getLastBuild());
+        assertNull(p3.getLastBuild());
+    }
+
     @Test
     public void testTriggerWithBranchMatch1() throws Exception {
         FreeStyleProject p = j.createFreeStyleProject();
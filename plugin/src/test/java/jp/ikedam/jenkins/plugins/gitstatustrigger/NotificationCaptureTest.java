@@ -0,0 +1,93 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.CaptureReader;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.CapturedNotification;
+import jp.ikedam.jenkins.plugins.gitstatustrigger.core.Notification;
+
+/**
+ * Tests for {@link NotificationCapture}
+ */
+public class NotificationCaptureTest {
+    @Rule
+    public GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    @After
+    public void tearDown() {
+        NotificationCapture.configure(null);
+    }
+
+    private List<CapturedNotification> read(File file) throws Exception {
+        return CaptureReader.readAll(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+    }
+
+    @Test
+    public void testRecord() throws Exception {
+        File file = new File(j.jenkins.getRootDir(), "capture.tsv");
+        assertFalse(NotificationCapture.isEnabled());
+        j.requestGitNotification("https://git.example.com/repo0.git", "master");
+
+        NotificationCapture.configure(file.getAbsolutePath());
+        assertTrue(NotificationCapture.isEnabled());
+        long before = System.currentTimeMillis();
+        j.requestGitNotification("https://git.example.com/repo1.git", "master", "develop");
+        j.postToEndpoint(
+            "notifyCommits",
+            "application/json",
+            "[{\"url\": \"https://git.example.com/repo2.git\"}]"
+        );
+
+        List<CapturedNotification> captured = read(file);
+        assertEquals(2, captured.size());
+        assertTrue(captured.get(0).getTimestamp() >= before);
+        assertEquals(
+            new Notification("https://git.example.com/repo1.git", "master", "develop"),
+            captured.get(0).getNotification()
+        );
+        assertEquals(new Notification("https://git.example.com/repo2.git"), captured.get(1).getNotification());
+
+        // appended after restarted
+        NotificationCapture.configure(null);
+        NotificationCapture.configure(file.getAbsolutePath());
+        j.requestGitNotification("https://git.example.com/repo3.git", "master");
+        captured = read(file);
+        assertEquals(3, captured.size());
+        assertEquals(new Notification("https://git.example.com/repo3.git", "master"), captured.get(2).getNotification());
+    }
+}
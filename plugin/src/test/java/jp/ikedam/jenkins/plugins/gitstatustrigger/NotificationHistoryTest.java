@@ -0,0 +1,93 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link NotificationHistory}
+ */
+public class NotificationHistoryTest {
+    private void record(NotificationHistory h, String uri, String... branches) {
+        NotificationRecord r = h.begin(uri, branches);
+        r.addMatchedJob("job-" + uri);
+        h.record(r);
+    }
+
+    @Test
+    public void testNewestFirst() throws Exception {
+        NotificationHistory h = new NotificationHistory(3);
+        record(h, "uri1", "master");
+        record(h, "uri2");
+
+        List<NotificationRecord> records = h.getRecords();
+        assertEquals(2, records.size());
+        assertEquals("uri2", records.get(0).getUri());
+        assertEquals(Arrays.<String>asList(), records.get(0).getBranches());
+        assertEquals("uri1", records.get(1).getUri());
+        assertEquals(Arrays.asList("master"), records.get(1).getBranches());
+        assertEquals(Arrays.asList("job-uri1"), records.get(1).getMatchedJobs());
+    }
+
+    @Test
+    public void testOverwriteOldest() throws Exception {
+        NotificationHistory h = new NotificationHistory(3);
+        for (int i = 0; i < 10; ++i) {
+            record(h, "uri" + i);
+        }
+
+        List<NotificationRecord> records = h.getRecords();
+        assertEquals(3, records.size());
+        assertEquals("uri9", records.get(0).getUri());
+        assertEquals("uri8", records.get(1).getUri());
+        assertEquals("uri7", records.get(2).getUri());
+        assertEquals(10, h.getTotalCount());
+    }
+
+    @Test
+    public void testTooManyBranches() throws Exception {
+        NotificationHistory h = new NotificationHistory(1);
+        String[] branches = new String[NotificationRecord.MAX_BRANCHES + 5];
+        for (int i = 0; i < branches.length; ++i) {
+            branches[i] = "branch" + i;
+        }
+        NotificationRecord r = h.begin("uri", branches);
+        for (int i = 0; i < NotificationRecord.MAX_JOBS + 2; ++i) {
+            r.addMatchedJob("job" + i);
+        }
+        h.record(r);
+
+        NotificationRecord stored = h.getRecords().get(0);
+        assertEquals(NotificationRecord.MAX_BRANCHES, stored.getBranches().size());
+        assertEquals(branches.length, stored.getBranchCount());
+        assertEquals(NotificationRecord.MAX_JOBS, stored.getMatchedJobs().size());
+        assertEquals(NotificationRecord.MAX_JOBS + 2, stored.getMatchedCount());
+    }
+}
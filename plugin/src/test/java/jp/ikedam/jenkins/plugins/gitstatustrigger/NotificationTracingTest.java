@@ -0,0 +1,163 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Tests for {@link NotificationTracing}
+ */
+public class NotificationTracingTest {
+    @Rule
+    public GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    @After
+    public void tearDown() {
+        NotificationTracing.configure(null);
+    }
+
+    private FreeStyleProject createProject(String uri, String branches) throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.addTrigger(new GitStatusTrigger(Arrays.asList(
+            new GitStatusTarget(uri, branches)
+        )));
+        j.configRoundtrip((Item)p);
+        return p;
+    }
+
+    private List<JSONObject> read(File file) throws Exception {
+        List<JSONObject> spans = new ArrayList<JSONObject>();
+        FileInputStream in = new FileInputStream(file);
+        try {
+            for (Object line: IOUtils.readLines(in, "UTF-8")) {
+                spans.add(JSONObject.fromObject(line));
+            }
+        } finally {
+            in.close();
+        }
+        return spans;
+    }
+
+    private List<JSONObject> filter(List<JSONObject> spans, String name) {
+        List<JSONObject> filtered = new ArrayList<JSONObject>();
+        for (JSONObject span: spans) {
+            if (name.equals(span.getString("name"))) {
+                filtered.add(span);
+            }
+        }
+        return filtered;
+    }
+
+    private Object getAttribute(JSONObject span, String key) {
+        JSONArray attributes = span.optJSONArray("attributes");
+        if (attributes == null) {
+            return null;
+        }
+        for (int i = 0; i < attributes.size(); ++i) {
+            JSONObject attribute = attributes.getJSONObject(i);
+            if (key.equals(attribute.getString("key"))) {
+                JSONObject value = attribute.getJSONObject("value");
+                return value.values().iterator().next();
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testTrace() throws Exception {
+        File file = new File(j.jenkins.getRootDir(), "trace.jsonl");
+        FreeStyleProject p1 = createProject("https://git.example.com/repo1.git", "master");
+        FreeStyleProject p2 = createProject("https://git.example.com/repo1.git", "develop");
+        createProject("https://git.example.com/repo2.git", "");
+
+        assertFalse(NotificationTracing.isEnabled());
+        assertNull(NotificationTracing.start("test"));
+        j.requestGitNotification("https://git.example.com/repo2.git", "master");
+        assertFalse(file.exists());
+
+        NotificationTracing.configure(file.getAbsolutePath());
+        assertTrue(NotificationTracing.isEnabled());
+        j.requestGitNotification("https://git.example.com/repo1.git", "master");
+        j.waitUntilNoActivityUpTo(60000);
+
+        List<JSONObject> spans = read(file);
+        List<JSONObject> roots = filter(spans, "onNotifyCommit");
+        assertEquals(1, roots.size());
+        JSONObject root = roots.get(0);
+        assertFalse(root.has("parentSpanId"));
+        assertEquals("https://git.example.com/repo1.git", getAttribute(root, "uri"));
+        assertEquals("master", getAttribute(root, "branches"));
+        for (JSONObject span: spans) {
+            assertEquals(root.getString("traceId"), span.getString("traceId"));
+        }
+
+        assertEquals(1, filter(spans, "dispatch").size());
+        List<JSONObject> lookup = filter(spans, "lookup");
+        assertEquals(1, lookup.size());
+        assertNotNull(getAttribute(lookup.get(0), "candidates"));
+
+        List<JSONObject> matches = filter(spans, "GitStatusTarget.isMatch");
+        assertEquals(2, matches.size());
+        for (JSONObject span: matches) {
+            if (p1.getFullName().equals(getAttribute(span, "job"))) {
+                assertEquals(Boolean.TRUE, getAttribute(span, "matched"));
+            } else {
+                assertEquals(p2.getFullName(), getAttribute(span, "job"));
+                assertEquals(Boolean.FALSE, getAttribute(span, "matched"));
+            }
+        }
+
+        List<JSONObject> scheduled = filter(spans, "scheduleBuild");
+        assertEquals(1, scheduled.size());
+        assertEquals(p1.getFullName(), getAttribute(scheduled.get(0), "job"));
+        assertEquals("master", getAttribute(scheduled.get(0), "branch"));
+
+        // appended after restarted
+        NotificationTracing.configure(null);
+        NotificationTracing.configure(file.getAbsolutePath());
+        j.requestGitNotification("https://git.example.com/repo2.git", "master");
+        assertEquals(2, filter(read(file), "onNotifyCommit").size());
+    }
+}
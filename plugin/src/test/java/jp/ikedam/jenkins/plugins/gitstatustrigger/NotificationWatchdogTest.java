@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link NotificationWatchdog}
+ */
+public class NotificationWatchdogTest {
+    private static final Logger LOG = Logger.getLogger(NotificationWatchdog.class.getName());
+
+    private final List<LogRecord> logs = Collections.synchronizedList(new ArrayList<LogRecord>());
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+                logs.add(record);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws SecurityException {
+        }
+    };
+
+    @Before
+    public void setUp() {
+        LOG.addHandler(handler);
+    }
+
+    @After
+    public void tearDown() {
+        LOG.removeHandler(handler);
+    }
+
+    /**
+     * Start a thread dispatching a notification until the latch is released.
+     */
+    private Thread startDispatching(
+        final NotificationWatchdog watchdog,
+        final String uri,
+        final NotificationRecord.Stage stage,
+        final CountDownLatch started,
+        final CountDownLatch release
+    ) {
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                NotificationRecord r = new NotificationRecord();
+                r.reset(uri, new String[] {"master"});
+                r.setStage(stage);
+                watchdog.watch(r);
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // finish
+                } finally {
+                    watchdog.unwatch(r);
+                }
+            }
+        };
+        t.start();
+        return t;
+    }
+
+    @Test
+    public void testReportSlowNotification() throws Exception {
+        NotificationWatchdog watchdog = new NotificationWatchdog();
+        watchdog.configure(10, 60000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread t = startDispatching(watchdog, "uri1", NotificationRecord.Stage.SCHEDULE, started, release);
+        started.await();
+        Thread.sleep(50);
+        watchdog.check();
+        release.countDown();
+        t.join();
+
+        assertEquals(1, logs.size());
+        LogRecord log = logs.get(0);
+        assertTrue(log.getMessage(), log.getMessage().contains("uri1"));
+        assertTrue(log.getMessage(), log.getMessage().contains("SCHEDULE"));
+        assertNotNull(log.getThrown());
+        assertTrue(log.getThrown().getStackTrace().length > 0);
+    }
+
+    @Test
+    public void testNotReportFastNotification() throws Exception {
+        NotificationWatchdog watchdog = new NotificationWatchdog();
+        watchdog.configure(60000, 60000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread t = startDispatching(watchdog, "uri1", NotificationRecord.Stage.MATCH, started, release);
+        started.await();
+        watchdog.check();
+        release.countDown();
+        t.join();
+
+        assertEquals(0, logs.size());
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        NotificationWatchdog watchdog = new NotificationWatchdog();
+        watchdog.configure(10, 60000);
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 3; ++i) {
+            threads.add(startDispatching(watchdog, "uri" + i, NotificationRecord.Stage.LOOKUP, started, release));
+        }
+        started.await();
+        Thread.sleep(50);
+        watchdog.check();
+        watchdog.check();
+        release.countDown();
+        for (Thread t: threads) {
+            t.join();
+        }
+
+        assertEquals(1, logs.size());
+    }
+}
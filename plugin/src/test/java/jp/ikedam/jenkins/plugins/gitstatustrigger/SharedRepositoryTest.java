@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jp.ikedam.jenkins.plugins.gitstatustrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.transport.URIish;
+import org.junit.Rule;
+import org.junit.Test;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+
+/**
+ * Tests for {@link SharedRepository}
+ */
+public class SharedRepositoryTest {
+    private static final String URI = "https://git.example.com/platform/service.git";
+
+    @Rule
+    public GitStatusTriggerJenkinsRule j = new GitStatusTriggerJenkinsRule();
+
+    private void configureSharedRepositories(SharedRepository... repositories) throws Exception {
+        GitStatusTriggerConfiguration.get().setSharedRepositories(Arrays.asList(repositories));
+        // applied when submitted
+        j.submit(j.createWebClient().goTo("configure").getFormByName("config"));
+    }
+
+    private FreeStyleProject createProject(List<GitStatusTarget> targets, String... sharedIds) throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        SharedRepositoryReference[] refs = new SharedRepositoryReference[sharedIds.length];
+        for (int i = 0; i < sharedIds.length; ++i) {
+            refs[i] = new SharedRepositoryReference(sharedIds[i]);
+        }
+        p.addTrigger(new GitStatusTrigger(targets, Arrays.asList(refs)));
+        j.configRoundtrip((Item)p);
+        return p;
+    }
+
+    @Test
+    public void testShared() throws Exception {
+        configureSharedRepositories(
+            new SharedRepository("service", URI, "master"),
+            new SharedRepository("service-release", URI, "release/*")
+        );
+        FreeStyleProject p1 = createProject(Collections.<GitStatusTarget>emptyList(), "service");
+        FreeStyleProject p2 = createProject(
+            Arrays.asList(new GitStatusTarget(URI, "master")),
+            "service",
+            "service-release"
+        );
+        FreeStyleProject p3 = createProject(Arrays.asList(new GitStatusTarget(URI, "develop")));
+        assertEquals(
+            Arrays.asList("service", "service-release"),
+            Arrays.asList(
+                p2.getTrigger(GitStatusTrigger.class).getSharedRepositoryList().get(0).getId(),
+                p2.getTrigger(GitStatusTrigger.class).getSharedRepositoryList().get(1).getId()
+            )
+        );
+
+        // each job is triggered only once.
+        assertEquals(
+            Arrays.asList(p2.getTrigger(GitStatusTrigger.class), p1.getTrigger(GitStatusTrigger.class)),
+            GitStatusTrigger.dispatch(new URIish(URI), "master", "release/1.0")
+        );
+        assertEquals(
+            Arrays.asList(p2.getTrigger(GitStatusTrigger.class)),
+            GitStatusTrigger.dispatch(new URIish(URI), "release/1.0")
+        );
+        assertEquals(
+            Arrays.asList(p3.getTrigger(GitStatusTrigger.class)),
+            GitStatusTrigger.dispatch(new URIish(URI), "develop")
+        );
+        j.waitUntilNoActivity();
+        GitStatusTriggerCause c = p1.getLastBuild().getCause(GitStatusTriggerCause.class);
+        assertNotNull(c);
+        assertEquals("master", c.getBranch());
+    }
+
+    @Test
+    public void testReconfigure() throws Exception {
+        configureSharedRepositories(new SharedRepository("service", URI, "master"));
+        FreeStyleProject p = createProject(Collections.<GitStatusTarget>emptyList(), "service");
+        assertEquals(
+            Arrays.asList(p.getTrigger(GitStatusTrigger.class)),
+            GitStatusTrigger.dispatch(new URIish(URI), "master")
+        );
+
+        // changes apply to jobs without saving them.
+        configureSharedRepositories(new SharedRepository("service", URI, "develop"));
+        assertEquals(
+            Collections.emptyList(),
+            GitStatusTrigger.dispatch(new URIish(URI), "master")
+        );
+        assertEquals(
+            Arrays.asList(p.getTrigger(GitStatusTrigger.class)),
+            GitStatusTrigger.dispatch(new URIish(URI), "develop")
+        );
+
+        // removed repositories are ignored.
+        configureSharedRepositories();
+        assertEquals(
+            Collections.emptyList(),
+            GitStatusTrigger.dispatch(new URIish(URI), "develop")
+        );
+    }
+}